@@ -25,7 +25,7 @@ import tech.metacontext.ocnhfa.antsomg.model.Edge;
  * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
  * @param <V>
  */
-public class StandardEdge<V extends StandardVertex> implements Edge<V> {
+public class StandardEdge<V extends StandardVertex> implements Edge<V>, Cloneable {
 
    private double pheromoneTrail;
    private double cost;
@@ -54,6 +54,22 @@ public class StandardEdge<V extends StandardVertex> implements Edge<V> {
       return null;
    }
 
+   /**
+    * Copy this edge with its cost and pheromone trail, sharing its vertices.
+    *
+    * @param <E> type of the edge.
+    * @return copy of this edge.
+    */
+   @SuppressWarnings("unchecked") // a copy is of the class of this edge, as clone() makes it
+   public <E extends StandardEdge<V>> E copy() {
+
+      try {
+         return (E) super.clone();
+      } catch (CloneNotSupportedException ex) {
+         throw new AssertionError(ex);
+      }
+   }
+
    @Override
    public String toString() {
       return this.getClass().getSimpleName() + "{"
@@ -16,10 +16,15 @@
 package tech.metacontext.ocnhfa.antsomg.impl;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Formatter;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -28,10 +33,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
-import java.util.stream.Stream;
 import org.dom4j.DocumentHelper;
-import org.dom4j.io.OutputFormat;
-import org.dom4j.io.XMLWriter;
+import org.dom4j.Element;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.*;
 import tech.metacontext.ocnhfa.antsomg.model.Graph;
 
@@ -42,7 +45,7 @@ import tech.metacontext.ocnhfa.antsomg.model.Graph;
  * @param <V>
  */
 public abstract class StandardGraph<E extends StandardEdge<V>, V extends StandardVertex>
-        implements Graph<E, V, StandardMove<E>> {
+        implements Graph<E, V, StandardMove<E>>, Cloneable {
 
   private List<E> edges;
   private V start;
@@ -54,6 +57,15 @@ public abstract class StandardGraph<E extends StandardEdge<V>, V extends Standar
     Power, Coefficient, Power_Multiply;
   }
 
+  /**
+   * Costs and pheromone trails of the edges of a graph, in the order of
+   * getOrderedEdges(). Snapshots are serializable so that they can be kept in
+   * checkpoints of long runs.
+   */
+  public record Snapshot(double[] costs, double[] pheromoneTrails) implements Serializable {
+
+  }
+
   public StandardGraph(double alpha, double beta) {
 
     this.edges = new ArrayList<>();
@@ -142,12 +154,15 @@ public abstract class StandardGraph<E extends StandardEdge<V>, V extends Standar
             .collect(Collectors.toList());
   }
 
-  @Override
-  public String asXML() {
+  /**
+   * Build the XML element of this graph, without a document, so that it can be
+   * added into other documents directly.
+   *
+   * @return root Element of the graph.
+   */
+  public Element asElement() {
 
-    var doc = DocumentHelper.createDocument();
-    doc.setXMLEncoding("UTF-8");
-    var root = doc.addElement(this.getClass().getSimpleName());
+    var root = DocumentHelper.createElement(this.getClass().getSimpleName());
     getEdges().stream().forEach(e -> {
       var edge = root.addElement(e.getClass().getSimpleName());
       edge.addElement("from").setText(e.getFrom().getName());
@@ -155,20 +170,138 @@ public abstract class StandardGraph<E extends StandardEdge<V>, V extends Standar
       edge.addElement("cost").setText(String.valueOf(e.getCost()));
       edge.addElement("pheromoneTrail").setText(String.valueOf(e.getPheromoneTrail()));
     });
-    // return doc.asXML();
-    var format = OutputFormat.createPrettyPrint();
-    format.setExpandEmptyElements(true);
-    format.setSuppressDeclaration(true);
+    return root;
+  }
+
+  /**
+   * Stream the XML element of this graph, the same as asElement() builds.
+   *
+   * @param out XMLStreamExporter.
+   * @throws IOException
+   */
+  public void writeXML(XMLStreamExporter out) throws IOException {
+
+    out.start(this.getClass().getSimpleName());
+    for (var e : getEdges()) {
+      out.start(e.getClass().getSimpleName())
+              .element("from", e.getFrom().getName())
+              .element("to", e.getTo().getName())
+              .element("cost", String.valueOf(e.getCost()))
+              .element("pheromoneTrail", String.valueOf(e.getPheromoneTrail()))
+              .end();
+    }
+    out.end();
+  }
+
+  /**
+   * Write asXML() to a file in one pass, without building the document.
+   *
+   * @param file target file.
+   * @throws IOException
+   */
+  public void writeXML(Path file) throws IOException {
+
+    try (var out = XMLStreamExporter.of(file, true, false)) {
+      writeXML(out);
+    }
+  }
+
+  /**
+   * Write asXML() to a writer in one pass.
+   *
+   * @param out target writer, flushed but left open.
+   * @throws IOException
+   */
+  public void writeXML(Writer out) throws IOException {
+
+    try (var exporter = XMLStreamExporter.of(out, true, false)) {
+      writeXML(exporter);
+    }
+  }
+
+  @Override
+  public String asXML() {
+
     var stringWriter = new StringWriter();
-    var writer = new XMLWriter(stringWriter, format);
-    try {
-      writer.write(doc);
+    try (var out = XMLStreamExporter.of(stringWriter, true, false)) {
+      writeXML(out);
     } catch (IOException ex) {
       Logger.getLogger(StandardGraph.class.getName()).log(Level.SEVERE, null, ex);
     }
     return stringWriter.toString();
   }
 
+  /**
+   * Fork this graph in O(E): edges are copied with their costs and pheromone
+   * trails, while vertices and other state are shared with this graph.
+   * Subclasses keeping edges outside the edge list override it to copy them.
+   *
+   * @param <G> type of the graph.
+   * @return independent copy of this graph.
+   */
+  @SuppressWarnings("unchecked") // a fork and its edges are of the classes of the originals, as clone() makes them
+  public <G extends StandardGraph<E, V>> G fork() {
+
+    try {
+      var fork = (StandardGraph<E, V>) super.clone();
+      fork.edges = this.edges.stream()
+              .map(edge -> (E) edge.copy())
+              .collect(Collectors.toCollection(ArrayList::new));
+      return (G) fork;
+    } catch (CloneNotSupportedException ex) {
+      throw new AssertionError(ex);
+    }
+  }
+
+  /**
+   * Take the costs and pheromone trails of all edges.
+   *
+   * @return Snapshot of the edges.
+   */
+  public Snapshot snapshot() {
+
+    var edges = this.getOrderedEdges();
+    var costs = new double[edges.size()];
+    var pheromoneTrails = new double[edges.size()];
+    for (int i = 0; i < costs.length; i++) {
+      costs[i] = edges.get(i).getCost();
+      pheromoneTrails[i] = edges.get(i).getPheromoneTrail();
+    }
+    return new Snapshot(costs, pheromoneTrails);
+  }
+
+  /**
+   * Restore the costs and pheromone trails of a snapshot taken from this graph
+   * or a fork of it.
+   *
+   * @param snapshot Snapshot to be restored.
+   */
+  public void restore(Snapshot snapshot) {
+
+    var edges = this.getOrderedEdges();
+    if (edges.size() != snapshot.costs().length) {
+      throw new IllegalArgumentException(String.format(
+              "Snapshot of %d edges does not fit a graph of %d edges.",
+              snapshot.costs().length, edges.size()));
+    }
+    for (int i = 0; i < snapshot.costs().length; i++) {
+      edges.get(i).setCost(snapshot.costs()[i]);
+      edges.get(i).setPheromoneTrail(snapshot.pheromoneTrails()[i]);
+    }
+  }
+
+  /**
+   * Edges in the order snapshots and graph files record them, which must be
+   * the same in every process: getEdges(), unless a subclass keeps its edges
+   * in hashed collections.
+   *
+   * @return List of edges.
+   */
+  protected List<E> getOrderedEdges() {
+
+    return this.getEdges();
+  }
+
   public boolean isBlank() {
 
     return this.getEdges().stream()
@@ -178,42 +311,187 @@ public abstract class StandardGraph<E extends StandardEdge<V>, V extends Standar
 
   public String asGraphviz() {
 
-    return String.format("digraph %s {\n%s\n}",
-            this.getClass().getSimpleName(),
-            getEdges().stream().map(
-                    path -> isBlank()
-                            ? String.format("\t%s -> %s [ label=<c=%.1f> ];",
-                                    path.getFrom().getName(),
-                                    path.getTo().getName(),
-                                    path.getCost())
-                            : String.format("\t%s -> %s [ label=<c=%.1f, pher=%.2f> ];",
-                                    path.getFrom().getName(),
-                                    path.getTo().getName(),
-                                    path.getCost(),
-                                    path.getPheromoneTrail())
-            ).collect(Collectors.joining("\n"))
-    );
+    var stringWriter = new StringWriter();
+    try {
+      writeGraphviz(stringWriter);
+    } catch (IOException ex) {
+      Logger.getLogger(StandardGraph.class.getName()).log(Level.SEVERE, null, ex);
+    }
+    return stringWriter.toString();
+  }
+
+  /**
+   * Write the graph in DOT language, edge by edge, checking blankness only
+   * once.
+   *
+   * @param out target writer, left open.
+   * @throws IOException
+   */
+  public void writeGraphviz(Writer out) throws IOException {
+
+    var dot = new Formatter(out);
+    var blank = isBlank();
+    dot.format("digraph %s {\n", this.getClass().getSimpleName());
+    var separator = "";
+    for (var path : getEdges()) {
+      out.write(separator);
+      separator = "\n";
+      if (blank) {
+        dot.format("\t%s -> %s [ label=<c=%.1f> ];",
+                path.getFrom().getName(),
+                path.getTo().getName(),
+                path.getCost());
+      } else {
+        dot.format("\t%s -> %s [ label=<c=%.1f, pher=%.2f> ];",
+                path.getFrom().getName(),
+                path.getTo().getName(),
+                path.getCost(),
+                path.getPheromoneTrail());
+      }
+    }
+    out.write("\n}");
+    flush(dot);
   }
 
   public String asCypher() {
 
-    String vertices = getEdges().stream()
-            .flatMap(path -> Stream.of(path.getFrom(), path.getTo()))
-            .filter(Objects::nonNull)
-            .distinct()
-            .map(v -> String.format("(%s:%s{name:\"%s\"})", v.getName(), v.getClass().getSimpleName(), v.getName()))
-            .collect(Collectors.joining(", "));
+    var stringWriter = new StringWriter();
+    try {
+      writeCypher(stringWriter);
+    } catch (IOException ex) {
+      Logger.getLogger(StandardGraph.class.getName()).log(Level.SEVERE, null, ex);
+    }
+    return stringWriter.toString();
+  }
 
-    String cypher = String.format("CREATE %s;", vertices);
+  /**
+   * Write the graph as Cypher statements creating its vertices and edges.
+   *
+   * @param out target writer, left open.
+   * @throws IOException
+   */
+  public void writeCypher(Writer out) throws IOException {
+
+    var cypher = new Formatter(out);
+    var vertices = getVertices();
+    out.write("CREATE ");
+    writeCypherVertices(cypher, vertices);
+    out.write(";MATCH ");
+    writeCypherVertices(cypher, vertices);
+    out.write(" CREATE ");
+    var separator = "";
+    for (var path : getEdges()) {
+      out.write(separator);
+      separator = ", ";
+      cypher.format("(%s)-[:TO]->(%s)", path.getFrom().getName(), path.getTo().getName());
+    }
+    out.write(";");
+    flush(cypher);
+  }
 
-    cypher += String.format("MATCH %s CREATE %s;",
-            vertices,
-            getEdges().stream()
-                    .map(path -> String.format("(%s)-[:TO]->(%s)",
-                    path.getFrom().getName(), path.getTo().getName()))
-                    .collect(Collectors.joining(", ")));
+  private void writeCypherVertices(Formatter cypher, Collection<V> vertices) throws IOException {
 
-    return cypher;
+    var separator = "";
+    for (var v : vertices) {
+      cypher.out().append(separator);
+      separator = ", ";
+      cypher.format("(%s:%s{name:\"%s\"})", v.getName(), v.getClass().getSimpleName(), v.getName());
+    }
+  }
+
+  /**
+   * Write the graph in GraphML, with the costs and pheromone trails as edge
+   * data.
+   *
+   * @param out target writer, left open.
+   * @throws IOException
+   */
+  public void writeGraphML(Writer out) throws IOException {
+
+    try (var xml = XMLStreamExporter.of(out, true, true)) {
+      xml.start("graphml").attribute("xmlns", "http://graphml.graphdrawing.org/xmlns")
+              .start("key").attribute("id", "label").attribute("for", "node")
+              .attribute("attr.name", "label").attribute("attr.type", "string")
+              .end();
+      for (var key : List.of("cost", "pheromoneTrail")) {
+        xml.start("key").attribute("id", key).attribute("for", "edge")
+                .attribute("attr.name", key).attribute("attr.type", "double")
+                .end();
+      }
+      xml.start("graph").attribute("id", this.getClass().getSimpleName())
+              .attribute("edgedefault", "directed");
+      writeGraphMLElements(xml);
+      xml.end().end();
+    }
+  }
+
+  /**
+   * Write the nodes and edges of the GraphML export. Graphs whose vertices
+   * recur in several layers override it to give each layer its own nodes.
+   *
+   * @param xml GraphML being written.
+   * @throws IOException
+   */
+  protected void writeGraphMLElements(XMLStreamExporter xml) throws IOException {
+
+    for (var v : getVertices()) {
+      writeGraphMLNode(xml, v.getName(), v.getName());
+    }
+    for (var path : getEdges()) {
+      if (Objects.nonNull(path.getFrom())) {
+        writeGraphMLEdge(xml, path.getFrom().getName(), path.getTo().getName(), path);
+      }
+    }
+  }
+
+  protected static void writeGraphMLNode(XMLStreamExporter xml, String id, String label) throws IOException {
+
+    xml.start("node").attribute("id", id)
+            .start("data").attribute("key", "label").text(label).end()
+            .end();
+  }
+
+  protected static void writeGraphMLEdge(XMLStreamExporter xml, String source, String target,
+          StandardEdge<?> edge) throws IOException {
+
+    xml.start("edge").attribute("source", source).attribute("target", target)
+            .start("data").attribute("key", "cost").text(String.valueOf(edge.getCost())).end()
+            .start("data").attribute("key", "pheromoneTrail").text(String.valueOf(edge.getPheromoneTrail())).end()
+            .end();
+  }
+
+  /**
+   * Distinct vertices of the edges, in the order of their first appearance.
+   *
+   * @return vertices.
+   */
+  public Collection<V> getVertices() {
+
+    var vertices = new LinkedHashSet<V>();
+    for (var path : getEdges()) {
+      if (Objects.nonNull(path.getFrom())) {
+        vertices.add(path.getFrom());
+      }
+      if (Objects.nonNull(path.getTo())) {
+        vertices.add(path.getTo());
+      }
+    }
+    return vertices;
+  }
+
+  /**
+   * Flush a formatter writing to a writer, rethrowing the IOException it may
+   * have swallowed.
+   *
+   * @param formatter formatter of an export.
+   * @throws IOException
+   */
+  protected static void flush(Formatter formatter) throws IOException {
+
+    formatter.flush();
+    if (Objects.nonNull(formatter.ioException())) {
+      throw formatter.ioException();
+    }
   }
 
   public void addEdges(E... edges) {
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.antsomg.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Versioned binary format of the topology, costs and pheromone trails of a
+ * StandardGraph.
+ * <pre>
+ * int     magic "AOMG"
+ * short   version
+ * int     vertex count, then per vertex: short length, UTF-8 name
+ * int     edge count, then per edge: int from, int to, double cost,
+ *         double pheromoneTrail (vertex index -1 stands for null)
+ * </pre> Files are loaded by memory-mapping into a graph already built with
+ * the same topology, edges being matched by position when the recorded
+ * topology agrees with getOrderedEdges(), or by vertex names otherwise.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class StandardGraphFile {
+
+  public static final int MAGIC = 0x414F4D47;
+  public static final short VERSION = 1;
+
+  private static final int EDGE_BYTES = 2 * Integer.BYTES + 2 * Double.BYTES;
+
+  public static void write(StandardGraph<?, ?> graph, Path file) throws IOException {
+
+    var buffer = encode(graph);
+    try (var channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Write the graph to a stream, which is left open.
+   *
+   * @param graph graph to be written.
+   * @param out target stream.
+   * @throws IOException
+   */
+  public static void write(StandardGraph<?, ?> graph, OutputStream out) throws IOException {
+
+    var buffer = encode(graph);
+    out.write(buffer.array(), 0, buffer.limit());
+  }
+
+  private static ByteBuffer encode(StandardGraph<?, ?> graph) {
+
+    var edges = graph.getOrderedEdges();
+    var vertices = new LinkedHashMap<String, Integer>();
+    var topology = new int[edges.size() * 2];
+    for (int i = 0; i < edges.size(); i++) {
+      topology[i * 2] = index(vertices, edges.get(i).getFrom());
+      topology[i * 2 + 1] = index(vertices, edges.get(i).getTo());
+    }
+    var names = vertices.keySet().stream()
+            .map(name -> name.getBytes(StandardCharsets.UTF_8))
+            .toList();
+    var size = Integer.BYTES + Short.BYTES
+            + Integer.BYTES + names.stream().mapToInt(name -> Short.BYTES + name.length).sum()
+            + Integer.BYTES + edges.size() * EDGE_BYTES;
+    var buffer = ByteBuffer.allocate(size);
+    buffer.putInt(MAGIC).putShort(VERSION);
+    buffer.putInt(names.size());
+    names.forEach(name -> buffer.putShort((short) name.length).put(name));
+    buffer.putInt(edges.size());
+    for (int i = 0; i < edges.size(); i++) {
+      buffer.putInt(topology[i * 2]).putInt(topology[i * 2 + 1])
+              .putDouble(edges.get(i).getCost())
+              .putDouble(edges.get(i).getPheromoneTrail());
+    }
+    return buffer.flip();
+  }
+
+  private static int index(Map<String, Integer> vertices, StandardVertex vertex) {
+
+    return Objects.isNull(vertex) ? -1
+            : vertices.computeIfAbsent(vertex.getName(), name -> vertices.size());
+  }
+
+  /**
+   * Load the costs and pheromone trails of a file into the graph.
+   *
+   * @param graph graph built with the topology of the file.
+   * @param file binary graph file.
+   * @throws IOException if the file is not a supported graph file or does not
+   * fit the graph.
+   */
+  public static void read(StandardGraph<?, ?> graph, Path file) throws IOException {
+
+    read(graph, file, true);
+  }
+
+  /**
+   * Load the pheromone trails, and optionally the costs, of a file into the
+   * graph.
+   *
+   * @param graph graph built with the topology of the file.
+   * @param file binary graph file.
+   * @param costs whether the costs are loaded as well.
+   * @throws IOException if the file is not a supported graph file or does not
+   * fit the graph, in which case the graph is left unchanged.
+   */
+  public static void read(StandardGraph<?, ?> graph, Path file, boolean costs) throws IOException {
+
+    try (var channel = FileChannel.open(file, READ)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a graph file: " + file);
+      }
+      var version = buffer.getShort();
+      if (version != VERSION) {
+        throw new IOException("Unsupported graph file version " + version + ": " + file);
+      }
+      var names = new String[buffer.getInt()];
+      for (int i = 0; i < names.length; i++) {
+        var bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        names[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+      var edges = graph.getOrderedEdges();
+      var count = buffer.getInt();
+      if (count != edges.size()) {
+        throw new IOException(String.format("%s holds %d edges, while the graph has %d.",
+                file, count, edges.size()));
+      }
+      var topology = buffer.slice();
+      var positional = true;
+      for (int i = 0; i < count && positional; i++) {
+        var edge = edges.get(i);
+        positional = Objects.equals(name(names, topology.getInt(i * EDGE_BYTES)), name(edge.getFrom()))
+                && Objects.equals(name(names, topology.getInt(i * EDGE_BYTES + Integer.BYTES)), name(edge.getTo()));
+      }
+      Map<List<String>, StandardEdge<?>> by_names = new HashMap<>();
+      var ambiguous = new HashSet<List<String>>();
+      if (!positional) {
+        edges.forEach(edge -> {
+          var key = Arrays.asList(name(edge.getFrom()), name(edge.getTo()));
+          if (Objects.nonNull(by_names.putIfAbsent(key, edge))) {
+            ambiguous.add(key);
+          }
+        });
+        by_names.keySet().removeAll(ambiguous);
+      }
+      // every record is resolved to its edge before any is applied, so that
+      // a file which does not fit leaves the graph as it was
+      var targets = new StandardEdge<?>[count];
+      var loaded_costs = new double[count];
+      var pheromoneTrails = new double[count];
+      for (int i = 0; i < count; i++) {
+        var from = buffer.getInt();
+        var to = buffer.getInt();
+        loaded_costs[i] = buffer.getDouble();
+        pheromoneTrails[i] = buffer.getDouble();
+        targets[i] = positional ? edges.get(i)
+                : by_names.get(Arrays.asList(name(names, from), name(names, to)));
+        if (Objects.isNull(targets[i])) {
+          throw new IOException(String.format("%s -> %s of %s is not found in the graph, or is ambiguous.",
+                  name(names, from), name(names, to), file));
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        if (costs) {
+          targets[i].setCost(loaded_costs[i]);
+        }
+        targets[i].setPheromoneTrail(pheromoneTrails[i]);
+      }
+    } catch (BufferUnderflowException ex) {
+      throw new IOException("Truncated graph file: " + file, ex);
+    }
+  }
+
+  private static String name(String[] names, int index) {
+
+    return index < 0 ? null : names[index];
+  }
+
+  private static String name(StandardVertex vertex) {
+
+    return Objects.isNull(vertex) ? null : vertex.getName();
+  }
+}
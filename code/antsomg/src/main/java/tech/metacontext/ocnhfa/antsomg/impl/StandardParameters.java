@@ -15,8 +15,15 @@
  */
 package tech.metacontext.ocnhfa.antsomg.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.util.Objects;
 import java.util.Random;
+import java.util.function.Supplier;
 import tech.metacontext.ocnhfa.antsomg.impl.ex.*;
 
 /**
@@ -26,12 +33,17 @@ import tech.metacontext.ocnhfa.antsomg.impl.ex.*;
 public class StandardParameters {
 
   private static Random RANDOM;
+  /**
+   * Random generator of the job run by the current thread, if any, taking
+   * precedence over the global one.
+   */
+  private static final ThreadLocal<Random> SCOPED_RANDOM = new ThreadLocal<>();
 
-  public static double ALPHA = 1.0;
-  public static double BETA = 1.0;
-  public static double PHEROMONE_DEPOSIT = 0.1;
-  public static double EXPLORE_CHANCE = 0.1;
-  public static double EVAPORATE_RATE = 0.05;
+  public static final double ALPHA = 1.0;
+  public static final double BETA = 1.0;
+  public static final double PHEROMONE_DEPOSIT = 0.1;
+  public static final double EXPLORE_CHANCE = 0.1;
+  public static final double EVAPORATE_RATE = 0.05;
 
   public static void initialization(long SEED) {
 
@@ -43,9 +55,109 @@ public class StandardParameters {
 
   public static Random getRandom() {
 
+    var scoped = SCOPED_RANDOM.get();
+    if (Objects.nonNull(scoped)) {
+      return scoped;
+    }
     if (Objects.nonNull(StandardParameters.RANDOM)) {
       return StandardParameters.RANDOM;
     }
     throw new RandomSeedNotInitializedException();
   }
+
+  /**
+   * Copy the random generator in its current state, so that a run can later
+   * be resumed with exactly the same sequence of random numbers.
+   *
+   * @return independent copy of the random generator.
+   */
+  public static Random copyRandom() {
+
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new ObjectOutputStream(bytes)) {
+      out.writeObject(getRandom());
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return (Random) in.readObject();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } catch (ClassNotFoundException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Replace the random generator with one saved by copyRandom(), whether or
+   * not the seed has been initialized.
+   *
+   * @param random random generator to be resumed.
+   */
+  public static void resumeRandom(Random random) {
+
+    Objects.requireNonNull(random);
+    if (Objects.nonNull(SCOPED_RANDOM.get())) {
+      SCOPED_RANDOM.set(random);
+    } else {
+      StandardParameters.RANDOM = random;
+    }
+  }
+
+  /**
+   * Give the current thread a random generator of its own, so that jobs
+   * running side by side each draw their own reproducible sequence. Scoped
+   * generators are also the ones copied and resumed by copyRandom() and
+   * resumeRandom().
+   *
+   * @param random random generator of the current thread, or null to fall
+   * back to the global one.
+   */
+  public static void setScopedRandom(Random random) {
+
+    if (Objects.isNull(random)) {
+      SCOPED_RANDOM.remove();
+    } else {
+      SCOPED_RANDOM.set(random);
+    }
+  }
+
+  /**
+   * Run a task with the given random generator as the one of the current
+   * thread, restoring the previous one afterwards, so that tasks may run on
+   * worker threads, or on the caller's thread, with their own reproducible
+   * sequence.
+   *
+   * @param <T> type of the result.
+   * @param random random generator of the task.
+   * @param task task to run.
+   * @return result of the task.
+   */
+  public static <T> T withScopedRandom(Random random, Supplier<T> task) {
+
+    var previous = SCOPED_RANDOM.get();
+    SCOPED_RANDOM.set(Objects.requireNonNull(random));
+    try {
+      return task.get();
+    } finally {
+      setScopedRandom(previous);
+    }
+  }
+
+  /**
+   * Derive the seed of a task from a base seed and a salt identifying the
+   * task, with the SplitMix64 finalizer, so that tasks seeded from the same
+   * base draw independent sequences for withScopedRandom().
+   *
+   * @param seed base seed.
+   * @param salt salt identifying the task.
+   * @return seed of the task.
+   */
+  public static long mixSeed(long seed, long salt) {
+
+    var z = seed ^ salt * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
 }
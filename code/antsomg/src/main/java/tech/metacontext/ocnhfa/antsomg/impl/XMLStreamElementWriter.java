@@ -0,0 +1,308 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.antsomg.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Base of the one-pass StAX writers, writing elements as they come. The start
+ * of each element is held back until its content is known, so that empty
+ * elements can be laid out as the tree-based writers being replaced do, and
+ * child elements are indented by 2 in the pretty layout.
+ *
+ * @param <W> type of the writer itself, returned for chaining.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public abstract class XMLStreamElementWriter<W extends XMLStreamElementWriter<W>> implements AutoCloseable {
+
+  /**
+   * Layout of elements without content.
+   */
+  public enum EmptyElements {
+    /**
+     * <code>&lt;x&gt;&lt;/x&gt;</code>.
+     */
+    EXPANDED,
+    /**
+     * <code>&lt;x/&gt;</code>.
+     */
+    COLLAPSED,
+    /**
+     * <code>&lt;x/&gt;</code>, expanded if it has attributes.
+     */
+    COLLAPSED_WITHOUT_ATTRIBUTES
+  }
+
+  private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+  private final Writer out;
+  private final boolean owned;
+  protected final XMLStreamWriter writer;
+  protected final boolean pretty;
+  private final EmptyElements empty_elements;
+  /**
+   * Number of open elements written so far, and whether each of them has
+   * child elements, indexed by depth.
+   */
+  private int depth;
+  private final BitSet children = new BitSet();
+  /**
+   * Start of an element held back until its content is known.
+   */
+  private String pending;
+  private final List<Map.Entry<String, String>> attributes = new ArrayList<>();
+
+  /**
+   * Create a StAX writer from the shared factory, which may be used by other
+   * streaming writers as well.
+   *
+   * @param out target writer.
+   * @return XMLStreamWriter.
+   * @throws XMLStreamException
+   */
+  public static XMLStreamWriter createXMLStreamWriter(Writer out) throws XMLStreamException {
+
+    synchronized (FACTORY) {
+      return FACTORY.createXMLStreamWriter(out);
+    }
+  }
+
+  /**
+   * @param out target writer.
+   * @param owned whether out is closed on close(), or only flushed.
+   * @param pretty pretty layout or compact layout.
+   * @param empty_elements layout of elements without content.
+   * @throws IOException
+   */
+  protected XMLStreamElementWriter(Writer out, boolean owned, boolean pretty,
+          EmptyElements empty_elements) throws IOException {
+
+    this.out = out;
+    this.owned = owned;
+    this.pretty = pretty;
+    this.empty_elements = empty_elements;
+    try {
+      this.writer = createXMLStreamWriter(out);
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  protected abstract W self();
+
+  /**
+   * Open an element. Attributes may be added until its first child or text.
+   *
+   * @param name element name.
+   * @return this writer.
+   * @throws IOException
+   */
+  public W start(String name) throws IOException {
+
+    try {
+      writePending();
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+    if (depth > 0) {
+      children.set(depth);
+    }
+    pending = name;
+    return self();
+  }
+
+  public W attribute(String name, String value) throws IOException {
+
+    if (Objects.isNull(pending)) {
+      throw new IOException("Attribute " + name + " does not follow the start of an element.");
+    }
+    attributes.add(Map.entry(name, value));
+    return self();
+  }
+
+  /**
+   * Write an element holding text only.
+   *
+   * @param name element name.
+   * @param text text of the element.
+   * @return this writer.
+   * @throws IOException
+   */
+  public W element(String name, String text) throws IOException {
+
+    start(name);
+    if (text.isEmpty()) {
+      return end();
+    }
+    return text(text).end();
+  }
+
+  /**
+   * Write text into the current element, after its attributes.
+   *
+   * @param text text to be written.
+   * @return this writer.
+   * @throws IOException
+   */
+  public W text(String text) throws IOException {
+
+    try {
+      writePending();
+      writer.writeCharacters(text);
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+    return self();
+  }
+
+  /**
+   * Write a comment into the current element, on a line of its own in the
+   * pretty layout.
+   *
+   * @param comment text of the comment.
+   * @return this writer.
+   * @throws IOException
+   */
+  public W comment(String comment) throws IOException {
+
+    try {
+      writePending();
+      children.set(depth);
+      if (pretty) {
+        indent();
+      }
+      writer.writeComment(comment);
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+    return self();
+  }
+
+  /**
+   * Close the current element.
+   *
+   * @return this writer.
+   * @throws IOException
+   */
+  public W end() throws IOException {
+
+    try {
+      if (Objects.nonNull(pending) && collapsed()) {
+        if (pretty && depth > 0) {
+          indent();
+        }
+        writer.writeEmptyElement(pending);
+        writeAttributes();
+        return self();
+      }
+      writePending();
+      var nested = children.get(depth);
+      depth--;
+      if (pretty && nested) {
+        indent();
+      }
+      writer.writeEndElement();
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+    return self();
+  }
+
+  private boolean collapsed() {
+
+    return switch (empty_elements) {
+      case EXPANDED ->
+        false;
+      case COLLAPSED ->
+        true;
+      case COLLAPSED_WITHOUT_ATTRIBUTES ->
+        attributes.isEmpty();
+    };
+  }
+
+  private void writePending() throws XMLStreamException {
+
+    if (Objects.isNull(pending)) {
+      return;
+    }
+    if (pretty && depth > 0) {
+      indent();
+    }
+    writer.writeStartElement(pending);
+    writeAttributes();
+    depth++;
+    children.clear(depth);
+  }
+
+  private void writeAttributes() throws XMLStreamException {
+
+    for (var attribute : attributes) {
+      writer.writeAttribute(attribute.getKey(), attribute.getValue());
+    }
+    attributes.clear();
+    pending = null;
+  }
+
+  private void indent() throws XMLStreamException {
+
+    writer.writeCharacters("\n" + "  ".repeat(depth));
+  }
+
+  /**
+   * Write what follows the root element, after all elements are closed.
+   *
+   * @throws XMLStreamException
+   */
+  protected void writeEpilogue() throws XMLStreamException {
+  }
+
+  /**
+   * Close all open elements, and the underlying writer if opened by this
+   * writer.
+   *
+   * @throws IOException
+   */
+  @Override
+  public void close() throws IOException {
+
+    try {
+      while (Objects.nonNull(pending) || depth > 0) {
+        end();
+      }
+      writeEpilogue();
+      writer.writeEndDocument();
+      writer.close();
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    } finally {
+      if (owned) {
+        out.close();
+      } else {
+        out.flush();
+      }
+    }
+  }
+}
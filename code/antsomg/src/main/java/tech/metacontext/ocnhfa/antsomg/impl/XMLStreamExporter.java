@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.antsomg.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import javax.xml.stream.XMLStreamException;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * One-pass StAX writer for the XML exports of graphs, composers and routes,
+ * writing elements as they come instead of building a dom4j tree.
+ * <p>
+ * The output is laid out as dom4j does for the same document: the pretty
+ * layout matches <code>OutputFormat.createPrettyPrint()</code> with expanded
+ * empty elements, and the compact layout matches
+ * <code>Document.asXML()</code>.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class XMLStreamExporter extends XMLStreamElementWriter<XMLStreamExporter> {
+
+  /**
+   * Export to a file through a buffered file channel.
+   *
+   * @param file target file, truncated if it exists.
+   * @param pretty pretty layout or compact layout.
+   * @param declaration whether the XML declaration is written.
+   * @return XMLStreamExporter.
+   * @throws IOException
+   */
+  public static XMLStreamExporter of(Path file, boolean pretty, boolean declaration) throws IOException {
+
+    var channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING);
+    var out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    return new XMLStreamExporter(out, true, pretty, declaration);
+  }
+
+  /**
+   * Export to a writer, which is flushed but left open on close().
+   *
+   * @param out target writer.
+   * @param pretty pretty layout or compact layout.
+   * @param declaration whether the XML declaration is written.
+   * @return XMLStreamExporter.
+   * @throws IOException
+   */
+  public static XMLStreamExporter of(Writer out, boolean pretty, boolean declaration) throws IOException {
+
+    return new XMLStreamExporter(out, false, pretty, declaration);
+  }
+
+  private XMLStreamExporter(Writer out, boolean owned, boolean pretty, boolean declaration) throws IOException {
+
+    super(out, owned, pretty, pretty ? EmptyElements.EXPANDED : EmptyElements.COLLAPSED);
+    try {
+      if (declaration) {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeCharacters("\n");
+      }
+      if (pretty) {
+        writer.writeCharacters("\n");
+      }
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  @Override
+  protected XMLStreamExporter self() {
+
+    return this;
+  }
+
+  @Override
+  protected void writeEpilogue() throws XMLStreamException {
+
+    if (pretty) {
+      writer.writeCharacters("\n");
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import tech.metacontext.ocnhfa.composer.cf.model.MusicThread;
+import art.cctcc.music.cpt.graphs.y_cpt_cf.CptCfPitchSpace;
+import art.cctcc.music.utils.ec.CF_Evaluator;
+
+/**
+ * CF_Evaluator, the fitness of a cantus firmus in the evolution of the motet
+ * composer, on the Jeppesen cantus firmi. One operation is one evaluation;
+ * the cantus firmi are taken in turn. apply() and rating() count the
+ * counterpoints of each cantus firmus on graphs y kept in the graph cache of
+ * CptCfPitchSpace, which holds all of them after the first round; they are
+ * measured with the cache as it is, and with the cache cleared before every
+ * operation, i.e. the graphs built anew.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CF_EvaluatorBenchmark {
+
+  /**
+   * Graph cache of CptCfPitchSpace, kept or cleared before every operation.
+   */
+  @State(Scope.Thread)
+  public static class GraphCache {
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    @Setup(Level.Invocation)
+    public void clear() {
+
+      if (!cached) {
+        CptCfPitchSpace.clearCache();
+      }
+    }
+  }
+
+  private CF_Evaluator evaluator;
+  private MusicThread[] threads;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    evaluator = new CF_Evaluator();
+    threads = Fixtures.jeppesenLegacy().stream()
+            .map(MusicThread::new)
+            .toArray(MusicThread[]::new);
+  }
+
+  @Benchmark
+  public double apply(GraphCache cache) {
+
+    next = next + 1 == threads.length ? 0 : next + 1;
+    return evaluator.apply(threads[next]);
+  }
+
+  @Benchmark
+  public double rating(GraphCache cache) {
+
+    next = next + 1 == threads.length ? 0 : next + 1;
+    return evaluator.rating(threads[next]);
+  }
+
+  @Benchmark
+  public double validity() {
+
+    next = next + 1 == threads.length ? 0 : next + 1;
+    return evaluator.validity(threads[next]);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchPath;
+import art.cctcc.music.cpt.model.CptCantusFirmus;
+import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfGraphMode;
+import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfPitchSpace;
+import art.cctcc.music.composer.cpts2.model.Cpt2Locus;
+import static art.cctcc.music.composer.cpts2.model.Cpt2MeasurePortion.ARSIS;
+
+/**
+ * Building graph y of cpts2, i.e. the enumeration of the CptPitchPaths of
+ * every locus by init_graph(), bypassing the graph cache; and the rule check
+ * hasStylisticDepartures() applied there, on the candidate paths into the
+ * arsis loci of the built graph, sampled from SEED.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class Cpt2CfPitchSpaceBenchmark {
+
+  public static final int SAMPLES = 1024;
+
+  private static final MethodHandle HAS_STYLISTIC_DEPARTURES = findHasStylisticDepartures();
+
+  @Param({"1", "11", "19"})
+  public int cf_number;
+
+  @Param
+  public Cpt2CfGraphMode mode;
+
+  private CptCantusFirmus cf;
+  private Cpt2CfPitchSpace y;
+  private CptPitchPath[] paths;
+  private Cpt2Locus[] loci;
+
+  private static MethodHandle findHasStylisticDepartures() {
+
+    try {
+      return MethodHandles.privateLookupIn(Cpt2CfPitchSpace.class, MethodHandles.lookup())
+              .findVirtual(Cpt2CfPitchSpace.class, "hasStylisticDepartures",
+                      MethodType.methodType(boolean.class, CptPitchPath.class, Cpt2Locus.class));
+    } catch (ReflectiveOperationException ex) {
+      throw new ExceptionInInitializerError(ex);
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    Fixtures.seed();
+    cf = Fixtures.jeppesen(cf_number);
+    y = Cpt2CfPitchSpace.getInstance(cf, true, true, true, mode);
+    var candidates = y.getSortedLoci().stream()
+            .filter(locus -> locus.bar() > 0 && locus.portion().equals(ARSIS))
+            .filter(locus -> Objects.nonNull(y.getLocus(locus.getPrevious())))
+            .flatMap(locus -> y.getLocus(locus.getPrevious()).stream()
+            .flatMap(previous -> y.getY_cpt().queryByVertex(previous.getTo()).stream())
+            .map(path -> Map.entry(path, locus)))
+            .sorted(Comparator.comparing((Entry<CptPitchPath, Cpt2Locus> e) -> e.getValue())
+                    .thenComparing(e -> e.getKey().toString()))
+            .toList();
+    paths = new CptPitchPath[SAMPLES];
+    loci = new Cpt2Locus[SAMPLES];
+    for (int i = 0; i < SAMPLES; i++) {
+      var sample = candidates.get(StandardParameters.getRandom().nextInt(candidates.size()));
+      paths[i] = sample.getKey();
+      loci[i] = sample.getValue();
+    }
+  }
+
+  @Benchmark
+  public Cpt2CfPitchSpace init_graph() {
+
+    var graph = new Cpt2CfPitchSpace(cf, true, true, true);
+    graph.modifyBaseGraph(mode);
+    graph.init_graph();
+    return graph;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SAMPLES)
+  public int hasStylisticDepartures() throws Throwable {
+
+    var count = 0;
+    for (int i = 0; i < SAMPLES; i++) {
+      if ((boolean) HAS_STYLISTIC_DEPARTURES.invokeExact(y, paths[i], loci[i])) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.benchmarks;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+import art.cctcc.music.cpt.framework.CptTrace;
+import art.cctcc.music.composer.cpts2.framework.Cpt2Thread;
+import art.cctcc.music.composer.cpts2.graphs.x.Cpt2MusicMove;
+import art.cctcc.music.composer.cpts2.graphs.x.Cpt2MusicSpace;
+import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfGraphMode;
+import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfPitchSpace;
+import art.cctcc.music.composer.cpts2.model.Cpt2Locus;
+import static art.cctcc.music.composer.cpts2.utils.Constants.*;
+
+/**
+ * Cpt2Thread.nav_y() along all loci of one counterpoint, on graph y trained
+ * by a population of counterpoints from SEED. The thoughts of graph x are
+ * drawn beforehand and taken in turn, and no pheromone is deposited, so that
+ * every operation walks the same graphs. One operation is one counterpoint.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class Cpt2ThreadBenchmark {
+
+  public static final int X_MOVES = 64;
+
+  @Param({"1", "11", "19"})
+  public int cf_number;
+
+  @Param
+  public Cpt2CfGraphMode mode;
+
+  private Cpt2CfPitchSpace y;
+  private Cpt2Locus[] loci;
+  private Cpt2MusicMove[] x_moves;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    Fixtures.seed();
+    var cf = Fixtures.jeppesen(cf_number);
+    y = Cpt2CfPitchSpace.getInstance(cf, true, true, true, mode);
+    var x = new Cpt2MusicSpace();
+    x.init_graph();
+    Fixtures.compose(x, y, CPT_COMPOSING_POPULATION);
+    loci = y.getSortedLoci(1).toArray(Cpt2Locus[]::new);
+    x_moves = Stream.generate(() -> {
+      var move0 = x.getMove(x.getStart(), X_EXPLORE_CHANCE);
+      var move1 = x.getMove(move0.getSelected().getTo(), X_EXPLORE_CHANCE);
+      return new Cpt2MusicMove(move0, move1);
+    }).filter(move -> Objects.nonNull(move.getMusicThought()))
+            .limit(X_MOVES)
+            .toArray(Cpt2MusicMove[]::new);
+  }
+
+  @Benchmark
+  public Cpt2Thread nav_y() {
+
+    var cf = y.getCf();
+    var thread = new Cpt2Thread("Cpt-" + cf.getId(), cf, y.getStart(),
+            true, true, true);
+    for (var locus : loci) {
+      var x_move = x_moves[next];
+      next = next + 1 == X_MOVES ? 0 : next + 1;
+      var y_move = thread.nav_y(locus, y, x_move.getPredicate(thread), 0.0);
+      thread.setCurrentTrace(new CptTrace(x_move, y_move));
+    }
+    return thread;
+  }
+}
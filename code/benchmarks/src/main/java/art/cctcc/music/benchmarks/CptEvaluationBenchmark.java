@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import art.cctcc.music.cpt.framework.CptComposer;
+import art.cctcc.music.cpt.framework.CptEvaluation;
+import art.cctcc.music.cpt.framework.CptThread;
+
+/**
+ * The fitness of a first species counterpoint by CptEvaluation, in the
+ * traditional or the chromatic evaluation, on the population a CptComposer
+ * develops from SEED. One operation is one evaluation; the counterpoints are
+ * taken in turn.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CptEvaluationBenchmark {
+
+  @Param({"1", "11", "19"})
+  public int cf_number;
+
+  @Param({"false", "true"})
+  public boolean chromatic;
+
+  private CptThread[] threads;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    Fixtures.seed();
+    var cf = Fixtures.jeppesen(cf_number);
+    var composer = CptComposer.getInstance("Cpt-" + cf.getId(), cf, true);
+    composer.setChromatic(chromatic);
+    composer.init_graphs();
+    composer.init_population();
+    composer.navigate();
+    threads = composer.getAnts().toArray(CptThread[]::new);
+  }
+
+  @Benchmark
+  public double get() {
+
+    next = next + 1 == threads.length ? 0 : next + 1;
+    return CptEvaluation.getInstance(threads[next]).get();
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import tech.metacontext.ocnhfa.composer.cf.model.devices.CantusFirmus;
+import tech.metacontext.ocnhfa.composer.cf.model.enums.EcclesiasticalMode;
+import tech.metacontext.ocnhfa.composer.cf.model.enums.Pitch;
+import art.cctcc.music.cpt.model.CptCantusFirmus;
+import art.cctcc.music.utils.JeppesenCF;
+import art.cctcc.music.composer.cpts2.framework.Cpt2Thread;
+import art.cctcc.music.composer.cpts2.graphs.x.Cpt2MusicSpace;
+import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfPitchSpace;
+import static art.cctcc.music.composer.cpts2.utils.Constants.*;
+
+/**
+ * Fixed inputs of the benchmarks: the Jeppesen cantus firmi, and graphs and
+ * counterpoints developed on them from SEED, so that every run and every
+ * release measures the same work.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Fixtures {
+
+  public static final long SEED = 2021L;
+
+  private static final Set<String> PITCHES = Arrays.stream(Pitch.values())
+          .map(Pitch::name)
+          .collect(Collectors.toSet());
+
+  /**
+   * Reset the shared random generator to SEED.
+   */
+  public static void seed() {
+
+    StandardParameters.initialization(SEED);
+  }
+
+  /**
+   * @param number Jeppesen cantus firmus number (1-22).
+   * @return the cantus firmus.
+   */
+  public static CptCantusFirmus jeppesen(int number) {
+
+    return Objects.requireNonNull(JeppesenCF.getInstance().getCFByNumber(number),
+            () -> "No Jeppesen cantus firmus No." + number);
+  }
+
+  /**
+   * Jeppesen cantus firmi as legacy CantusFirmus objects of cf.composer, the
+   * ones with pitches out of its gamut (No.4, with B flat) left out.
+   *
+   * @return cantus firmi in order of number.
+   */
+  public static List<CantusFirmus> jeppesenLegacy() {
+
+    return IntStream.rangeClosed(1, 22)
+            .mapToObj(Fixtures::jeppesen)
+            .filter(cf -> cf.getMelody().stream().allMatch(note -> PITCHES.contains(note.getName())))
+            .map(cf -> {
+              var melody = cf.getMelody();
+              var legacy = new CantusFirmus(EcclesiasticalMode.valueOf(cf.getMode().name()),
+                      Pitch.valueOf(melody.get(0).getName()).getNode());
+              melody.stream().skip(1)
+                      .map(note -> Pitch.valueOf(note.getName()).getNode())
+                      .forEach(legacy::add);
+              return legacy;
+            }).toList();
+  }
+
+  /**
+   * Develop counterpoints as Cpt2Composer does, depositing pheromone on x
+   * and y as they go.
+   *
+   * @param x graph x, initialized.
+   * @param y graph y, built.
+   * @param number number of counterpoints.
+   * @return completed threads.
+   */
+  public static List<Cpt2Thread> compose(Cpt2MusicSpace x, Cpt2CfPitchSpace y, int number) {
+
+    var cpt = y.getCf();
+    return Stream.generate(() -> {
+      var thread = new Cpt2Thread("Cpt-" + cpt.getId(), cpt, y.getStart(),
+              y.isTreble(), y.isBeginWithRest(), y.isWholeNoteCadence());
+      thread.develop(x, y, PHEROMONE_DEPOSIT_UNIT, PHEROMONE_DEPOSIT_UNIT);
+      return thread;
+    }).limit(number).toList();
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.benchmarks;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.FractionMode;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import tech.metacontext.ocnhfa.composer.cf.model.y.PitchNode;
+import tech.metacontext.ocnhfa.composer.cf.model.y.PitchPath;
+import tech.metacontext.ocnhfa.composer.cf.model.y.PitchSpace;
+
+/**
+ * StandardGraph.selectByChance() on the outgoing paths of each pitch of
+ * graph y of cf.composer, with pheromone trails laid from SEED. One operation
+ * is one selection; the pitches are taken in turn.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SelectByChanceBenchmark {
+
+  @Param
+  public FractionMode fraction_mode;
+
+  private PitchSpace y;
+  private List<List<PitchPath>> paths;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+
+    Fixtures.seed();
+    y = new PitchSpace();
+    y.setFraction_mode(fraction_mode);
+    y.init_graph();
+    y.getEdges().forEach(path -> path.addPheromoneDeposit(StandardParameters.getRandom().nextDouble()));
+    paths = y.getVertices().stream()
+            .sorted(Comparator.comparing(PitchNode::getPitch))
+            .map(y::queryByVertex)
+            .filter(list -> !list.isEmpty())
+            .toList();
+  }
+
+  @Benchmark
+  public PitchPath selectByChance() {
+
+    next = next + 1 == paths.size() ? 0 : next + 1;
+    return y.selectByChance(paths.get(next));
+  }
+}
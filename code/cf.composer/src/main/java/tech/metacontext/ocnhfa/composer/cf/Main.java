@@ -16,6 +16,7 @@
 package tech.metacontext.ocnhfa.composer.cf;
 
 import java.util.Map;
+import java.util.logging.Level;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.FractionMode;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.initialization;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.*;
@@ -74,10 +75,16 @@ public class Main {
 
     var save = getParam(params, "SAVE", false, Boolean::valueOf);
 
+    var lockstep = getParam(params, "LOCKSTEP", false, Boolean::valueOf);
+
+    var log_level = getParam(params, "LOG_LEVEL", DEFAULT_LOG_LEVEL, Level::parse);
+
     var studio = new Studio(type)
             .setThread_number(thread_number)
             .setTarget_size(target_size)
-            .setFraction_mode(fraction_mode);
+            .setFraction_mode(fraction_mode)
+            .setLockstep(lockstep)
+            .setLog_level(log_level);
 
     switch (type) {
       case DEVELOP_STANDARD -> {
@@ -118,6 +125,8 @@ public class Main {
           FRACTION_MODE=Power | Coefficient | Power_Multiply
           CLEF=Treble | Bass | Soprano | Tenor | Alto (auto select by range if not specified)
           SAVE=(Boolean) Specify if save score, FALSE by default)
+          LOCKSTEP=(Boolean) Specify if music threads are navigated in lockstep, FALSE by default)
+          LOG_LEVEL=INFO* | FINE (trace navigation) | FINER (trace each thread at each step)
           %s
           When TYPE=DEVELOP_STANDARD
           COMPOSER_NUMBER=(Integer) number of composer(s)
@@ -15,10 +15,8 @@
  */
 package tech.metacontext.ocnhfa.composer.cf.ec;
 
-import java.util.AbstractMap.SimpleEntry;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import static java.util.function.Predicate.not;
@@ -29,6 +27,7 @@ import tech.metacontext.ocnhfa.composer.cf.ec.function.Mutator;
 import tech.metacontext.ocnhfa.composer.cf.ec.function.Recombinator;
 import tech.metacontext.ocnhfa.composer.cf.model.Composer;
 import tech.metacontext.ocnhfa.composer.cf.model.MusicThread;
+import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.getRandom;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.CF_LENGTH_LOWER;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.SELECT_DIV;
 import tech.metacontext.ocnhfa.composer.cf.model.constraints.MusicThreadConstraint;
@@ -43,9 +42,11 @@ public class ECComposer extends Composer {
   private Evaluator<MusicThread> eval_function;
   private Recombinator<MusicThread> recombinator;
   private Mutator<MusicThread> mutator;
-  private List<Entry<MusicThread, Double>> music_threads;
+  private final ECPopulation music_threads;
+  private ECParentSupply parents;
 
   private int eval_count;
+  private int offspring_count, duplicate_count;
   private boolean completed;
 
   public static synchronized ECComposer getInstance(
@@ -60,7 +61,7 @@ public class ECComposer extends Composer {
           Recombinator<MusicThread> recombinator,
           Mutator<MusicThread> mutator) {
 
-    this.music_threads = new ArrayList<>();
+    this.music_threads = new ECPopulation();
     this.eval_function = eval_function;
     this.recombinator = recombinator;
     this.mutator = mutator;
@@ -107,7 +108,7 @@ public class ECComposer extends Composer {
 
   public void addThread(MusicThread mt) {
 
-    this.music_threads.add(new SimpleEntry(mt, -1.0));
+    this.music_threads.add(mt, -1.0);
   }
 
   public void completeAll() {
@@ -124,17 +125,15 @@ public class ECComposer extends Composer {
 
     var count = this.getNavigation_count() + 1;
     this.setNavigation_count(count);
-    this.logger.log(Level.INFO, "*** navigating, navigation_count = {0}", count);
+    this.logger.log(Level.FINE, "*** navigating, navigation_count = {0}", count);
     this.setToCadence(count > CF_LENGTH_LOWER);
 
     this.music_threads.stream()
             .map(Entry::getKey)
             .filter(not(MusicThread::isCompleted))
             .forEach(thread -> {
-              do {
-                if (nav_y(thread, nav_x(thread))) break;
-              } while (true);
-              this.logger.log(Level.INFO, thread.toString());
+              nav_y(thread, nav_x(thread));
+              this.logger.log(Level.FINER, thread::toString);
             });
     evaporate();
     System.out.print(".");
@@ -148,8 +147,8 @@ public class ECComposer extends Composer {
 
   public void removeLowest() {
 
-    this.music_threads = this.music_threads
-            .subList(0, this.getThread_number() - this.getThread_number() / SELECT_DIV);
+    this.music_threads
+            .truncate(this.getThread_number() - this.getThread_number() / SELECT_DIV);
   }
 
   public MusicThread getNewThread() {
@@ -159,14 +158,50 @@ public class ECComposer extends Composer {
     var thread = new MusicThread(this.getEcclesiastical_mode(), null,
             this.getX().getStart(), this.logger);
     do {
-      if (nav_y(thread, nav_x(thread))) {
-        nav_count++;
-        this.setToCadence(nav_count > CF_LENGTH_LOWER);
-      }
+      nav_y(thread, nav_x(thread));
+      nav_count++;
+      this.setToCadence(nav_count > CF_LENGTH_LOWER);
     } while (!thread.isCompleted());
     return thread;
   }
 
+  /**
+   * Fork of this composer on forks of its graphs, depositing no pheromone, to
+   * walk fresh parents on.
+   *
+   * @return walker.
+   */
+  ECComposer walker() {
+
+    var walker = new ECComposer(eval_function, recombinator, mutator);
+    this.forkInto(walker);
+    walker.x_pheromone_deposit_amount = 0.0;
+    walker.y_pheromone_deposit_amount = 0.0;
+    return walker;
+  }
+
+  /**
+   * Start walking fresh parents for crossover in the background, on a
+   * snapshot of the current graphs, for the generation to come. Parents
+   * walked ahead no longer deposit pheromone on the graphs of this composer.
+   */
+  public void supplyParents() {
+
+    this.closeParents();
+    this.parents = new ECParentSupply(this.walker(), getRandom().nextLong());
+  }
+
+  /**
+   * Stop walking fresh parents, which are then walked by crossover itself.
+   */
+  public void closeParents() {
+
+    if (Objects.nonNull(this.parents)) {
+      this.parents.close();
+      this.parents = null;
+    }
+  }
+
   /**
    * Crossover with a newly generated parent 2.
    *
@@ -176,12 +211,10 @@ public class ECComposer extends Composer {
   public boolean crossover(int i) {
 
     var p1 = this.music_threads.get(i).getKey();
-    var p2 = this.getNewThread();
+    var p2 = Objects.isNull(this.parents) ? this.getNewThread() : this.parents.take();
     var c = this.recombinator.recombine(new Pair(p1, p2));
 
-    if (Objects.isNull(c)
-            || this.music_threads.stream()
-                    .anyMatch(e -> e.getKey().equals(c))) {
+    if (Objects.isNull(c) || isDuplicate(c)) {
       return false;
     }
     c.setCompleted(true);
@@ -200,9 +233,7 @@ public class ECComposer extends Composer {
     var p0 = this.music_threads.get(i).getKey();
     var pm = this.mutator.mutate(p0);
 
-    if (Objects.isNull(pm)
-            || this.music_threads.stream()
-                    .anyMatch(e -> e.getKey().equals(pm))) {
+    if (Objects.isNull(pm) || isDuplicate(pm)) {
       return false;
     }
     pm.setCompleted(true);
@@ -210,12 +241,42 @@ public class ECComposer extends Composer {
     return true;
   }
 
+  private boolean isDuplicate(MusicThread offspring) {
+
+    this.offspring_count++;
+    if (this.music_threads.contains(offspring)) {
+      this.duplicate_count++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Rate of the offspring bred since the last call which duplicated a member
+   * of the population, and were dropped.
+   *
+   * @return duplicate rate, NaN if no offspring was bred.
+   */
+  public double takeDuplicateRate() {
+
+    var rate = this.offspring_count == 0 ? Double.NaN
+            : (double) this.duplicate_count / this.offspring_count;
+    this.offspring_count = 0;
+    this.duplicate_count = 0;
+    return rate;
+  }
+
+  /**
+   * @return scores of the population, in order.
+   */
+  public double[] getScores() {
+
+    return this.music_threads.getScores();
+  }
+
   public void eval_sort() {
 
-    this.music_threads.stream()
-            .filter(e -> e.getValue() < 0)
-            .forEach(this::evalEntry);
-    this.music_threads.sort(Entry.comparingByValue(Comparator.reverseOrder()));
+    this.eval_count += this.music_threads.sort(this::eval);
   }
 
   public Evaluator<MusicThread> getEval_function() {
@@ -255,7 +316,11 @@ public class ECComposer extends Composer {
 
   public void setECMusicThreads(List<Entry<MusicThread, Double>> music_threads) {
 
-    this.music_threads = music_threads;
+    var entries = music_threads.stream()
+            .map(e -> Map.entry(e.getKey(), e.getValue()))
+            .toList();
+    this.music_threads.clear();
+    entries.forEach(e -> this.music_threads.add(e.getKey(), e.getValue()));
   }
 
   @Override
@@ -283,9 +348,13 @@ public class ECComposer extends Composer {
 
   public void evalEntry(Entry<MusicThread, Double> e) {
 
-    var thread = e.getKey();
-    e.setValue(new MusicThreadConstraint().test(thread)
-            ? this.eval_function.apply(thread) : 0.0);
+    e.setValue(eval(e.getKey()));
     ++eval_count;
   }
+
+  private double eval(MusicThread thread) {
+
+    return new MusicThreadConstraint().test(thread)
+            ? this.eval_function.apply(thread) : 0.0;
+  }
 }
@@ -16,6 +16,7 @@
 package tech.metacontext.ocnhfa.composer.cf.ec;
 
 import java.util.Map;
+import java.util.logging.Level;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.initialization;
 import tech.metacontext.ocnhfa.composer.cf.ec.function.Evaluator;
@@ -40,6 +41,7 @@ import tech.metacontext.ocnhfa.composer.cf.utils.io.musicxml.Clef;
  * FRACTION_MODE=Power | Coefficient | Power_Multiply
  * CLEF=Treble | Bass | Soprano | Tenor | Alto (auto select by range if not specified)
  * SAVE=Specify if save score (boolean, false by default)
+ * LOG_LEVEL=INFO | FINE | FINER (level of the composer logs, INFO by default)
  *
  * PROJECT=specified project folder as preset (String)
  * FOLDER=a prefix for sub-folders in the specified project folder as preset (String)
@@ -84,6 +86,7 @@ public class ECMain {
                     FRACTION_MODE=Power | Coefficient | Power_Multiply
                     CLEF=Treble | Bass | Soprano | Tenor | Alto (auto select by range if not specified)
                     SAVE=(Boolean) Specify if save score, FALSE by default)
+                    LOG_LEVEL=INFO* | FINE (trace navigation) | FINER (trace each thread at each step)
                     %s
                     When TASK=COMPOSE | COMPOSE_STATIC
                     PROJECT=(String) specified project folder as preset 
@@ -124,6 +127,8 @@ public class ECMain {
 
     var save = getParam(params, "SAVE", false, Boolean::valueOf);
 
+    var log_level = getParam(params, "LOG_LEVEL", DEFAULT_LOG_LEVEL, Level::parse);
+
     var generation = getParam(params, "GENERATION",
             DEFAULT_GENERATION, Integer::valueOf);
 
@@ -141,6 +146,7 @@ public class ECMain {
     ec_studio.setThread_number(thread_number)
             .setTarget_size(target_size)
             .setFraction_mode(fraction_mode)
+            .setLog_level(log_level)
             .setModel(project, folder, style);
 
     ec_studio.run();
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.ec;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.PARENT_SUPPLY_CAPACITY;
+import tech.metacontext.ocnhfa.composer.cf.model.MusicThread;
+
+/**
+ * Supply of fresh parents for the crossovers of one generation of an
+ * ECComposer, walked ahead by background producers.
+ * <p>
+ * Parents are walked on a walker, a fork of the composer taken when the
+ * supply starts and depositing no pheromone, so that they are walked on a
+ * snapshot of the graphs the composer has at the start of the generation.
+ * The n-th parent is always walked on a fork of its own of the walker, with
+ * a random generator seeded from the seed of the supply and n, so that the
+ * parents are the same whichever thread walks them. Parents are claimed in
+ * order, at most PARENT_SUPPLY_CAPACITY ahead of the ones taken, and each
+ * claimed parent is one task of the shared producers, so that supplies of
+ * concurrent composers take turns; a parent taken before its task starts is
+ * walked by the caller instead of waited for.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class ECParentSupply implements AutoCloseable {
+
+  private static final int PRODUCERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+  private static final AtomicInteger count = new AtomicInteger();
+  private static final ExecutorService pool = Executors.newFixedThreadPool(PRODUCERS, runnable -> {
+    var thread = new Thread(runnable, "ec-parent-" + count.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final ECComposer walker;
+  private final long seed;
+  /**
+   * Parents claimed and not yet taken, by number; guarded by this supply,
+   * as are claimed, taken and closed.
+   */
+  private final Map<Integer, FutureTask<MusicThread>> parents = new HashMap<>();
+  private int claimed;
+  private int taken;
+  private boolean closed;
+
+  /**
+   * Start producing parents.
+   *
+   * @param walker fork of the composer to walk parents on, depositing no
+   * pheromone.
+   * @param seed seed of the supply.
+   */
+  public ECParentSupply(ECComposer walker, long seed) {
+
+    this.walker = walker;
+    this.seed = seed;
+    synchronized (this) {
+      claim();
+    }
+  }
+
+  /**
+   * Claim parents up to PARENT_SUPPLY_CAPACITY ahead of the ones taken, and
+   * submit them to the producers. Called holding the monitor of this supply.
+   */
+  private void claim() {
+
+    while (!closed && claimed - taken < PARENT_SUPPLY_CAPACITY) {
+      var parent = walk(claimed);
+      parents.put(claimed++, parent);
+      pool.execute(parent);
+    }
+  }
+
+  private FutureTask<MusicThread> walk(int n) {
+
+    return new FutureTask<>(() -> {
+      var fork = walker.walker();
+      var random = new Random(StandardParameters.mixSeed(seed, n + 1));
+      return StandardParameters.withScopedRandom(random, fork::getNewThread);
+    });
+  }
+
+  /**
+   * Take the next parent, walking it at once if no producer has started it.
+   *
+   * @return fresh parent.
+   */
+  public MusicThread take() {
+
+    FutureTask<MusicThread> parent;
+    synchronized (this) {
+      parent = parents.remove(taken);
+      if (Objects.isNull(parent)) {
+        parent = walk(taken);
+      }
+      taken++;
+      claim();
+    }
+    // a no-op if a producer has started it already
+    parent.run();
+    try {
+      return parent.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(ex);
+    } catch (ExecutionException ex) {
+      throw new CompletionException(ex.getCause());
+    }
+  }
+
+  /**
+   * Stop the producers; parents not yet started are cancelled, and parents
+   * not taken are dropped.
+   */
+  @Override
+  public void close() {
+
+    synchronized (this) {
+      closed = true;
+      parents.values().forEach(parent -> parent.cancel(false));
+      parents.clear();
+    }
+  }
+}
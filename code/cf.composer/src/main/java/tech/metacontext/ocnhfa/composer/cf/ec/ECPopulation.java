@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.ec;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+import tech.metacontext.ocnhfa.composer.cf.model.MusicThread;
+
+/**
+ * Steady-state population of an ECComposer, as a list of music threads and
+ * their scores, -1.0 for the ones not evaluated yet.
+ * <p>
+ * Entries are kept in flat arrays: a prefix sorted by score, the best first,
+ * followed by the entries added since the last sort. Truncation only moves
+ * the end of the list; sorting evaluates and sorts the added entries only
+ * and merges them into the prefix, with the same result as a stable sort of
+ * the whole list. Duplicates are found through a map of each melody to the
+ * first position it is known at, checked on lookup, so that entries cut off
+ * need no removal from it.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class ECPopulation extends AbstractList<Entry<MusicThread, Double>> {
+
+  private MusicThread[] threads;
+  private double[] scores;
+  private int size;
+  private int sorted;
+  private final Map<MusicThread, Integer> positions;
+
+  public ECPopulation() {
+
+    this.threads = new MusicThread[16];
+    this.scores = new double[16];
+    this.positions = new HashMap<>();
+  }
+
+  /**
+   * Append a music thread.
+   *
+   * @param thread music thread.
+   * @param score score of the thread, or -1.0 if not evaluated yet.
+   */
+  public void add(MusicThread thread, double score) {
+
+    if (size == threads.length) {
+      threads = Arrays.copyOf(threads, size * 2);
+      scores = Arrays.copyOf(scores, size * 2);
+    }
+    threads[size] = thread;
+    scores[size] = score;
+    if (!contains(thread)) {
+      positions.put(thread, size);
+    }
+    size++;
+  }
+
+  /**
+   * @param thread music thread.
+   * @return if a thread of the same melody is in the population.
+   */
+  public boolean contains(MusicThread thread) {
+
+    var position = positions.get(thread);
+    return Objects.nonNull(position) && position < size
+            && threads[position].equals(thread);
+  }
+
+  /**
+   * Keep the first entries only.
+   *
+   * @param size number of entries kept.
+   */
+  public void truncate(int size) {
+
+    if (size < this.size) {
+      Arrays.fill(threads, size, this.size, null);
+      this.size = size;
+      this.sorted = Math.min(this.sorted, size);
+    }
+  }
+
+  /**
+   * Evaluate the entries not evaluated yet and sort the population by score,
+   * the best first.
+   * <p>
+   * Evaluations are fanned out over the common fork-join pool, each score
+   * written at the position of its thread, so the evaluator must be
+   * thread-safe; the order of the result does not depend on the order the
+   * evaluations finish in, ties being kept in the order of the positions.
+   *
+   * @param evaluator evaluation of a music thread.
+   * @return number of evaluations applied.
+   */
+  public int sort(ToDoubleFunction<MusicThread> evaluator) {
+
+    var pending = IntStream.range(sorted, size)
+            .filter(i -> scores[i] < 0)
+            .toArray();
+    Arrays.stream(pending).parallel()
+            .forEach(i -> scores[i] = evaluator.applyAsDouble(threads[i]));
+    if (sorted < size) {
+      merge();
+    }
+    return pending.length;
+  }
+
+  private void merge() {
+
+    var added = IntStream.range(sorted, size).boxed()
+            .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+            .mapToInt(Integer::intValue)
+            .toArray();
+    var merged_threads = new MusicThread[threads.length];
+    var merged_scores = new double[scores.length];
+    int i = 0, j = 0, k = 0;
+    while (i < sorted || j < added.length) {
+      // ties go to the sorted prefix, as in a stable sort
+      var from = j == added.length
+              || i < sorted && Double.compare(scores[i], scores[added[j]]) >= 0 ? i++ : added[j++];
+      merged_threads[k] = threads[from];
+      merged_scores[k++] = scores[from];
+    }
+    threads = merged_threads;
+    scores = merged_scores;
+    sorted = size;
+    positions.clear();
+    for (i = size - 1; i >= 0; i--) {
+      positions.put(threads[i], i);
+    }
+  }
+
+  /**
+   * @return scores of the entries, in order, as a copy.
+   */
+  public double[] getScores() {
+
+    return Arrays.copyOf(scores, size);
+  }
+
+  @Override
+  public Entry<MusicThread, Double> get(int index) {
+
+    Objects.checkIndex(index, size);
+    return new Entry<>() {
+
+      @Override
+      public MusicThread getKey() {
+
+        return threads[index];
+      }
+
+      @Override
+      public Double getValue() {
+
+        return scores[index];
+      }
+
+      @Override
+      public Double setValue(Double value) {
+
+        var previous = scores[index];
+        scores[index] = value;
+        return previous;
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+
+    return size;
+  }
+
+  @Override
+  public void clear() {
+
+    Arrays.fill(threads, 0, size, null);
+    size = 0;
+    sorted = 0;
+    positions.clear();
+  }
+}
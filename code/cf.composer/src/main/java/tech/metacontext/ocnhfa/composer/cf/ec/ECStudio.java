@@ -16,15 +16,17 @@
 package tech.metacontext.ocnhfa.composer.cf.ec;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import static java.util.function.Predicate.not;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -39,8 +41,7 @@ import tech.metacontext.ocnhfa.composer.cf.model.Parameters;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.*;
 import tech.metacontext.ocnhfa.composer.cf.model.Studio;
 import tech.metacontext.ocnhfa.composer.cf.model.enums.ComposerType;
-import tech.metacontext.ocnhfa.composer.cf.utils.Pair;
-import tech.metacontext.ocnhfa.composer.cf.utils.io.MusicReader;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink;
 import tech.metacontext.ocnhfa.composer.cf.utils.io.MusicWriter;
 import tech.metacontext.ocnhfa.composer.cf.utils.io.musicxml.CFScore;
 import tech.metacontext.ocnhfa.composer.cf.utils.io.musicxml.Clef;
@@ -60,8 +61,8 @@ public class ECStudio extends Studio {
   private Mutator<MusicThread> mutate;
   private File project_dir = PROJECT_DIR;
   private File base_dir;
-  private List<Pair<Double>[]> chart_data;
-  private Map<String, List<Double[]>> score_data;
+  private Map<String, EvolutionTelemetry> telemetry;
+  private long mark;
 
   public ECStudio(
           Evaluator<MusicThread> eval_function,
@@ -108,14 +109,14 @@ public class ECStudio extends Studio {
             ? parameters[0] : Parameters.DEFAULT_CROSSOVER_RATE;
     this.mutation_rate = parameters.length == 2
             ? parameters[1] : Parameters.DEFAULT_MUTATION_RATE;
-    this.chart_data = new ArrayList<>();
-    this.score_data = new HashMap<>();
+    this.telemetry = new TreeMap<>();
   }
 
   @Override
   public void run() {
 
     var date_time = LocalDateTime.now();
+    this.mark = System.nanoTime();
 
     assert this.getComposer_type() == ComposerType.COMPOSE
             || this.getComposer_type() == ComposerType.COMPOSE_STATIC :
@@ -144,15 +145,18 @@ public class ECStudio extends Studio {
       }
       // removeLowest if g > 0
       // completeAll and eval_sort
-      this.composers.stream()
+      var running = this.composers.stream()
               .filter(not(ECComposer::isCompleted))
-              .forEach(c -> {
-                System.out.printf("\nProcessing %s ", c.getId());
-                c.init_population();
-                c.completeAll();
-              });
+              .toList();
+      System.out.printf("\nProcessing %s ", running.stream()
+              .map(ECComposer::getId)
+              .collect(Collectors.joining(", ")));
+      runComposers(running, c -> {
+        c.init_population();
+        c.completeAll();
+      });
       System.out.println();
-      chart_data.add(dumpAll(true));
+      dumpAll(true);
 
       this.composers.stream()
               .filter(not(ECComposer::isCompleted))
@@ -163,10 +167,10 @@ public class ECStudio extends Studio {
       System.out.printf("\n%s\nGeneration %d\n%s\n", LINE, ++generation_count, LINE);
 
       // Mutation / Crossover
-      this.composers.stream()
-              .filter(not(ECComposer::isCompleted))
-              .peek(ECComposer::removeLowest)
-              .forEach(this::ec_operation);
+      runComposers(running, c -> {
+        c.removeLowest();
+        this.ec_operation(c);
+      });
       System.out.println();
 
       this.composers.stream()
@@ -175,7 +179,7 @@ public class ECStudio extends Studio {
               .forEach(System.out::println);
     }
 
-    chart_data.add(dumpAll(true));
+    dumpAll(true);
 
     this.setQualified_threads(this.composers.stream()
             .collect(Collectors.toMap(
@@ -193,26 +197,44 @@ public class ECStudio extends Studio {
     this.composers.stream()
             .map(c -> String.format("Evalutations applied for %s: %d", c.getId(), c.getEvalCount()))
             .forEach(System.out::println);
+    this.telemetry.forEach((id, t) -> System.out.printf("%s\nComposer: %s\n%s", LINE, id, t.report()));
   }
 
+  /**
+   * Mutate and crossover the selected threads of a composer, printing the
+   * children produced at once, so that composers may run concurrently.
+   *
+   * @param c composer.
+   */
   public void ec_operation(ECComposer c) {
 
-    System.out.printf("\nMutate/Crossover %s ", c.getId());
     var thread_num = this.getThread_number() / SELECT_DIV;
+    var produced = new StringBuilder();
+    c.supplyParents();
+    try {
+      ec_operation(c, thread_num, produced);
+    } finally {
+      c.closeParents();
+    }
+    System.out.printf("\nMutate/Crossover %s %s", c.getId(), produced);
+  }
+
+  private void ec_operation(ECComposer c, int thread_num, StringBuilder produced) {
+
     IntStream.range(0, thread_num).forEach(i -> {
       if (this.threshold > 0.0) {
         var c_rate = this.crossover_rate / (this.crossover_rate + this.mutation_rate);
         if (getRandom().nextDouble() < c_rate) {
-          System.out.print(c.crossover(i) ? "+" : "");
+          produced.append(c.crossover(i) ? "+" : "");
         } else {
-          System.out.print(c.mutation(i) ? "." : "");
+          produced.append(c.mutation(i) ? "." : "");
         }
       } else {
         switch (ECOperation.get()) {
           case crossover ->
-            System.out.print(getRandom().nextDouble() < crossover_rate && c.crossover(i) ? "+" : "");
+            produced.append(getRandom().nextDouble() < crossover_rate && c.crossover(i) ? "+" : "");
           case mutation ->
-            System.out.print(getRandom().nextDouble() < mutation_rate && c.mutation(i) ? "." : "");
+            produced.append(getRandom().nextDouble() < mutation_rate && c.mutation(i) ? "." : "");
         }
       }
     });
@@ -229,36 +251,45 @@ public class ECStudio extends Studio {
       throw new NoQualifiedThreadsSelectedException();
     }
     System.out.println("Saving Composer and Cantus Firmi ... ");
-    this.getQualifiedThreads().entrySet().stream().forEach(e -> {
-      var id = e.getKey().getId();
-
-      var composer_path = MusicWriter.saveComposer(base_dir.getPath(), e.getKey());
-      System.out.println(composer_path);
-
-      var cf_path = new File(composer_path, "cantus_firmus");
-      cf_path.mkdirs();
-      IntStream.range(0, this.getTarget_size())
-              .forEach(i -> {
-                var filename = new File(cf_path, "cantus_firmus_" + (i + 1) + ".xml");
-                var thread = e.getValue().get(i);
-                MusicWriter.saveRoute(filename, thread);
-              });
-
-      var score_filename = composers.indexOf(e.getKey()) + "_score.musicxml";
-      System.out.println("Saving Score ... " + score_filename);
-      var score = new CFScore(id, "EC-" + this.getModel());
-      IntStream.rangeClosed(1, this.getTarget_size())
-              .forEach(i -> {
-                var thread = e.getValue().get(i - 1);
-                var selected_clef = (clef == null)
-                        ? Clef.selector(thread.getCf().getMiddle())
-                        : clef;
-//                System.out.println("thread.getCf().getMiddle()=" + thread.getCf().getMiddle());
-//                System.out.println("selected_clef=" + selected_clef);
-                score.addMeasure(selected_clef, i, thread.getCf().getMelody());
-              });
-      score.writeMusicXML(new File(base_dir, score_filename));
-    });
+    try (var sink = ArtifactSink.of(base_dir.toPath())) {
+      for (var e : this.getQualifiedThreads().entrySet()) {
+        var id = e.getKey().getId();
+
+        var composer_path = MusicWriter.saveComposer(sink, base_dir.getPath(), e.getKey());
+        System.out.println(composer_path);
+
+        var data = this.telemetry.get(id);
+        if (Objects.nonNull(data)) {
+          sink.writeText(new File(composer_path, "ec_data.csv").toPath(), data::writeCsv);
+          sink.write(new File(composer_path, "ec_data.png").toPath(),
+                  out -> data.writeChart(out, "Composer " + id, 800, 600));
+        }
+
+        var cf_path = new File(composer_path, "cantus_firmus");
+        for (int i = 0; i < this.getTarget_size(); i++) {
+          var filename = new File(cf_path, "cantus_firmus_" + (i + 1) + ".xml");
+          var thread = e.getValue().get(i);
+          MusicWriter.saveRoute(sink, filename, thread);
+        }
+
+        var score_filename = composers.indexOf(e.getKey()) + "_score.musicxml";
+        System.out.println("Saving Score ... " + score_filename);
+        var score = new CFScore(id, "EC-" + this.getModel());
+        IntStream.rangeClosed(1, this.getTarget_size())
+                .forEach(i -> {
+                  var thread = e.getValue().get(i - 1);
+                  var selected_clef = (clef == null)
+                          ? Clef.selector(thread.getCf().getMiddle())
+                          : clef;
+//                  System.out.println("thread.getCf().getMiddle()=" + thread.getCf().getMiddle());
+//                  System.out.println("selected_clef=" + selected_clef);
+                  score.addMeasure(selected_clef, i, thread.getCf().getMelody());
+                });
+        sink.writeText(new File(base_dir, score_filename).toPath(), score::writeMusicXML);
+      }
+    } catch (IOException ex) {
+      Logger.getLogger(ECStudio.class.getName()).log(Level.SEVERE, null, ex);
+    }
   }
 
   private void preset_composers() {
@@ -270,8 +301,6 @@ public class ECStudio extends Studio {
     var projects = Arrays.stream(path.listFiles(File::isDirectory))
             .filter(file -> this.getFolder() == null || this.getFolder().equals(file.getName()))
             .sorted()
-            .map(MusicReader::getComposerXML)
-            .filter(Objects::nonNull)
             .collect(Collectors.toList());
     System.out.println(projects.size() + " folder(s) located.");
     this.setComposer_number(projects.size());
@@ -284,14 +313,24 @@ public class ECStudio extends Studio {
 
     this.composers = IntStream.range(0, this.getComposer_number())
             .mapToObj(i -> this.getProject_name() + "_" + i)
-            .map(id -> ECComposer.getInstance(eval_function, crossover, mutate).setLogger(id))
+            .map(id -> {
+              var composer = ECComposer.getInstance(eval_function, crossover, mutate).setLogger(id);
+              composer.setLog_level(this.getLog_level());
+              return composer;
+            })
             .collect(Collectors.toList());
   }
 
-  private Pair<Double>[] dumpAll(boolean listing) {
-
-    Pair<Double>[] result = new Pair[composers.size()];
+  /**
+   * Sort the populations of the composers still running, mark the ones
+   * reaching the threshold completed, and record their statistics since the
+   * last call.
+   *
+   * @param listing whether the target threads are printed.
+   */
+  private void dumpAll(boolean listing) {
 
+    var now = System.nanoTime();
     for (int i = 0; i < this.composers.size(); i++) {
       var c = this.composers.get(i);
       if (c.isCompleted()) {
@@ -300,21 +339,13 @@ public class ECStudio extends Studio {
       System.out.println("\nComposer id = " + c.getId());
 
       c.eval_sort();
-      var score = c.getECMusicThreads().stream()
-              .map(Entry::getValue)
-              .toArray(Double[]::new);
-      if (this.score_data.get(c.getId()) == null) {
-        this.score_data.put(c.getId(), new ArrayList<>());
-      }
-      this.score_data.get(c.getId()).add(score);
-
-      var total_average = Arrays.stream(score)
-              .limit(this.getThread_number())
-              .mapToDouble(v -> v)
+      var score = c.getScores();
+      var size = Math.min(score.length, this.getThread_number());
+      var total_average = Arrays.stream(score, 0, size)
               .average().getAsDouble();
 
       var target = Math.min(this.getTarget_size(), this.getThread_number());
-      var target_minimal = c.getECMusicThreads().get(target - 1).getValue();
+      var target_minimal = score[target - 1];
       if (threshold > 0.0 && target_minimal >= threshold) {
         c.setCompleted(true);
       }
@@ -323,7 +354,6 @@ public class ECStudio extends Studio {
         IntStream.iterate(0, Math::incrementExact)
                 .limit(target)
                 .forEach(j -> {
-                  assert c.getECMusicThreads().get(j).getValue().equals(score[j]);
                   System.out.printf("%d. %s score=%.2f\n", (j + 1),
                           c.getECMusicThreads().get(j).getKey().getCf(),
                           score[j]);
@@ -333,9 +363,14 @@ public class ECStudio extends Studio {
       System.out.println("Target Minimal = " + target_minimal);
       System.out.println("Population Average = " + total_average);
 
-      result[i] = new Pair(total_average, target_minimal);
+      this.telemetry.computeIfAbsent(c.getId(), id -> new EvolutionTelemetry())
+              .record(total_average, score[0], score[size - 1],
+                      EvolutionTelemetry.diversity(c.getECMusicThreads().subList(0, size).stream()
+                              .map(e -> e.getKey().getCf().getMelody())
+                              .toList()),
+                      c.takeDuplicateRate(), now - this.mark);
     }
-    return result;
+    this.mark = now;
   }
 
   public File getProject_dir() {
@@ -368,13 +403,11 @@ public class ECStudio extends Studio {
     return generation;
   }
 
-  public List<Pair<Double>[]> getChart_data() {
-
-    return chart_data;
-  }
-
-  public Map<String, List<Double[]>> getScore_data() {
+  /**
+   * @return statistics of the population by generation, by composer id.
+   */
+  public Map<String, EvolutionTelemetry> getTelemetry() {
 
-    return score_data;
+    return telemetry;
   }
 }
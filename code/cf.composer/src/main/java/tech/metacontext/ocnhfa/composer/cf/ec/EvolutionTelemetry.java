@@ -0,0 +1,314 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.ec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+
+/**
+ * Statistics of the population of an evolution, one row per generation, kept
+ * in primitive columns.
+ * <p>
+ * Recording only stores numbers; they are formatted when a report, a CSV
+ * file or a chart is made at the end. Rows may also be streamed as they are
+ * recorded, in the binary format of writeBinary(), so that a run stopped
+ * halfway still leaves its statistics. Charts are rendered to images without
+ * a window, so they may be made on headless machines.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class EvolutionTelemetry {
+
+  public static final String CSV_HEADER = "generation,mean,max,min,diversity,duplicate_rate,nanos";
+
+  private double[] mean, max, min, diversity, duplicate_rate;
+  private long[] nanos;
+  private int size;
+  private final DataOutputStream stream;
+
+  public EvolutionTelemetry() {
+
+    this((DataOutputStream) null);
+  }
+
+  /**
+   * Record and stream rows to the given output, flushed per row.
+   *
+   * @param stream output of the rows, in the format of writeBinary().
+   */
+  public EvolutionTelemetry(OutputStream stream) {
+
+    this(new DataOutputStream(new BufferedOutputStream(stream)));
+  }
+
+  private EvolutionTelemetry(DataOutputStream stream) {
+
+    this.mean = new double[16];
+    this.max = new double[16];
+    this.min = new double[16];
+    this.diversity = new double[16];
+    this.duplicate_rate = new double[16];
+    this.nanos = new long[16];
+    this.stream = stream;
+  }
+
+  /**
+   * Record the statistics of a generation.
+   *
+   * @param mean average score.
+   * @param max best score.
+   * @param min worst score.
+   * @param diversity diversity of the melodies, as by diversity().
+   * @param duplicate_rate rate of the offspring of the generation which
+   * duplicate a melody already in the population, NaN if none is bred.
+   * @param nanos time taken by the generation.
+   */
+  public void record(double mean, double max, double min,
+          double diversity, double duplicate_rate, long nanos) {
+
+    if (size == this.nanos.length) {
+      this.mean = Arrays.copyOf(this.mean, size * 2);
+      this.max = Arrays.copyOf(this.max, size * 2);
+      this.min = Arrays.copyOf(this.min, size * 2);
+      this.diversity = Arrays.copyOf(this.diversity, size * 2);
+      this.duplicate_rate = Arrays.copyOf(this.duplicate_rate, size * 2);
+      this.nanos = Arrays.copyOf(this.nanos, size * 2);
+    }
+    this.mean[size] = mean;
+    this.max[size] = max;
+    this.min[size] = min;
+    this.diversity[size] = diversity;
+    this.duplicate_rate[size] = duplicate_rate;
+    this.nanos[size] = nanos;
+    if (Objects.nonNull(stream)) {
+      try {
+        writeRow(stream, size);
+        stream.flush();
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+    size++;
+  }
+
+  /**
+   * Diversity of melodies: the chance that two melodies drawn at random
+   * differ at a position, averaged over the positions, i.e. the expected
+   * normalized Hamming distance. Counted per position, in O(n * length).
+   *
+   * @param melodies melodies of the population.
+   * @return 0.0 if all melodies are the same, towards 1.0 as they differ.
+   */
+  public static double diversity(Collection<? extends List<?>> melodies) {
+
+    var length = melodies.stream().mapToInt(List::size).max().orElse(0);
+    if (length == 0) {
+      return 0.0;
+    }
+    var total = 0.0;
+    for (int i = 0; i < length; i++) {
+      var counts = new HashMap<Object, Integer>();
+      var n = 0;
+      for (var melody : melodies) {
+        if (i < melody.size()) {
+          counts.merge(melody.get(i), 1, Integer::sum);
+          n++;
+        }
+      }
+      var same = 0.0;
+      for (int count : counts.values()) {
+        same += (double) count * count;
+      }
+      total += 1.0 - same / ((double) n * n);
+    }
+    return total / length;
+  }
+
+  public int size() {
+
+    return size;
+  }
+
+  public double getMean(int generation) {
+
+    return mean[Objects.checkIndex(generation, size)];
+  }
+
+  public double getMax(int generation) {
+
+    return max[Objects.checkIndex(generation, size)];
+  }
+
+  public double getMin(int generation) {
+
+    return min[Objects.checkIndex(generation, size)];
+  }
+
+  public double getDiversity(int generation) {
+
+    return diversity[Objects.checkIndex(generation, size)];
+  }
+
+  public double getDuplicateRate(int generation) {
+
+    return duplicate_rate[Objects.checkIndex(generation, size)];
+  }
+
+  public long getNanos(int generation) {
+
+    return nanos[Objects.checkIndex(generation, size)];
+  }
+
+  /**
+   * @return average scores by generation.
+   */
+  public double[] getMeans() {
+
+    return Arrays.copyOf(mean, size);
+  }
+
+  /**
+   * Write the rows as CSV, with CSV_HEADER.
+   *
+   * @param out output.
+   * @throws IOException
+   */
+  public void writeCsv(Writer out) throws IOException {
+
+    out.write(CSV_HEADER);
+    out.write(System.lineSeparator());
+    for (int i = 0; i < size; i++) {
+      out.write(i + "," + mean[i] + "," + max[i] + "," + min[i] + ","
+              + diversity[i] + "," + duplicate_rate[i] + "," + nanos[i]);
+      out.write(System.lineSeparator());
+    }
+  }
+
+  /**
+   * Write the rows in binary, each as the five doubles and the long of
+   * record(), big-endian, with no header.
+   *
+   * @param out output.
+   * @throws IOException
+   */
+  public void writeBinary(OutputStream out) throws IOException {
+
+    var data = new DataOutputStream(new BufferedOutputStream(out));
+    for (int i = 0; i < size; i++) {
+      writeRow(data, i);
+    }
+    data.flush();
+  }
+
+  private void writeRow(DataOutputStream out, int i) throws IOException {
+
+    out.writeDouble(mean[i]);
+    out.writeDouble(max[i]);
+    out.writeDouble(min[i]);
+    out.writeDouble(diversity[i]);
+    out.writeDouble(duplicate_rate[i]);
+    out.writeLong(nanos[i]);
+  }
+
+  /**
+   * Read rows written by writeBinary(), or streamed.
+   *
+   * @param in input.
+   * @return EvolutionTelemetry of the rows.
+   * @throws IOException
+   */
+  public static EvolutionTelemetry readBinary(InputStream in) throws IOException {
+
+    var data = new DataInputStream(new BufferedInputStream(in));
+    var telemetry = new EvolutionTelemetry();
+    while (true) {
+      double row_mean;
+      try {
+        row_mean = data.readDouble();
+      } catch (EOFException ex) {
+        return telemetry;
+      }
+      telemetry.record(row_mean, data.readDouble(), data.readDouble(),
+              data.readDouble(), data.readDouble(), data.readLong());
+    }
+  }
+
+  /**
+   * Report of the rows as a table, with the total time.
+   *
+   * @return report.
+   */
+  public String report() {
+
+    var report = new StringBuilder(64 * (size + 2))
+            .append(String.format("%10s %12s %12s %12s %9s %9s %10s%n",
+                    "generation", "mean", "max", "min", "diversity", "duplicate", "ms"));
+    var total = 0L;
+    for (int i = 0; i < size; i++) {
+      report.append(String.format("%10d %12.4f %12.4f %12.4f %9.4f %9.4f %10.1f%n",
+              i, mean[i], max[i], min[i], diversity[i], duplicate_rate[i], nanos[i] / 1e6));
+      total += nanos[i];
+    }
+    return report.append(String.format("Total time = %.1f ms%n", total / 1e6)).toString();
+  }
+
+  /**
+   * Render the mean, max and min by generation as a line chart in PNG,
+   * without a window.
+   *
+   * @param out output.
+   * @param title title of the chart.
+   * @param width width in pixels.
+   * @param height height in pixels.
+   * @throws IOException
+   */
+  public void writeChart(OutputStream out, String title, int width, int height)
+          throws IOException {
+
+    var columns = Map.of("mean", mean, "max", max, "min", min);
+    var dataset = new XYSeriesCollection();
+    for (var name : List.of("max", "mean", "min")) {
+      var series = new XYSeries(name);
+      var column = columns.get(name);
+      for (int i = 0; i < size; i++) {
+        series.add(i, column[i]);
+      }
+      dataset.addSeries(series);
+    }
+    var chart = ChartFactory.createXYLineChart(title, "Generation", "Score",
+            dataset, PlotOrientation.VERTICAL, true, false, false);
+    ChartUtils.writeChartAsPNG(out, chart, width, height);
+  }
+}
@@ -17,29 +17,34 @@ package tech.metacontext.ocnhfa.composer.cf.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
 import static java.util.function.Predicate.not;
-import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.logging.SimpleFormatter;
 import org.dom4j.Document;
-import org.dom4j.DocumentException;
 import org.dom4j.DocumentHelper;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.FractionMode;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraphFile;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardMove;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
 import tech.metacontext.ocnhfa.antsomg.model.*;
 import tech.metacontext.ocnhfa.composer.cf.ex.*;
+import tech.metacontext.ocnhfa.composer.cf.model.constraints.MusicThreadConstraint;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.*;
 import tech.metacontext.ocnhfa.composer.cf.model.enums.*;
 import static tech.metacontext.ocnhfa.composer.cf.model.enums.EcclesiasticalMode.RANDOM_MODE;
 import tech.metacontext.ocnhfa.composer.cf.model.x.*;
 import tech.metacontext.ocnhfa.composer.cf.model.y.*;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.MusicReader;
+import tech.metacontext.ocnhfa.composer.cf.utils.log.AsyncLogHandler;
 
 /**
  * Cantus Firmus Composer.
@@ -60,6 +65,8 @@ public class Composer implements AntsOMGSystem<MusicThread> {
   private List<MusicThread> music_threads;
   private int navigation_count; //navigation count
   private boolean toCadence;
+  private boolean lockstep;
+  private LockstepEngine engine;
 
   public double x_pheromone_deposit_amount = X_PHEROMONE_DEPOSIT_AMOUNT;
   public double y_pheromone_deposit_amount = Y_PHEROMONE_DEPOSIT_AMOUNT;
@@ -77,12 +84,10 @@ public class Composer implements AntsOMGSystem<MusicThread> {
 
     try {
       this.id = id;
-      this.log_path = new File(LOG_DIR, String.format("Composer-%s.log", this.id)).getPath();
+      this.log_path = new File(LOG_DIR, String.format("Composer-%s.jsonl", this.id)).getPath();
       this.logger = Logger.getLogger(log_path);
-      var fh = new FileHandler(log_path);
-      this.logger.addHandler(fh);
-      var formatter = new SimpleFormatter();
-      fh.setFormatter(formatter);
+      this.logger.addHandler(new AsyncLogHandler(Path.of(log_path)));
+      this.logger.setLevel(DEFAULT_LOG_LEVEL);
       this.logger.setUseParentHandlers(false);
     } catch (IOException | SecurityException ex) {
       Logger.getLogger(Composer.class.getName()).log(Level.SEVERE, null, ex);
@@ -115,35 +120,70 @@ public class Composer implements AntsOMGSystem<MusicThread> {
 
   public void init(Document doc, int thread_number) {
 
+    this.preset(doc, thread_number);
+    this.loadGraphs(doc);
+  }
+
+  /**
+   * Initialize from a preset composer folder, loading the graphs from
+   * graph_x.bin and graph_y.bin if present, or else from composer.xml.
+   *
+   * @param folder composer folder holding composer.xml.
+   * @param thread_number number of music threads, or 0 for the one of the
+   * preset.
+   */
+  public void init(File folder, int thread_number) {
+
+    var doc = MusicReader.getComposerXML(folder);
+    this.preset(doc, thread_number);
+    if (new File(folder, "graph_x.bin").exists() && new File(folder, "graph_y.bin").exists()) {
+      try {
+        this.readGraphs(folder);
+        return;
+      } catch (IOException ex) {
+        this.logger.log(Level.WARNING, null, ex);
+      }
+    }
+    this.loadGraphs(doc);
+  }
+
+  private void preset(Document doc, int thread_number) {
+
     this.thread_number = (thread_number > 0) ? thread_number : Integer.valueOf(
             doc.getRootElement().element("thread_number").getTextTrim());
     this.ecclesiastical_mode = EcclesiasticalMode.valueOf(
             doc.getRootElement().element("mode").getTextTrim());
     this.preset_source = doc.getRootElement().attributeValue("id");
     this.init();
+  }
+
+  /**
+   * Load costs and pheromone trails of graphs x and y from composer.xml.
+   */
+  private void loadGraphs(Document doc) {
 
     var x = doc.getRootElement().element("MusicSpace");
+    var x_paths = pathsByVertices(this.getX().getEdges());
     x.elements("MusicPath").stream().forEach(e -> {
       var from = e.element("from").getTextTrim();
       var to = e.element("to").getTextTrim();
       var cost = Double.valueOf(e.element("cost").getTextTrim());
       var pheromoneTrail = Double.valueOf(e.element("pheromoneTrail").getTextTrim());
-      var path = this.getX().queryByVertex(MusicThought.getNode(from)).stream()
-              .filter(p -> Objects.equals(p.getTo(), MusicThought.getNode(to)))
-              .findFirst().get();
+      var path = Optional.ofNullable(x_paths.get(List.of(MusicThought.getNode(from), MusicThought.getNode(to))))
+              .get();
       path.setCost(cost);
       path.setPheromoneTrail(pheromoneTrail);
     });
     var y = doc.getRootElement().element("PitchSpace");
+    var y_paths = pathsByVertices(this.getY().getEdges());
     y.elements("PitchPath").stream().forEach(e -> {
       var from = e.element("from").getTextTrim().toUpperCase();
       var to = e.element("to").getTextTrim().toUpperCase();
       var cost = Double.valueOf(e.element("cost").getTextTrim());
       var pheromoneTrail = Double.valueOf(e.element("pheromoneTrail").getTextTrim());
       try {
-        var path = this.getY().queryByVertex(Pitch.valueOf(from).getNode()).stream()
-                .filter(p -> Objects.equals(p.getTo(), Pitch.valueOf(to).getNode()))
-                .findFirst().get();
+        var path = Optional.ofNullable(y_paths.get(List.of(Pitch.valueOf(from).getNode(), Pitch.valueOf(to).getNode())))
+                .get();
         path.setCost(cost);
         path.setPheromoneTrail(pheromoneTrail);
       } catch (Exception ex) {
@@ -152,6 +192,30 @@ public class Composer implements AntsOMGSystem<MusicThread> {
     });
   }
 
+  /**
+   * Index the edges by their vertices, for loading edges in one pass.
+   */
+  private static <E extends Edge<?>> Map<List<?>, E> pathsByVertices(List<E> edges) {
+
+    var paths = new HashMap<List<?>, E>();
+    edges.forEach(path -> paths.putIfAbsent(Arrays.asList(path.getFrom(), path.getTo()), path));
+    return paths;
+  }
+
+  /**
+   * Load costs and pheromone trails of graphs x and y written by
+   * MusicWriter.saveComposer(), into the initialized graphs; the graphs are
+   * left unchanged if either file does not fit.
+   *
+   * @param folder source folder.
+   * @throws IOException
+   */
+  public void readGraphs(File folder) throws IOException {
+
+    StandardGraphFile.read(this.getX(), new File(folder, "graph_x.bin").toPath());
+    StandardGraphFile.read(this.getY(), new File(folder, "graph_y.bin").toPath());
+  }
+
   public String asXML() {
 
     var doc = DocumentHelper.createDocument();
@@ -161,17 +225,36 @@ public class Composer implements AntsOMGSystem<MusicThread> {
     }
     root.addElement("thread_number").addText(String.valueOf(this.thread_number));
     root.addElement("mode").addText(this.ecclesiastical_mode.name());
-    try {
-      var x = DocumentHelper.parseText(this.getX().asXML()).getRootElement();
-      var y = DocumentHelper.parseText(this.getY().asXML()).getRootElement();
-      root.add(x);
-      root.add(y);
-    } catch (DocumentException ex) {
-      Logger.getLogger(Composer.class.getName()).log(Level.SEVERE, null, ex);
-    }
+    root.add(this.getX().asElement());
+    root.add(this.getY().asElement());
     return doc.asXML();
   }
 
+  /**
+   * Make a composer a copy of this one, with the same settings and logger, on
+   * forks of the graphs of this one.
+   *
+   * @param fork composer to be made a copy.
+   */
+  protected void forkInto(Composer fork) {
+
+    fork.id = this.id;
+    fork.log_path = this.log_path;
+    fork.logger = this.logger;
+    fork.thread_number = this.thread_number;
+    fork.ecclesiastical_mode = this.ecclesiastical_mode;
+    fork.preset_source = this.preset_source;
+    fork.x_pheromone_deposit_amount = this.x_pheromone_deposit_amount;
+    fork.y_pheromone_deposit_amount = this.y_pheromone_deposit_amount;
+    fork.x_explore_chance = this.x_explore_chance;
+    fork.y_explore_chance = this.y_explore_chance;
+    fork.x_pheromone_evaporate_rate = this.x_pheromone_evaporate_rate;
+    fork.y_pheromone_evaporate_rate = this.y_pheromone_evaporate_rate;
+    MusicSpace x = this.getX().fork();
+    PitchSpace y = this.getY().fork();
+    fork.graphs = new HashMap<>(Map.of("x", x, "y", y));
+  }
+
   @Override
   public void init_graphs() {
 
@@ -185,6 +268,10 @@ public class Composer implements AntsOMGSystem<MusicThread> {
   public void init_population() {
 
     this.music_threads = new ArrayList<>();
+    if (this.lockstep) {
+      this.engine = new LockstepEngine(this, this.thread_number, new MusicThreadConstraint());
+      return;
+    }
     for (var i = 0; i < this.thread_number; i++) {
       var mt = new MusicThread(this.ecclesiastical_mode, null, this.getX().getStart(), this.logger);
       this.music_threads.add(mt);
@@ -194,25 +281,42 @@ public class Composer implements AntsOMGSystem<MusicThread> {
   @Override
   public void navigate() {
 
-    this.logger.log(Level.INFO, "*** navigating, navigation_count = {0}",
+    this.logger.log(Level.FINE, "*** navigating, navigation_count = {0}",
             navigation_count++);
     this.toCadence = navigation_count > CF_LENGTH_LOWER;
 
+    if (Objects.nonNull(this.engine)) {
+      this.engine.tick(this.toCadence);
+      this.logger.log(Level.FINE, "{0} music threads in flight", this.engine.getFlying());
+      if (this.engine.isFinished()) {
+        this.music_threads = this.engine.getThreads();
+        this.engine = null;
+      }
+      evaporate();
+      System.out.print(".");
+      return;
+    }
     this.music_threads.stream()
             .filter(not(MusicThread::isCompleted))
             // .peek(System.out::println)
             .forEach(thread -> {
-              boolean ok;
-              do {
-                ok = nav_y(thread, nav_x(thread));
-              } while (!ok);
-              // while (!nav_y(thread, nav_x(thread)));
-              this.logger.log(Level.INFO, thread.toString());
+              nav_y(thread, nav_x(thread));
+              this.logger.log(Level.FINER, thread::toString);
             });
     evaporate();
     System.out.print(".");
   }
 
+  /**
+   * Choose the MusicThought of the next step of a thread on graph x, among the
+   * ones which lead to a pitch from the current state of the thread, so that
+   * every MusicThought chosen is followed by a pitch path.
+   *
+   * @param thread music thread.
+   * @return MusicThought chosen, or null if none leads to a pitch.
+   * @throws UnexpectedLocationException
+   * @throws UnexpectedMusicNodeException
+   */
   protected MusicThought nav_x(MusicThread thread)
           throws UnexpectedLocationException, UnexpectedMusicNodeException {
 
@@ -220,21 +324,40 @@ public class Composer implements AntsOMGSystem<MusicThread> {
       throw new UnexpectedLocationException(thread.getCurrentTrace());
     }
     var y = thread.getCurrentTrace().y;
-    if (thread.getCf().length() >= 2 && thread.getCf().getMelody().getLast().getName().matches("[BF].")) {
+    var feasible = feasible(thread);
+    if (thread.getCf().length() >= 2 && thread.getCf().getMelody().getLast().getName().matches("[BF].")
+            && feasible.test(MusicThought.Directional_Conjunct)) {
       thread.setCurrentTrace(new MusicTrace(MusicThought.DIRECTIONAL, y));
       thread.setCurrentTrace(new MusicTrace(MusicThought.CONJUNCT, y));
       thread.setCurrentTrace(new MusicTrace(this.getX().getStart(), y));
       return MusicThought.Directional_Conjunct;
     }
-    if (thread.getCf().length() >= 2 && thread.lastPitchPath().getInterval() > 3) {
+    if (thread.getCf().length() >= 2 && thread.lastPitchPath().getInterval() > 3
+            && feasible.test(MusicThought.Complemental_ShortTerm)) {
       thread.setCurrentTrace(new MusicTrace(MusicThought.COMPLEMENTAL, y));
       thread.setCurrentTrace(new MusicTrace(MusicThought.SHORTTERM, y));
       thread.setCurrentTrace(new MusicTrace(this.getX().getStart(), y));
       return MusicThought.Complemental_ShortTerm;
     }
 
-    var move1 = x_move(thread); //Start to Directional/Complemental
-    var move2 = x_move(thread); //Directional/Complemental to Upward-Downward/ShortTerm-LongTerm
+    var x = this.getX();
+    var start = x.getStart();
+    //Start to Directional/Complemental, only where a MusicThought follows
+    var paths1 = x.queryByVertex(start).stream()
+            .filter(path1 -> x.queryByVertex(path1.getTo()).stream()
+            .anyMatch(path2 -> feasible.test(MusicThought.getInstance(path1.getTo(), path2.getTo()))))
+            .toList();
+    if (paths1.isEmpty()) {
+      this.logger.log(Level.WARNING, "No MusicThought leads to a pitch.");
+      return null;
+    }
+    var move1 = x_move(thread, paths1);
+    //Directional/Complemental to Upward-Downward/ShortTerm-LongTerm
+    var level1 = move1.getSelected().getTo();
+    var paths2 = x.queryByVertex(level1).stream()
+            .filter(path2 -> feasible.test(MusicThought.getInstance(level1, path2.getTo())))
+            .toList();
+    var move2 = x_move(thread, paths2);
     MusicThought mt = MusicThought.getInstance(
             move1.getSelected().getTo(),
             move2.getSelected().getTo());
@@ -243,49 +366,82 @@ public class Composer implements AntsOMGSystem<MusicThread> {
               move1.getSelected().getTo(),
               move2.getSelected().getTo());
     }
-    var move3 = x_move(thread);
-    if (!move3.getSelected().getTo().equals(this.getX().getStart())) {
+    var move3 = x_move(thread, x.queryByVertex(thread.getCurrentTrace().x));
+    if (!move3.getSelected().getTo().equals(start)) {
       throw new UnexpectedLocationException(thread.getCurrentTrace());
     }
     thread.setCurrentTrace(new MusicTrace(move3, y));
     return mt;
   }
 
-  private StandardMove<MusicPath> x_move(MusicThread thread) {
+  /**
+   * MusicThoughts leading to a pitch from the current state of a thread, as
+   * looked up in the feasibility table of graph y.
+   */
+  private Predicate<MusicThought> feasible(MusicThread thread) {
+
+    var current = thread.getCurrentTrace().y;
+    var length = thread.getCf().length();
+    var direction = thread.lastPitchDirection();
+    var level = thread.lastPitchLevel();
+    return mt -> this.getY().isFeasible(mt, current, length, direction, level);
+  }
+
+  private StandardMove<MusicPath> x_move(MusicThread thread, List<MusicPath> paths) {
 
-    var current_x = this.getX().move(thread.getCurrentTrace().x,
+    var current_x = this.getX().move(paths,
             x_pheromone_deposit_amount, x_explore_chance);
     thread.setCurrentTrace(new MusicTrace(current_x,
             thread.getCurrentTrace().y));
     return current_x;
   }
 
-  protected boolean nav_y(MusicThread thread, MusicThought mt) {
+  /**
+   * Take the next pitch of a thread as the MusicThought chosen by nav_x()
+   * allows, or its cadence if it is to end. A thread for which no MusicThought
+   * leads to a pitch ends in its cadence if it may, since no other step is
+   * left to it.
+   *
+   * @param thread music thread.
+   * @param mt MusicThought chosen by nav_x(), or null if none leads to a
+   * pitch.
+   * @return true, a MusicThought chosen by nav_x() always leading to a pitch.
+   * @throws NoFeasibleMusicThoughtException if no MusicThought leads to a
+   * pitch and the thread may not end there.
+   */
+  protected boolean nav_y(MusicThread thread, MusicThought mt)
+          throws NoFeasibleMusicThoughtException {
 
-    this.logger.log(Level.INFO, "nav_y invoked with MusicThought = {0}", mt.name());
-    if (this.toCadence) {
-      var cadence = thread.getCf().getEcclesiastical_Mode().getCadence(thread.getCurrentTrace().y);
-      if (cadence != null && StandardParameters.getRandom().nextDouble() > y_explore_chance) {
-        thread.addCadence(cadence);
-        return true;
+    var cadence = this.toCadence
+            ? thread.getCf().getEcclesiastical_Mode().getCadence(thread.getCurrentTrace().y)
+            : null;
+    if (Objects.isNull(mt)) {
+      if (Objects.isNull(cadence)) {
+        throw new NoFeasibleMusicThoughtException(thread.getCurrentTrace());
       }
+      thread.addCadence(cadence);
+      return true;
+    }
+    this.logger.log(Level.FINER, "nav_y invoked with MusicThought = {0}", mt.name());
+    if (cadence != null && StandardParameters.getRandom().nextDouble() > y_explore_chance) {
+      thread.addCadence(cadence);
+      return true;
     }
     var current_y = this.getY().move(thread.getCurrentTrace().y,
             thread.getCf().getDominant(), mt.getPredicate(thread),
             y_pheromone_deposit_amount, y_explore_chance);
-    if (Objects.nonNull(current_y)) {
-      current_y.setMt(mt);
-      thread.addPitchMove(current_y);
-      return true;
+    if (Objects.isNull(current_y)) {
+      throw new NoFeasibleMusicThoughtException(thread.getCurrentTrace());
     }
-    this.logger.log(Level.WARNING, "Current MusicThought leads to no possibilities.");
-    return false;
+    current_y.setMt(mt);
+    thread.addPitchMove(current_y);
+    return true;
   }
 
   @Override
   public void evaporate() {
 
-    this.logger.log(Level.INFO, "evaporate...");
+    this.logger.log(Level.FINE, "evaporate...");
     this.getX().getEdges()
             .forEach(p -> p.evaporate(x_pheromone_evaporate_rate));
     this.getY().getEdges()
@@ -295,7 +451,8 @@ public class Composer implements AntsOMGSystem<MusicThread> {
   @Override
   public boolean isAimAchieved() {
 
-    return music_threads.stream().allMatch(MusicThread::isCompleted);
+    return Objects.isNull(this.engine)
+            && music_threads.stream().allMatch(MusicThread::isCompleted);
   }
 
   /*
@@ -312,6 +469,40 @@ public class Composer implements AntsOMGSystem<MusicThread> {
     this.music_threads = mts;
   }
 
+  public boolean isLockstep() {
+
+    return lockstep;
+  }
+
+  /**
+   * Navigate the music threads by the lockstep engine, which holds them in
+   * primitive arrays while in flight and deposits pheromone in a batch per
+   * navigation, and keeps only the completed threads which pass
+   * MusicThreadConstraint. To be set before init_population().
+   *
+   * @param lockstep whether the lockstep engine is taken.
+   */
+  public void setLockstep(boolean lockstep) {
+
+    this.lockstep = lockstep;
+  }
+
+  public Level getLog_level() {
+
+    return this.logger.getLevel();
+  }
+
+  /**
+   * Set the level of the logger. Navigation is traced at FINE, and each
+   * thread at each step at FINER, below DEFAULT_LOG_LEVEL.
+   *
+   * @param log_level level of the logger.
+   */
+  public void setLog_level(Level log_level) {
+
+    this.logger.setLevel(log_level);
+  }
+
   public boolean isToCadence() {
 
     return toCadence;
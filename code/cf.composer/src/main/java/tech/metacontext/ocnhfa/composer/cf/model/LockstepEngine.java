@@ -0,0 +1,505 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import tech.metacontext.ocnhfa.composer.cf.ex.NoFeasibleMusicThoughtException;
+import tech.metacontext.ocnhfa.composer.cf.ex.UnexpectedLocationException;
+import tech.metacontext.ocnhfa.composer.cf.ex.UnexpectedMusicNodeException;
+import tech.metacontext.ocnhfa.composer.cf.model.constraints.MusicThreadConstraint;
+import tech.metacontext.ocnhfa.composer.cf.model.devices.Cadence;
+import tech.metacontext.ocnhfa.composer.cf.model.enums.EcclesiasticalMode;
+import static tech.metacontext.ocnhfa.composer.cf.model.enums.EcclesiasticalMode.RANDOM_MODE;
+import tech.metacontext.ocnhfa.composer.cf.model.enums.MusicThought;
+import tech.metacontext.ocnhfa.composer.cf.model.enums.Pitch;
+import tech.metacontext.ocnhfa.composer.cf.model.x.MusicNode;
+import tech.metacontext.ocnhfa.composer.cf.model.x.MusicPath;
+import tech.metacontext.ocnhfa.composer.cf.model.y.PitchMove;
+import tech.metacontext.ocnhfa.composer.cf.model.y.PitchPath;
+
+/**
+ * Lockstep engine of the music threads of a Composer, holding the ants in
+ * flight as primitive arrays instead of MusicThreads.
+ * <p>
+ * Every ant in flight advances one step per tick, as by nav_x() and nav_y()
+ * of Composer, on tables of the paths of graphs x and y by vertex; the
+ * chances of the paths are taken once per tick, by vertex and set of paths
+ * allowed. Pheromone deposited in a tick
+ * is applied in one batch at its end, before evaporation, so every ant of a
+ * tick walks the same trails. Random numbers are drawn in the same order as
+ * by Composer, so with no pheromone deposited the threads made are the same.
+ * <p>
+ * The move of each ant is recorded per tick, and a MusicThread is made of an
+ * ant only when it completes and is kept, i.e. has a proper length and range
+ * and passes the filter given.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+final class LockstepEngine {
+
+  private static final Pitch[] PITCHES = Pitch.values();
+  private static final EcclesiasticalMode[] MODES = EcclesiasticalMode.values();
+  private static final MusicThought[] THOUGHTS = MusicThought.values();
+
+  /*
+   * A move is recorded in an int: the path of graph y selected, the
+   * MusicThought, whether exploring, to cadence or moved on graph x, and the
+   * paths allowed, as bits of the paths from the pitch.
+   */
+  private static final int SELECTED = 0x3FF;
+  private static final int THOUGHT_SHIFT = 10;
+  private static final int THOUGHT = 0x7;
+  private static final int EXPLORING = 1 << 13;
+  private static final int CADENCE = 1 << 14;
+  private static final int X_MOVED = 1 << 15;
+  private static final int OPTIONS_SHIFT = 16;
+
+  private final Composer composer;
+  private final Predicate<MusicThread> filter;
+
+  // graph x
+  private final List<MusicPath> x_paths;
+  private final MusicNode[] x_nodes;
+  private final int[][] x_out;
+  private final int[] x_to;
+  private final int start;
+  private final int[][] thoughts;
+  private final MusicNode[][] levels;
+  // graph y
+  private final List<PitchPath> y_paths;
+  private final int[][] y_out;
+  private final int[] y_to;
+  private final int[] y_diff;
+  private final boolean[] conjunct_only;
+  private final Cadence[][] cadences;
+
+  // ants
+  private final int number;
+  private final byte[] mode;
+  private final byte[] finalis;
+  private final byte[] pitch;
+  private final byte[] previous;
+  private final byte[] lowest;
+  private final byte[] highest;
+  private final int[] length;
+  private final int[] flight;
+  private int flying;
+  private final List<int[]> moves;
+  private final List<double[]> trails;
+  private final MusicThread[] kept;
+
+  // state of the current tick
+  private Random random;
+  private Map<Integer, double[]> x_chances;
+  private Map<Integer, double[]> y_chances;
+  private double[] x_deposits, y_deposits;
+
+  /**
+   * Start ants from the finalis of their modes, drawn as by init_population()
+   * of Composer.
+   *
+   * @param composer composer of the graphs and settings.
+   * @param number number of ants.
+   * @param filter filter of the MusicThreads to keep.
+   */
+  LockstepEngine(Composer composer, int number, Predicate<MusicThread> filter) {
+
+    this.composer = composer;
+    this.filter = filter;
+
+    this.x_paths = composer.getX().getEdges();
+    this.x_nodes = x_paths.stream()
+            .flatMap(path -> List.of(path.getFrom(), path.getTo()).stream())
+            .distinct()
+            .toArray(MusicNode[]::new);
+    var x_index = indexOf(x_nodes);
+    this.x_out = Arrays.stream(x_nodes)
+            .map(node -> IntStream.range(0, x_paths.size())
+            .filter(i -> x_paths.get(i).getFrom().equals(node))
+            .toArray())
+            .toArray(int[][]::new);
+    this.x_to = x_paths.stream()
+            .mapToInt(path -> x_index.get(path.getTo()))
+            .toArray();
+    this.start = x_index.get(composer.getX().getStart());
+    this.thoughts = new int[x_nodes.length][x_nodes.length];
+    Arrays.stream(thoughts).forEach(row -> Arrays.fill(row, -1));
+    for (var e1 : x_out[start]) {
+      for (var e2 : x_out[x_to[e1]]) {
+        thoughts[x_to[e1]][x_to[e2]] = MusicThought.getInstance(
+                x_nodes[x_to[e1]], x_nodes[x_to[e2]]).ordinal();
+      }
+    }
+    this.levels = Arrays.stream(THOUGHTS)
+            .map(mt -> mt == MusicThought.NULL ? null
+            : Arrays.stream(mt.name().split("_"))
+                    .map(MusicThought::getNode)
+                    .toArray(MusicNode[]::new))
+            .toArray(MusicNode[][]::new);
+
+    this.y_paths = composer.getY().getEdges();
+    this.y_out = Arrays.stream(PITCHES)
+            .map(p -> IntStream.range(0, y_paths.size())
+            .filter(i -> y_paths.get(i).getFrom().getPitch() == p)
+            .toArray())
+            .toArray(int[][]::new);
+    assert y_paths.size() <= SELECTED + 1
+            && Arrays.stream(y_out).allMatch(out -> out.length < Integer.SIZE - OPTIONS_SHIFT);
+    this.y_to = y_paths.stream()
+            .mapToInt(path -> path.getTo().getPitch().ordinal())
+            .toArray();
+    this.y_diff = y_paths.stream()
+            .mapToInt(Pitch::diff)
+            .toArray();
+    this.conjunct_only = new boolean[PITCHES.length];
+    Arrays.stream(PITCHES).forEach(p -> conjunct_only[p.ordinal()] = p.name().matches("[BF]."));
+    this.cadences = Arrays.stream(MODES)
+            .map(m -> m == RANDOM_MODE ? null
+            : Arrays.stream(PITCHES)
+                    .map(p -> m.getCadence(p.getNode()))
+                    .toArray(Cadence[]::new))
+            .toArray(Cadence[][]::new);
+
+    this.number = number;
+    this.mode = new byte[number];
+    this.finalis = new byte[number];
+    this.pitch = new byte[number];
+    this.previous = new byte[number];
+    this.lowest = new byte[number];
+    this.highest = new byte[number];
+    this.length = new int[number];
+    this.flight = new int[number];
+    for (int a = 0; a < number; a++) {
+      var m = composer.getEcclesiastical_mode() == RANDOM_MODE
+              ? EcclesiasticalMode.getRandomMode() : composer.getEcclesiastical_mode();
+      var p = (byte) m.getRandomFinalis().getKey().getPitch().ordinal();
+      mode[a] = (byte) m.ordinal();
+      finalis[a] = pitch[a] = lowest[a] = highest[a] = p;
+      previous[a] = -1;
+      length[a] = 1;
+      flight[a] = a;
+    }
+    this.flying = number;
+    this.moves = new ArrayList<>();
+    this.trails = new ArrayList<>();
+    this.kept = new MusicThread[number];
+  }
+
+  private static <V> Map<V, Integer> indexOf(V[] vertices) {
+
+    var index = new HashMap<V, Integer>();
+    IntStream.range(0, vertices.length).forEach(i -> index.put(vertices[i], i));
+    return index;
+  }
+
+  /**
+   * Advance every ant in flight one step, then deposit pheromone.
+   *
+   * @param toCadence whether ants may end in a cadence.
+   */
+  void tick(boolean toCadence) {
+
+    this.random = StandardParameters.getRandom();
+    this.x_chances = new HashMap<>();
+    this.y_chances = new HashMap<>();
+    this.x_deposits = new double[x_paths.size()];
+    this.y_deposits = new double[y_paths.size()];
+    var tick = new int[number];
+    moves.add(tick);
+    trails.add(y_paths.stream().mapToDouble(PitchPath::getPheromoneTrail).toArray());
+
+    var still = 0;
+    for (int i = 0; i < flying; i++) {
+      var a = flight[i];
+      var move = step(a, toCadence);
+      tick[a] = move;
+      if ((move & CADENCE) == 0) {
+        flight[still++] = a;
+      } else if (MusicThreadConstraint.properLength(length[a])
+              && MusicThreadConstraint.inRange(highest[a] - lowest[a] + 1)) {
+        var thread = materialise(a);
+        if (filter.test(thread)) {
+          kept[a] = thread;
+        }
+      }
+    }
+    this.flying = still;
+
+    IntStream.range(0, x_paths.size())
+            .filter(i -> x_deposits[i] != 0.0)
+            .forEach(i -> x_paths.get(i).addPheromoneDeposit(x_deposits[i]));
+    IntStream.range(0, y_paths.size())
+            .filter(i -> y_deposits[i] != 0.0)
+            .forEach(i -> y_paths.get(i).addPheromoneDeposit(y_deposits[i]));
+    this.random = null;
+    this.x_chances = null;
+    this.y_chances = null;
+  }
+
+  /**
+   * One step of an ant, as nav_y(thread, nav_x(thread)).
+   *
+   * @return move recorded.
+   */
+  private int step(int a, boolean toCadence) {
+
+    var direction = length[a] < 2 ? 0 : diff(previous[a], pitch[a]);
+    var level = length[a] <= 2 ? direction / 2
+            : diff(lowest[a] + (highest[a] - lowest[a]) / 2, pitch[a]);
+    var x = nav_x(a, feasible(a, direction, level));
+    var mt = THOUGHTS[x >> THOUGHT_SHIFT & THOUGHT];
+    var cadence = toCadence ? cadences[mode[a]][pitch[a]] : null;
+    if (mt == MusicThought.NULL) {
+      if (Objects.isNull(cadence)) {
+        throw new NoFeasibleMusicThoughtException(
+                new MusicTrace(x_nodes[start], PITCHES[pitch[a]].getNode()));
+      }
+      cadence.getFormula().forEach(node -> advance(a, node.getPitch().ordinal()));
+      return x | CADENCE;
+    }
+    if (Objects.nonNull(cadence) && random.nextDouble() > composer.y_explore_chance) {
+      cadence.getFormula().forEach(node -> advance(a, node.getPitch().ordinal()));
+      return x | CADENCE;
+    }
+    var out = y_out[pitch[a]];
+    var options = 0;
+    for (int i = 0; i < out.length; i++) {
+      if (mt.allows(length[a], direction, level, y_diff[out[i]])) {
+        options |= 1 << i;
+      }
+    }
+    if (options == 0) {
+      throw new NoFeasibleMusicThoughtException(
+              new MusicTrace(x_nodes[start], PITCHES[pitch[a]].getNode()));
+    }
+    var allowed = options;
+    var chances = y_chances.computeIfAbsent(pitch[a] << OPTIONS_SHIFT | options, key -> {
+      var paths = IntStream.range(0, out.length)
+              .filter(i -> (allowed & 1 << i) != 0)
+              .mapToObj(i -> y_paths.get(out[i]))
+              .toList();
+      return paths.stream().mapToDouble(path -> composer.getY().getChance(paths, path)).toArray();
+    });
+    var exploring = random.nextDouble() < composer.y_explore_chance;
+    var n = exploring ? random.nextInt(chances.length) : select(chances);
+    var selected = -1;
+    for (int i = 0; n >= 0; i++) {
+      if ((options & 1 << i) != 0) {
+        selected = out[i];
+        n--;
+      }
+    }
+    y_deposits[selected] += composer.y_pheromone_deposit_amount;
+    advance(a, y_to[selected]);
+    return x | selected | (exploring ? EXPLORING : 0) | options << OPTIONS_SHIFT;
+  }
+
+  /**
+   * MusicThoughts leading to a pitch from the state of an ant, as bits of
+   * their ordinals, as looked up in the feasibility table of graph y.
+   */
+  private int feasible(int a, int direction, int level) {
+
+    var node = PITCHES[pitch[a]].getNode();
+    var feasible = 0;
+    for (var mt : THOUGHTS) {
+      if (composer.getY().isFeasible(mt, node, length[a], direction, level)) {
+        feasible |= 1 << mt.ordinal();
+      }
+    }
+    return feasible;
+  }
+
+  /**
+   * MusicThought of the next step of an ant, as nav_x() of Composer, as the
+   * part of the move recorded; MusicThought.NULL if none is feasible.
+   */
+  private int nav_x(int a, int feasible) {
+
+    var conjunct = MusicThought.Directional_Conjunct.ordinal();
+    if (length[a] >= 2 && conjunct_only[pitch[a]] && (feasible & 1 << conjunct) != 0) {
+      return conjunct << THOUGHT_SHIFT;
+    }
+    var shortterm = MusicThought.Complemental_ShortTerm.ordinal();
+    if (length[a] >= 2 && Math.abs(pitch[a] - previous[a]) + 1 > 3 && (feasible & 1 << shortterm) != 0) {
+      return shortterm << THOUGHT_SHIFT;
+    }
+    var out1 = x_out[start];
+    var allowed1 = 0;
+    for (int i = 0; i < out1.length; i++) {
+      for (var e2 : x_out[x_to[out1[i]]]) {
+        var mt = thoughts[x_to[out1[i]]][x_to[e2]];
+        if (mt >= 0 && (feasible & 1 << mt) != 0) {
+          allowed1 |= 1 << i;
+        }
+      }
+    }
+    if (allowed1 == 0) {
+      return MusicThought.NULL.ordinal() << THOUGHT_SHIFT;
+    }
+    var level1 = x_move(start, allowed1);
+    var out2 = x_out[level1];
+    var allowed2 = 0;
+    for (int i = 0; i < out2.length; i++) {
+      var mt = thoughts[level1][x_to[out2[i]]];
+      if (mt >= 0 && (feasible & 1 << mt) != 0) {
+        allowed2 |= 1 << i;
+      }
+    }
+    var level2 = x_move(level1, allowed2);
+    if (thoughts[level1][level2] < 0) {
+      throw new UnexpectedMusicNodeException(x_nodes[level1], x_nodes[level2]);
+    }
+    var back = x_move(level2, (1 << x_out[level2].length) - 1);
+    if (back != start) {
+      throw new UnexpectedLocationException(
+              new MusicTrace(x_nodes[back], PITCHES[pitch[a]].getNode()));
+    }
+    return thoughts[level1][level2] << THOUGHT_SHIFT | X_MOVED;
+  }
+
+  /**
+   * Move on graph x from a vertex along one of the paths allowed, given as
+   * bits of their positions among the paths from the vertex.
+   */
+  private int x_move(int vertex, int allowed) {
+
+    var out = x_out[vertex];
+    var chances = x_chances.computeIfAbsent(vertex << OPTIONS_SHIFT | allowed, key -> {
+      var paths = IntStream.range(0, out.length)
+              .filter(i -> (allowed & 1 << i) != 0)
+              .mapToObj(i -> x_paths.get(out[i]))
+              .toList();
+      return paths.stream().mapToDouble(path -> composer.getX().getChance(paths, path)).toArray();
+    });
+    var exploring = random.nextDouble() < composer.x_explore_chance;
+    var n = exploring ? random.nextInt(chances.length) : select(chances);
+    var selected = -1;
+    for (int i = 0; n >= 0; i++) {
+      if ((allowed & 1 << i) != 0) {
+        selected = out[i];
+        n--;
+      }
+    }
+    x_deposits[selected] += composer.x_pheromone_deposit_amount;
+    return x_to[selected];
+  }
+
+  /**
+   * Index selected by chance, as selectByChance() of StandardGraph.
+   */
+  private int select(double[] chances) {
+
+    var r = random.nextDouble();
+    for (int i = 0; i < chances.length; i++) {
+      if (r < chances[i]) {
+        return i;
+      }
+      r -= chances[i];
+    }
+    throw new NoSuchElementException("Chances = " + Arrays.toString(chances) + ", r=" + r);
+  }
+
+  /**
+   * Signed interval between two pitches, as Pitch.diff().
+   */
+  private static int diff(int from, int to) {
+
+    var diff_raw = to - from;
+    return diff_raw + (diff_raw >= 0 ? 1 : -1);
+  }
+
+  private void advance(int a, int to) {
+
+    previous[a] = pitch[a];
+    pitch[a] = (byte) to;
+    lowest[a] = (byte) Math.min(lowest[a], to);
+    highest[a] = (byte) Math.max(highest[a], to);
+    length[a]++;
+  }
+
+  /**
+   * Make the MusicThread of a completed ant from the moves recorded.
+   */
+  private MusicThread materialise(int a) {
+
+    var thread = new MusicThread(MODES[mode[a]], PITCHES[finalis[a]].getNode(),
+            x_nodes[start], composer.getLogger());
+    for (int t = 0;; t++) {
+      var move = moves.get(t)[a];
+      var mt = THOUGHTS[move >> THOUGHT_SHIFT & THOUGHT];
+      var y = thread.getCurrentTrace().getY();
+      if (mt != MusicThought.NULL) {
+        thread.setCurrentTrace(new MusicTrace(levels[mt.ordinal()][0], y));
+        thread.setCurrentTrace(new MusicTrace(levels[mt.ordinal()][1], y));
+        thread.setCurrentTrace(new MusicTrace(x_nodes[start], y));
+      }
+      if ((move & X_MOVED) != 0) {
+        thread.setCurrentTrace(new MusicTrace(x_nodes[start], y));
+      }
+      if ((move & CADENCE) != 0) {
+        thread.addCadence(MODES[mode[a]].getCadence(y));
+        return thread;
+      }
+      var out = y_out[y.getPitch().ordinal()];
+      var options = move >>> OPTIONS_SHIFT;
+      var pm = new PitchMove((move & EXPLORING) != 0, List.of(), y_paths.get(move & SELECTED), mt);
+      for (int i = 0; i < out.length; i++) {
+        if ((options & 1 << i) != 0) {
+          pm.getPheromoneRecords().put(y_paths.get(out[i]), trails.get(t)[out[i]]);
+        }
+      }
+      thread.addPitchMove(pm);
+    }
+  }
+
+  /**
+   * @return if no ant is in flight.
+   */
+  boolean isFinished() {
+
+    return flying == 0;
+  }
+
+  /**
+   * @return number of ants in flight.
+   */
+  int getFlying() {
+
+    return flying;
+  }
+
+  /**
+   * @return MusicThreads kept so far, in the order of the ants.
+   */
+  List<MusicThread> getThreads() {
+
+    return Arrays.stream(kept)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(ArrayList::new));
+  }
+}
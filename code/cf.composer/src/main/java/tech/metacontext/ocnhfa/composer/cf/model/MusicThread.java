@@ -56,7 +56,7 @@ public final class MusicThread implements Ant<MusicTrace>, Comparable<MusicThrea
     this.cf = new CantusFirmus(ecclesiastical_mode, finalis);
     this.setCurrentTrace(new MusicTrace(start, this.cf.getFinalis()));
     this.route = new ArrayList<>();
-    logger.log(Level.INFO, "MusicThread in {0}, starting at {1}, created.",
+    logger.log(Level.FINER, "MusicThread in {0}, starting at {1}, created.",
             new Object[]{ecclesiastical_mode.name(), this.cf.getFinalis().getPitch()});
   }
 
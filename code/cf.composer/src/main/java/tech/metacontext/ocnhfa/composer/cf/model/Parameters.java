@@ -19,6 +19,7 @@ import java.io.File;
 import java.time.LocalTime;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.FractionMode;
@@ -29,47 +30,51 @@ import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.FractionMode;
  */
 public final class Parameters {
 
-  public static long DEFAULT_SEED = -1410263943012662127L;
-  public static FractionMode DEFAULT_FRACTION_MODE = FractionMode.Coefficient;
+  public static final long DEFAULT_SEED = -1410263943012662127L;
+  public static final FractionMode DEFAULT_FRACTION_MODE = FractionMode.Coefficient;
   public static final String LINE = "-".repeat(80);
 
-  public static int DEFAULT_DEVELOP_THREAD_NUMBER = 100000;
-  public static int DEFAULT_COMPOSE_THREAD_NUMBER = 1000;
-  public static int DEFAULT_COMPOSER_NUMBER = 5;
-  public static int CF_LENGTH_LOWER = 7;
-  public static int CF_LENGTH_HIGHER = 15;
-  public static int CF_RANGE_LOWER = 5;
-  public static int CF_RANGE_HIGHER = 6;
+  public static final int DEFAULT_DEVELOP_THREAD_NUMBER = 100000;
+  public static final int DEFAULT_COMPOSE_THREAD_NUMBER = 1000;
+  public static final int DEFAULT_COMPOSER_NUMBER = 5;
+  public static final int COMPOSER_WORKERS = Runtime.getRuntime().availableProcessors();
+  public static final int CF_LENGTH_LOWER = 7;
+  public static final int CF_LENGTH_HIGHER = 15;
+  public static final int CF_RANGE_LOWER = 5;
+  public static final int CF_RANGE_HIGHER = 6;
 
-  public static double DEFAULT_COST = 1.0;
-  public static double DOMINANT_ATTRACTION_FACTOR = 10.0;
-  public static int DOMINANT_COUNT = 3;
-  public static int DEFAULT_TARGET_SIZE = 20;
+  public static final double DEFAULT_COST = 1.0;
+  public static final double DOMINANT_ATTRACTION_FACTOR = 10.0;
+  public static final int DOMINANT_COUNT = 3;
+  public static final int DEFAULT_TARGET_SIZE = 20;
 
-  public static double X_PHEROMONE_EVAPORATE_RATE = 0.1;
-  public static double X_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
-  public static double X_ALPHA = 2.0, X_BETA = 1.0;
-  public static double X_EXPLORE_CHANCE = 0.2;
+  public static final double X_PHEROMONE_EVAPORATE_RATE = 0.1;
+  public static final double X_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
+  public static final double X_ALPHA = 2.0, X_BETA = 1.0;
+  public static final double X_EXPLORE_CHANCE = 0.2;
 
-  public static double Y_PHEROMONE_EVAPORATE_RATE = 0.1;
-  public static double Y_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
-  public static double Y_ALPHA = 1.0, Y_BETA = 1.0;
-  public static double Y_EXPLORE_CHANCE = 0.4;
+  public static final double Y_PHEROMONE_EVAPORATE_RATE = 0.1;
+  public static final double Y_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
+  public static final double Y_ALPHA = 1.0, Y_BETA = 1.0;
+  public static final double Y_EXPLORE_CHANCE = 0.4;
 
-  public static String DEMO_STANDARD = "STANDARD_project_00-48-00-571338900";
+  public static final String DEMO_STANDARD = "STANDARD_project_00-48-00-571338900";
   public static final File PROJECT_DIR = new File(System.getProperty("user.dir"), "projects");
   public static final File TEST_DIR = new File(System.getProperty("user.dir"), "test");
   public static final File LOG_DIR = new File(System.getProperty("user.dir"), "log");
+  public static final Level DEFAULT_LOG_LEVEL = Level.INFO;
+  public static final int LOG_BUFFER_CAPACITY = 8192;
 
   // EC
-  public static int SELECT_DIV = 4;
-  public static int DEFAULT_GENERATION = 300;
-  public static int DEFAULT_POPULATION_SIZE = 400;
-  public static double DEFAULT_THRESHOLD = 1000000.0;
-  public static double DEFAULT_CROSSOVER_RATE = 0.75;
-  public static double DEFAULT_MUTATION_RATE = 0.5;
+  public static final int SELECT_DIV = 4;
+  public static final int DEFAULT_GENERATION = 300;
+  public static final int DEFAULT_POPULATION_SIZE = 400;
+  public static final double DEFAULT_THRESHOLD = 1000000.0;
+  public static final double DEFAULT_CROSSOVER_RATE = 0.75;
+  public static final double DEFAULT_MUTATION_RATE = 0.5;
+  public static final int PARENT_SUPPLY_CAPACITY = 32;
 
-  public static String createTimeBasedId() {
+  public static final String createTimeBasedId() {
 
     return LocalTime.now().toString().replaceAll("[:.]", "-");
   }
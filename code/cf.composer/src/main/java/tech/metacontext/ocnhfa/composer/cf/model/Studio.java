@@ -17,15 +17,26 @@ package tech.metacontext.ocnhfa.composer.cf.model;
 
 import java.io.File;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.FractionMode;
+import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.getRandom;
+import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.withScopedRandom;
 import tech.metacontext.ocnhfa.composer.cf.ex.NoQualifiedThreadsSelectedException;
+import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.COMPOSER_WORKERS;
+import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.DEFAULT_LOG_LEVEL;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.LINE;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.PROJECT_DIR;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.createTimeBasedId;
@@ -33,7 +44,6 @@ import tech.metacontext.ocnhfa.composer.cf.model.constraints.MusicThreadConstrai
 import tech.metacontext.ocnhfa.composer.cf.model.enums.ComposerType;
 import static tech.metacontext.ocnhfa.composer.cf.model.enums.ComposerType.*;
 import tech.metacontext.ocnhfa.composer.cf.model.enums.EcclesiasticalMode;
-import tech.metacontext.ocnhfa.composer.cf.utils.io.MusicReader;
 import tech.metacontext.ocnhfa.composer.cf.utils.io.MusicWriter;
 import tech.metacontext.ocnhfa.composer.cf.utils.io.musicxml.Clef;
 import tech.metacontext.ocnhfa.composer.cf.utils.io.musicxml.Score;
@@ -51,6 +61,8 @@ public class Studio {
   private int target_size;
   private EcclesiasticalMode ecclesiastical_mode;
   private FractionMode fraction_mode;
+  private boolean lockstep;
+  private Level log_level = DEFAULT_LOG_LEVEL;
 
   //Parameters for COMPOSE | COMPOSE_STATIC
   private String project_name;
@@ -60,6 +72,10 @@ public class Studio {
 
   private List<Composer> composers;
   private Map<Composer, List<MusicThread>> qualified_threads;
+  /**
+   * Random generators of the composers run so far, by composer id.
+   */
+  private final Map<String, Random> randoms = new HashMap<>();
 
   public Studio(ComposerType composer_type) {
 
@@ -85,20 +101,23 @@ public class Studio {
         modal_composers();
     }
     // Generate composers from specified source and compose.
-    this.composers.stream()
-            .peek(c -> System.out.printf("\nProcessing %s ", c.getId()))
-            .forEach(c -> {
-              c.setFraction_mode(this.fraction_mode);
-              if (this.composer_type == COMPOSE_STATIC) {
-                c.x_pheromone_deposit_amount = 0.0;
-                c.x_pheromone_evaporate_rate = 0.0;
-                c.y_pheromone_deposit_amount = 0.0;
-                c.y_pheromone_evaporate_rate = 0.0;
-              }
-              while (!c.isAimAchieved()) {
-                c.navigate();
-              }
-            });
+    this.composers.forEach(c -> {
+      c.setFraction_mode(this.fraction_mode);
+      if (this.composer_type == COMPOSE_STATIC) {
+        c.x_pheromone_deposit_amount = 0.0;
+        c.x_pheromone_evaporate_rate = 0.0;
+        c.y_pheromone_deposit_amount = 0.0;
+        c.y_pheromone_evaporate_rate = 0.0;
+      }
+    });
+    System.out.printf("\nProcessing %s ", this.composers.stream()
+            .map(Composer::getId)
+            .collect(Collectors.joining(", ")));
+    runComposers(this.composers, c -> {
+      while (!c.isAimAchieved()) {
+        c.navigate();
+      }
+    });
     System.out.println();
     // Select qualified threads by composer
     this.qualified_threads = IntStream.range(0, this.composers.size())
@@ -134,6 +153,54 @@ public class Studio {
             LINE, composers.size(), average);
   }
 
+  /**
+   * Run a task for each of the given composers, concurrently on at most
+   * COMPOSER_WORKERS threads.
+   * <p>
+   * Each composer draws from a random generator of its own, seeded from the
+   * global one, in the order of the composers, the first time the composer is
+   * run, and kept for the later runs; so the composers come out the same
+   * whichever threads run them, and however many. Composers must not share
+   * graphs.
+   *
+   * @param <C> type of the composers.
+   * @param composers composers to run.
+   * @param task task to run for each composer.
+   */
+  protected <C extends Composer> void runComposers(List<C> composers, Consumer<C> task) {
+
+    composers.forEach(c -> this.randoms.computeIfAbsent(c.getId(),
+            id -> new Random(getRandom().nextLong())));
+    if (composers.size() < 2 || COMPOSER_WORKERS < 2) {
+      composers.forEach(c -> run(c, task));
+      return;
+    }
+    var count = new AtomicInteger();
+    var pool = Executors.newFixedThreadPool(
+            Math.min(composers.size(), COMPOSER_WORKERS),
+            runnable -> {
+              var thread = new Thread(runnable, project_name + "-composer-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      composers.stream()
+              .map(c -> CompletableFuture.runAsync(() -> run(c, task), pool))
+              .toList()
+              .forEach(CompletableFuture::join);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private <C extends Composer> void run(C composer, Consumer<C> task) {
+
+    withScopedRandom(this.randoms.get(composer.getId()), () -> {
+      task.accept(composer);
+      return null;
+    });
+  }
+
   public void saveScore(Clef clef) {
 
     if (Objects.isNull(this.qualified_threads)) {
@@ -192,8 +259,6 @@ public class Studio {
     var projects = Stream.of(path.listFiles(File::isDirectory))
             .filter(file -> this.folder == null || this.folder.equals(file.getName()))
             .sorted()
-            .map(MusicReader::getComposerXML)
-            .filter(Objects::nonNull)
             .collect(Collectors.toList());
     System.out.println(projects.size() + " folder(s) located.");
     createComposers(projects.size());
@@ -221,7 +286,12 @@ public class Studio {
   private void createComposers(int number) {
 
     this.composers = IntStream.range(0, number)
-            .mapToObj(i -> Composer.getInstance().setLogger(project_name + "_" + i))
+            .mapToObj(i -> {
+              var composer = Composer.getInstance().setLogger(project_name + "_" + i);
+              composer.setLockstep(this.lockstep);
+              composer.setLog_level(this.log_level);
+              return composer;
+            })
             /*
                  * DO NOT use member reference like:
                  * .mapToObj(i -> project_name + "_" + i)
@@ -323,6 +393,28 @@ public class Studio {
     return this;
   }
 
+  public boolean isLockstep() {
+
+    return lockstep;
+  }
+
+  public Studio setLockstep(boolean lockstep) {
+
+    this.lockstep = lockstep;
+    return this;
+  }
+
+  public Level getLog_level() {
+
+    return log_level;
+  }
+
+  public Studio setLog_level(Level log_level) {
+
+    this.log_level = log_level;
+    return this;
+  }
+
   public Map<Composer, List<MusicThread>> getQualifiedThreads() {
 
     return this.qualified_threads;
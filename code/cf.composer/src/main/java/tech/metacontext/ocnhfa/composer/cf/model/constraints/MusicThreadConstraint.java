@@ -39,7 +39,16 @@ public class MusicThreadConstraint implements Predicate<MusicThread> {
 
   public static boolean inRange(MusicThread thread) {
 
-    return thread.currentRange() <= 8 && thread.currentRange() >= 4;
+    return inRange(thread.currentRange());
+  }
+
+  /**
+   * @param range range of a melody, as currentRange() of MusicThread.
+   * @return if the range is proper.
+   */
+  public static boolean inRange(int range) {
+
+    return range <= 8 && range >= 4;
   }
 
   public static boolean properRepetition(MusicThread thread) {
@@ -93,7 +102,16 @@ public class MusicThreadConstraint implements Predicate<MusicThread> {
 
   public static boolean properLength(MusicThread thread) {
 
-    return thread.getCf().length() >= CF_LENGTH_LOWER
-            && thread.getCf().length() <= CF_LENGTH_HIGHER;
+    return properLength(thread.getCf().length());
+  }
+
+  /**
+   * @param length length of a melody.
+   * @return if the length is proper.
+   */
+  public static boolean properLength(int length) {
+
+    return length >= CF_LENGTH_LOWER
+            && length <= CF_LENGTH_HIGHER;
   }
 }
@@ -66,28 +66,48 @@ public enum MusicThought {
 
     public Predicate<PitchPath> getPredicate(MusicThread thread) {
 
-        return path -> thread.getCf().length() > 1 ? switch (this) {
+        var length = thread.getCf().length();
+        var direction = thread.lastPitchDirection();
+        var level = this == Complemental_LongTerm ? thread.lastPitchLevel() : 0;
+        return path -> allows(length, direction, level, Pitch.diff(path));
+    }
+
+    /**
+     * The rule of getPredicate() on the state of a melody, as used by the
+     * feasibility table of PitchSpace.
+     *
+     * @param length length of the melody.
+     * @param direction direction of the last pitch path, as
+     * lastPitchDirection() of MusicThread.
+     * @param level level of the last pitch, as lastPitchLevel() of
+     * MusicThread; only read by Complemental_LongTerm.
+     * @param diff interval of the pitch path to go, as Pitch.diff().
+     * @return if the pitch path is allowed.
+     */
+    public boolean allows(int length, int direction, int level, int diff) {
+
+        return length > 1 ? switch (this) {
             case Directional_Conjunct:
-                yield (thread.lastPitchDirection() > 0 && Pitch.diff(path) == 2)
-                || (thread.lastPitchDirection() < 0 && Pitch.diff(path) == -2);
+                yield (direction > 0 && diff == 2)
+                || (direction < 0 && diff == -2);
             case Directional_Disjunct:
-                yield (thread.lastPitchDirection() > 0 && Pitch.diff(path) > 2)
-                || (thread.lastPitchDirection() < 0 && Pitch.diff(path) < -2);
+                yield (direction > 0 && diff > 2)
+                || (direction < 0 && diff < -2);
             case Complemental_LongTerm:
-                if (thread.lastPitchLevel() != 0) {
-                    yield (thread.lastPitchLevel() > 0 && Pitch.diff(path) < 0)
-                    || (thread.lastPitchLevel() < 0 && Pitch.diff(path) > 0);
+                if (level != 0) {
+                    yield (level > 0 && diff < 0)
+                    || (level < 0 && diff > 0);
                 }
             case Complemental_ShortTerm:
-                yield (thread.lastPitchDirection() > 0 && Pitch.diff(path) < 0)
-                || (thread.lastPitchDirection() < 0 && Pitch.diff(path) > 0);
+                yield (direction > 0 && diff < 0)
+                || (direction < 0 && diff > 0);
             default:
                 yield true;
         } : switch (this) {
             case Directional_Conjunct->
-                Pitch.diff(path) == 2 || Pitch.diff(path) == -2;
+                diff == 2 || diff == -2;
             case Directional_Disjunct->
-                Pitch.diff(path) > 2 || Pitch.diff(path) < -2;
+                diff > 2 || diff < -2;
             default->
                 true;
         };
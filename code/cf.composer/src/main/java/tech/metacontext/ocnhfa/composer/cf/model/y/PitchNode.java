@@ -47,7 +47,7 @@ public class PitchNode extends StandardVertex {
     public int hashCode() {
       
         int hash = 5;
-        hash = 73 * hash + Objects.hashCode(this.pitch);
+        hash = 73 * hash + (Objects.isNull(this.pitch) ? 0 : this.pitch.ordinal());
         return hash;
     }
 
@@ -31,6 +31,14 @@ import tech.metacontext.ocnhfa.composer.cf.model.enums.Pitch;
  */
 public class PitchSpace extends StandardGraph<PitchPath, PitchNode> {
 
+  private static final int STATES = 2 * 3 * 3;
+
+  /**
+   * MusicThoughts allowing at least one path from each pitch, as bits of their
+   * ordinals, by state of the melody; see isFeasible().
+   */
+  private int[] feasible;
+
   public PitchSpace(double alpha, double beta) {
 
     super(alpha, beta);
@@ -54,6 +62,65 @@ public class PitchSpace extends StandardGraph<PitchPath, PitchNode> {
               .filter(Objects::nonNull)
               .forEach(this::addEdges);
     }
+    this.feasible = feasibility();
+  }
+
+  private int[] feasibility() {
+
+    var result = new int[Pitch.values().length * STATES];
+    for (Pitch pitch : Pitch.values()) {
+      var diffs = this.queryByVertex(pitch.getNode()).stream()
+              .mapToInt(Pitch::diff)
+              .toArray();
+      for (int length = 1; length <= 2; length++) {
+        for (int direction = -1; direction <= 1; direction++) {
+          for (int level = -1; level <= 1; level++) {
+            var state = state(pitch.ordinal(), length, direction, level);
+            for (var mt : MusicThought.values()) {
+              for (var diff : diffs) {
+                if (mt.allows(length, direction, level, diff)) {
+                  result[state] |= 1 << mt.ordinal();
+                  break;
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * States of a melody differ only in what the rules of MusicThought read of
+   * them: whether it is longer than one pitch, and the signs of its direction
+   * and level.
+   */
+  private static int state(int pitch, int length, int direction, int level) {
+
+    return ((pitch * 2 + (length > 1 ? 1 : 0)) * 3
+            + Integer.signum(direction) + 1) * 3
+            + Integer.signum(level) + 1;
+  }
+
+  /**
+   * If a MusicThought allows at least one path from the current pitch, looked
+   * up in a table built with the graph, so that a MusicThought is only chosen
+   * if it leads to a pitch.
+   *
+   * @param mt MusicThought.
+   * @param current current pitch.
+   * @param length length of the melody.
+   * @param direction direction of the last pitch path, as
+   * lastPitchDirection() of MusicThread.
+   * @param level level of the last pitch, as lastPitchLevel() of MusicThread.
+   * @return if the MusicThought leads to a pitch.
+   */
+  public boolean isFeasible(MusicThought mt, PitchNode current,
+          int length, int direction, int level) {
+
+    return (feasible[state(current.getPitch().ordinal(), length, direction, level)]
+            & 1 << mt.ordinal()) != 0;
   }
 
   @Override
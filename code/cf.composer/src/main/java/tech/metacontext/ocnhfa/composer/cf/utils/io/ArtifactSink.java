@@ -0,0 +1,433 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.utils.io;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Output sink writing artifacts, each a path and a content producer, on a
+ * bounded pool of writer threads, so that composing may go on while previous
+ * results are being written.
+ * <p>
+ * At most <code>capacity</code> artifacts are pending at a time; further
+ * submissions block until one of them is written. Artifacts are written as
+ * files under the root folder of the sink, or packed into one zip or tar
+ * archive with entry names relative to the root folder. Content producers run
+ * on the writer threads, after the submission returns, so they may only read
+ * state which is not changed afterwards.
+ * <p>
+ * The first failure is rethrown by the next submission, by flush() and by
+ * close().
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class ArtifactSink implements AutoCloseable {
+
+  public static final int DEFAULT_THREADS = 4;
+  public static final int DEFAULT_CAPACITY = 64;
+
+  @FunctionalInterface
+  public interface Content {
+
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  @FunctionalInterface
+  public interface TextContent {
+
+    void writeTo(Writer out) throws IOException;
+  }
+
+  public enum Format {
+
+    FILES, ZIP, TAR;
+
+    /**
+     * Find the format by name, case-insensitively.
+     *
+     * @param name "zip", "tar", or blank for plain files.
+     * @return Format.
+     */
+    public static Format of(String name) {
+
+      return Objects.isNull(name) || name.isBlank() ? FILES
+              : Format.valueOf(name.trim().toUpperCase());
+    }
+
+    public String extension() {
+
+      return "." + name().toLowerCase();
+    }
+  }
+
+  private final Path root;
+  private final Format format;
+  private final ExecutorService pool;
+  private final Semaphore capacity;
+  private final int permits;
+  private final OutputStream archive;
+  private IOException failure;
+
+  /**
+   * Write artifacts as files under the root folder, on the default pool.
+   *
+   * @param root root folder of relative artifact paths.
+   * @return ArtifactSink.
+   * @throws IOException
+   */
+  public static ArtifactSink of(Path root) throws IOException {
+
+    return of(root, Format.FILES, DEFAULT_THREADS, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Write artifacts in the given format, on the default pool. Archives are
+   * written next to the root folder, named after it.
+   *
+   * @param root root folder of artifact paths.
+   * @param format files, or the archive format.
+   * @return ArtifactSink.
+   * @throws IOException
+   */
+  public static ArtifactSink of(Path root, Format format) throws IOException {
+
+    return of(root, format, DEFAULT_THREADS, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Write artifacts in the given format.
+   *
+   * @param root root folder of artifact paths.
+   * @param format files, or the archive format.
+   * @param threads number of writer threads.
+   * @param capacity maximum number of pending artifacts.
+   * @return ArtifactSink.
+   * @throws IOException
+   */
+  public static ArtifactSink of(Path root, Format format, int threads, int capacity) throws IOException {
+
+    var file = format == Format.FILES ? null
+            : root.toAbsolutePath().normalize().resolveSibling(root.getFileName() + format.extension());
+    return new ArtifactSink(root, format, file, threads, capacity);
+  }
+
+  /**
+   * Pack artifacts into an archive, on the default pool.
+   *
+   * @param root root folder of artifact paths.
+   * @param file archive file, whose extension decides the format.
+   * @return ArtifactSink.
+   * @throws IOException
+   */
+  public static ArtifactSink archive(Path root, Path file) throws IOException {
+
+    var filename = file.getFileName().toString();
+    var format = Arrays.stream(Format.values())
+            .filter(f -> f != Format.FILES && filename.endsWith(f.extension()))
+            .findAny()
+            .orElseThrow(() -> new IOException("Not a zip or tar archive: " + file));
+    return new ArtifactSink(root, format, file, DEFAULT_THREADS, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Write artifacts as files on the calling thread, as soon as they are
+   * submitted.
+   *
+   * @return ArtifactSink.
+   */
+  public static ArtifactSink synchronous() {
+
+    try {
+      return new ArtifactSink(null, Format.FILES, null, 0, 1);
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private ArtifactSink(Path root, Format format, Path file, int threads, int capacity) throws IOException {
+
+    this.root = Objects.isNull(root) ? null : root.toAbsolutePath().normalize();
+    this.format = format;
+    this.permits = Math.max(1, capacity);
+    this.capacity = new Semaphore(permits);
+    this.pool = threads > 0 ? Executors.newFixedThreadPool(threads, daemon()) : null;
+    if (format == Format.FILES) {
+      this.archive = null;
+    } else {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+      var out = new BufferedOutputStream(Files.newOutputStream(file));
+      this.archive = format == Format.ZIP ? new ZipOutputStream(out) : out;
+    }
+  }
+
+  private static ThreadFactory daemon() {
+
+    var count = new AtomicInteger();
+    return runnable -> {
+      var thread = new Thread(runnable, "artifact-sink-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  public Format getFormat() {
+
+    return format;
+  }
+
+  /**
+   * Submit an artifact, blocking while the sink is full.
+   *
+   * @param path path of the artifact, relative to the root folder or within
+   * it.
+   * @param content content producer.
+   * @throws IOException if a previous artifact failed, or the path is outside
+   * the root folder of an archive.
+   */
+  public void write(Path path, Content content) throws IOException {
+
+    rethrow();
+    var target = resolve(path);
+    if (Objects.isNull(pool)) {
+      store(target, content);
+      return;
+    }
+    try {
+      capacity.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while submitting " + path, ex);
+    }
+    try {
+      pool.execute(() -> {
+        try {
+          store(target, content);
+        } catch (IOException | RuntimeException ex) {
+          fail(ex instanceof IOException io ? io : new IOException("Failed to write " + target, ex));
+        } finally {
+          capacity.release();
+        }
+      });
+    } catch (RuntimeException ex) {
+      capacity.release();
+      throw ex;
+    }
+  }
+
+  /**
+   * Submit a text artifact, written in UTF-8.
+   *
+   * @param path path of the artifact.
+   * @param content text content producer.
+   * @throws IOException
+   */
+  public void writeText(Path path, TextContent content) throws IOException {
+
+    write(path, out -> {
+      var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+      content.writeTo(writer);
+      writer.flush();
+    });
+  }
+
+  public void writeString(Path path, String text) throws IOException {
+
+    writeText(path, out -> out.write(text));
+  }
+
+  private Path resolve(Path path) throws IOException {
+
+    if (Objects.isNull(root)) {
+      return path;
+    }
+    var target = root.resolve(path).normalize();
+    if (archive != null && !target.startsWith(root)) {
+      throw new IOException(path + " is outside " + root);
+    }
+    return target;
+  }
+
+  private void store(Path target, Content content) throws IOException {
+
+    if (Objects.isNull(archive)) {
+      var parent = target.toAbsolutePath().getParent();
+      if (Objects.nonNull(parent)) {
+        Files.createDirectories(parent);
+      }
+      try (var out = new BufferedOutputStream(Files.newOutputStream(target))) {
+        content.writeTo(out);
+      }
+      return;
+    }
+    var bytes = new ByteArrayOutputStream();
+    content.writeTo(bytes);
+    var name = root.relativize(target).toString().replace(target.getFileSystem().getSeparator(), "/");
+    synchronized (archive) {
+      if (archive instanceof ZipOutputStream zip) {
+        zip.putNextEntry(new ZipEntry(name));
+        bytes.writeTo(zip);
+        zip.closeEntry();
+      } else {
+        TarHeader.write(archive, name, bytes.size());
+        bytes.writeTo(archive);
+        archive.write(new byte[TarHeader.padding(bytes.size())]);
+      }
+    }
+  }
+
+  private synchronized void fail(IOException ex) {
+
+    if (Objects.isNull(failure)) {
+      failure = ex;
+    } else {
+      failure.addSuppressed(ex);
+    }
+  }
+
+  private synchronized void rethrow() throws IOException {
+
+    if (Objects.nonNull(failure)) {
+      throw new IOException("Artifact sink failed.", failure);
+    }
+  }
+
+  /**
+   * Wait until all submitted artifacts are written.
+   *
+   * @throws IOException if any artifact failed.
+   */
+  public void flush() throws IOException {
+
+    try {
+      capacity.acquire(permits);
+      capacity.release(permits);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while flushing.", ex);
+    }
+    rethrow();
+  }
+
+  /**
+   * Write all pending artifacts, finish the archive if any, and stop the
+   * writer threads.
+   *
+   * @throws IOException if any artifact failed.
+   */
+  @Override
+  public void close() throws IOException {
+
+    try {
+      if (Objects.nonNull(pool)) {
+        pool.shutdown();
+        while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+          Logger.getLogger(ArtifactSink.class.getName()).log(Level.FINE, "Waiting for artifacts to be written ...");
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      fail(new IOException("Interrupted while closing.", ex));
+    } finally {
+      if (Objects.nonNull(archive)) {
+        synchronized (archive) {
+          if (format == Format.TAR) {
+            archive.write(new byte[TarHeader.BLOCK * 2]);
+          }
+          archive.close();
+        }
+      }
+    }
+    rethrow();
+  }
+
+  /**
+   * Headers of plain files in the ustar format.
+   */
+  private static class TarHeader {
+
+    static final int BLOCK = 512;
+
+    static int padding(long size) {
+
+      return (int) ((BLOCK - size % BLOCK) % BLOCK);
+    }
+
+    static void write(OutputStream out, String name, long size) throws IOException {
+
+      var header = new byte[BLOCK];
+      var bytes = name.getBytes(StandardCharsets.UTF_8);
+      var prefix = new byte[0];
+      if (bytes.length > 100) {
+        var split = name.indexOf('/');
+        while (split > 0 && name.substring(split + 1).getBytes(StandardCharsets.UTF_8).length > 100) {
+          split = name.indexOf('/', split + 1);
+        }
+        if (split <= 0 || name.substring(0, split).getBytes(StandardCharsets.UTF_8).length > 155) {
+          throw new IOException("Entry name too long for tar: " + name);
+        }
+        prefix = name.substring(0, split).getBytes(StandardCharsets.UTF_8);
+        bytes = name.substring(split + 1).getBytes(StandardCharsets.UTF_8);
+      }
+      System.arraycopy(bytes, 0, header, 0, bytes.length);
+      octal(header, 100, 8, 0644);
+      octal(header, 108, 8, 0);
+      octal(header, 116, 8, 0);
+      octal(header, 124, 12, size);
+      octal(header, 136, 12, System.currentTimeMillis() / 1000);
+      header[156] = '0';
+      System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+      System.arraycopy(prefix, 0, header, 345, prefix.length);
+      Arrays.fill(header, 148, 156, (byte) ' ');
+      var checksum = 0;
+      for (var b : header) {
+        checksum += b & 0xff;
+      }
+      octal(header, 148, 7, checksum);
+      out.write(header);
+    }
+
+    /**
+     * Write a zero-padded octal number ending with NUL.
+     */
+    private static void octal(byte[] header, int offset, int length, long value) {
+
+      var digits = String.format("%0" + (length - 1) + "o", value);
+      System.arraycopy(digits.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+      header[offset + length - 1] = 0;
+    }
+  }
+}
@@ -15,11 +15,7 @@
  */
 package tech.metacontext.ocnhfa.composer.cf.utils.io;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +25,7 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
-import org.dom4j.DocumentHelper;
+import org.dom4j.io.SAXReader;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.PROJECT_DIR;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.TEST_DIR;
 import tech.metacontext.ocnhfa.composer.cf.model.Studio;
@@ -52,16 +48,12 @@ public class MusicReader {
     return doc;
   }
 
-  public synchronized static Document getXMLFromFile(File xml_source) {
+  public static Document getXMLFromFile(File xml_source) {
 
-    try ( var fr = new FileReader(xml_source);
-             var br = new BufferedReader(fr)) {
+    try {
       System.out.println("Reading " + xml_source.getPath() + " ...");
-      var doc = br.lines().collect(Collectors.joining(" "));
-      return DocumentHelper.parseText(doc);
-    } catch (FileNotFoundException ex) {
-      Logger.getLogger(Studio.class.getName()).log(Level.SEVERE, null, ex);
-    } catch (IOException | DocumentException ex) {
+      return new SAXReader().read(xml_source);
+    } catch (DocumentException ex) {
       Logger.getLogger(Studio.class.getName()).log(Level.SEVERE, null, ex);
     }
     return null;
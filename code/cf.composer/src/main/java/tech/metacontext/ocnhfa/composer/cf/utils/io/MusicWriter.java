@@ -15,14 +15,13 @@
  */
 package tech.metacontext.ocnhfa.composer.cf.utils.io;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
 import org.dom4j.DocumentHelper;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraphFile;
 import tech.metacontext.ocnhfa.composer.cf.model.Composer;
 import tech.metacontext.ocnhfa.composer.cf.model.MusicThread;
 import tech.metacontext.ocnhfa.composer.cf.model.constraints.MusicThreadRating;
@@ -39,36 +38,49 @@ public class MusicWriter {
     * @param composer
     * @return composer folder in File object.
     */
-   public synchronized static File saveComposer(String project_dir, Composer composer) {
+   public static File saveComposer(String project_dir, Composer composer) {
 
-      File parent = new File(project_dir, "Composer-" + composer.getId());
-      parent.mkdirs();
-      // write composer.xml
-      try ( var fw_composer = new FileWriter(new File(parent, "composer.xml"));
-               var bw_composer = new BufferedWriter(fw_composer);) {
-         bw_composer.write(composer.asXML());
-      } catch (IOException ex) {
-         composer.getLogger().log(Level.SEVERE, null, ex);
-      }
-      // write graph_x.graphviz
-      try ( var fw_graph_x = new FileWriter(new File(parent, "graph_x.graphviz"));
-               var bw_graph_x = new BufferedWriter(fw_graph_x);) {
-         bw_graph_x.write(composer.getX().asGraphviz());
-      } catch (IOException ex) {
-         composer.getLogger().log(Level.SEVERE, null, ex);
-      }
-      // write graph_y.graphviz
-      try ( var fw_graph_y = new FileWriter(new File(parent, "graph_y.graphviz"));
-               var bw_graph_y = new BufferedWriter(fw_graph_y);) {
-         bw_graph_y.write(composer.getY().asGraphviz());
+      try ( var sink = ArtifactSink.synchronous()) {
+         return saveComposer(sink, project_dir, composer);
       } catch (IOException ex) {
          composer.getLogger().log(Level.SEVERE, null, ex);
       }
+      return new File(project_dir, "Composer-" + composer.getId());
+   }
+
+   /**
+    * Submit composer.xml, the Graphviz and binary files of graphs x and y to
+    * the sink. The composer must not change until they are written.
+    *
+    * @param sink artifact sink.
+    * @param project_dir
+    * @param composer
+    * @return composer folder in File object.
+    * @throws IOException if the sink failed.
+    */
+   public static File saveComposer(ArtifactSink sink, String project_dir, Composer composer) throws IOException {
+
+      File parent = new File(project_dir, "Composer-" + composer.getId());
+      var folder = parent.toPath();
+      sink.writeText(folder.resolve("composer.xml"), out -> out.write(composer.asXML()));
+      sink.writeText(folder.resolve("graph_x.graphviz"), composer.getX()::writeGraphviz);
+      sink.writeText(folder.resolve("graph_y.graphviz"), composer.getY()::writeGraphviz);
+      sink.write(folder.resolve("graph_x.bin"), out -> StandardGraphFile.write(composer.getX(), out));
+      sink.write(folder.resolve("graph_y.bin"), out -> StandardGraphFile.write(composer.getY(), out));
       return parent;
    }
 
    public static void saveRoute(File file, MusicThread thread) {
 
+      try ( var sink = ArtifactSink.synchronous()) {
+         saveRoute(sink, file, thread);
+      } catch (IOException ex) {
+         Logger.getLogger(MusicThread.class.getName()).log(Level.SEVERE, null, ex);
+      }
+   }
+
+   public static void saveRoute(ArtifactSink sink, File file, MusicThread thread) throws IOException {
+
       var doc = DocumentHelper.createDocument();
       var root = doc.addElement("MusicThread");
       root.addElement("mode")
@@ -107,13 +119,7 @@ public class MusicWriter {
                             route.addElement("pheromoneTrail").addText(String.valueOf(entry.getValue()));
                          });
               });
-      synchronized (MusicWriter.class) {
-         try ( var fw = new FileWriter(file);
-                  var bw = new BufferedWriter(fw);) {
-            bw.write(doc.asXML());
-         } catch (IOException ex) {
-            Logger.getLogger(MusicThread.class.getName()).log(Level.SEVERE, null, ex);
-         }
-      }
+      var xml = doc.asXML();
+      sink.writeString(file.toPath(), xml);
    }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.utils.io.musicxml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.xml.stream.XMLStreamException;
+import tech.metacontext.ocnhfa.antsomg.impl.XMLStreamElementWriter;
+
+/**
+ * One-pass StAX writer of partwise MusicXML scores, writing elements as they
+ * come instead of building a proxymusic object tree.
+ * <p>
+ * The output is laid out as the proxymusic marshaller does with an indentation
+ * of 2: empty elements are written as <code>&lt;x/&gt;</code>, or expanded
+ * when they have attributes, and every part and measure is preceded by a
+ * separator comment. Files ending with {@value #MXL} are written as
+ * compressed MusicXML archives.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class MusicXMLWriter extends XMLStreamElementWriter<MusicXMLWriter> {
+
+  public static final String VERSION = "3.0.1";
+  public static final String DOCTYPE = "<!DOCTYPE score-partwise PUBLIC"
+          + " \"-//Recordare//DTD MusicXML " + VERSION + " Partwise//EN\""
+          + " \"http://www.musicxml.org/dtds/partwise.dtd\">";
+  public static final String SOFTWARE = "cf.composer MusicXMLWriter";
+  public static final String MXL = ".mxl";
+
+  private static final String MIMETYPE = "application/vnd.recordare.musicxml";
+  private static final String CONTAINER = """
+          <?xml version="1.0" encoding="UTF-8"?>
+          <container>
+            <rootfiles>
+              <rootfile full-path="%s" media-type="application/vnd.recordare.musicxml+xml"/>
+            </rootfiles>
+          </container>
+          """;
+  private static final String PART_SEPARATOR = "= = = = = = = = = = = = = = = = = = = = = = = = = = = = =";
+  private static final String MEASURE_SEPARATOR = "=======================================================";
+
+  /**
+   * Write a score to a file, compressed if the file name ends with
+   * {@value #MXL}.
+   *
+   * @param file target file, truncated if it exists.
+   * @return MusicXMLWriter with <code>score-partwise</code> opened.
+   * @throws IOException
+   */
+  public static MusicXMLWriter of(Path file) throws IOException {
+
+    var filename = file.getFileName().toString();
+    if (!filename.endsWith(MXL)) {
+      return new MusicXMLWriter(Files.newBufferedWriter(file), true);
+    }
+    var rootfile = filename.substring(0, filename.length() - MXL.length()) + ".musicxml";
+    var zip = new ZipOutputStream(Files.newOutputStream(file));
+    try {
+      var mimetype = MIMETYPE.getBytes(StandardCharsets.US_ASCII);
+      var crc = new CRC32();
+      crc.update(mimetype);
+      var entry = new ZipEntry("mimetype");
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(mimetype.length);
+      entry.setCrc(crc.getValue());
+      zip.putNextEntry(entry);
+      zip.write(mimetype);
+      zip.putNextEntry(new ZipEntry("META-INF/container.xml"));
+      zip.write(String.format(CONTAINER, rootfile).getBytes(StandardCharsets.UTF_8));
+      zip.putNextEntry(new ZipEntry(rootfile));
+    } catch (IOException ex) {
+      zip.close();
+      throw ex;
+    }
+    return new MusicXMLWriter(new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8)), true);
+  }
+
+  /**
+   * Write a score to a writer, which is flushed but left open on close().
+   *
+   * @param out target writer.
+   * @return MusicXMLWriter with <code>score-partwise</code> opened.
+   * @throws IOException
+   */
+  public static MusicXMLWriter of(Writer out) throws IOException {
+
+    return new MusicXMLWriter(out, false);
+  }
+
+  private MusicXMLWriter(Writer out, boolean owned) throws IOException {
+
+    super(out, owned, true, EmptyElements.COLLAPSED_WITHOUT_ATTRIBUTES);
+    try {
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeCharacters("\n");
+      writer.writeDTD(DOCTYPE);
+      writer.writeCharacters("\n");
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+    start("score-partwise").attribute("version", VERSION);
+  }
+
+  /**
+   * Write the work title, the composer and the encoding of the score.
+   *
+   * @param title work title.
+   * @param composer composer.
+   * @param date encoding date.
+   * @return this writer.
+   * @throws IOException
+   */
+  public MusicXMLWriter header(String title, String composer, LocalDate date) throws IOException {
+
+    start("work").element("work-title", title).end();
+    start("identification");
+    start("creator").attribute("type", "composer").text(composer).end();
+    start("encoding");
+    element("software", SOFTWARE);
+    element("encoding-date", date.toString());
+    end();
+    return end();
+  }
+
+  /**
+   * Write a score-part of the part-list.
+   *
+   * @param id part id.
+   * @param name part name.
+   * @param name_display displayed part name.
+   * @param abbreviation part abbreviation.
+   * @param instrument instrument name.
+   * @param channel MIDI channel.
+   * @param program MIDI program.
+   * @return this writer.
+   * @throws IOException
+   */
+  public MusicXMLWriter scorePart(String id, String name, String name_display,
+          String abbreviation, String instrument, int channel, int program) throws IOException {
+
+    var instrument_id = id + "-" + id.replace("P", "I");
+    start("score-part").attribute("id", id);
+    element("part-name", name);
+    start("part-name-display");
+    start("display-text").attribute("font-size", "10").text(name_display).end();
+    end();
+    element("part-abbreviation", abbreviation);
+    start("part-abbreviation-display");
+    start("display-text").attribute("font-size", "10").text(abbreviation).end();
+    end();
+    start("score-instrument").attribute("id", instrument_id);
+    element("instrument-name", instrument);
+    end();
+    start("midi-instrument").attribute("id", instrument_id);
+    element("midi-channel", String.valueOf(channel));
+    element("midi-program", String.valueOf(program));
+    end();
+    return end();
+  }
+
+  /**
+   * Open a part, preceded by a separator comment.
+   *
+   * @param id part id.
+   * @return this writer.
+   * @throws IOException
+   */
+  public MusicXMLWriter part(String id) throws IOException {
+
+    comment(PART_SEPARATOR);
+    return start("part").attribute("id", id);
+  }
+
+  /**
+   * Open a measure, preceded by a separator comment.
+   *
+   * @param number measure number.
+   * @return this writer.
+   * @throws IOException
+   */
+  public MusicXMLWriter measure(int number) throws IOException {
+
+    comment(MEASURE_SEPARATOR);
+    return start("measure").attribute("number", String.valueOf(number));
+  }
+
+  @Override
+  protected MusicXMLWriter self() {
+
+    return this;
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.utils.log;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.LOG_BUFFER_CAPACITY;
+
+/**
+ * Handler writing log records to a file on a background writer, formatted as
+ * JSON lines by default.
+ * <p>
+ * Records are handed over through a bounded lock-free ring buffer, in which
+ * each slot carries a sequence number telling whether it is free or holds a
+ * record, so that the threads logging only claim a slot by a compare-and-set
+ * and never take a lock. One writer thread, shared by all handlers, drains
+ * the buffers in turn, formats the records and flushes each file whenever its
+ * buffer runs empty; it parks while all buffers are empty, until a thread
+ * logging wakes it. A thread logging into a full buffer waits for a slot
+ * rather than drops the record, so that traces are kept complete.
+ * <p>
+ * Records are formatted by the writer, after publish() returns: the
+ * parameters of a record must not change once logged, and messages built
+ * from mutable objects are to be logged by a Supplier, which the Logger calls
+ * only for records it publishes.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class AsyncLogHandler extends Handler {
+
+  /**
+   * Back-off of a thread waiting for the writer, to free a slot or to flush.
+   */
+  private static final long WAIT_NANOS = 100_000L;
+  /**
+   * Handlers open, served by the one writer.
+   */
+  private static final Set<AsyncLogHandler> HANDLERS = ConcurrentHashMap.newKeySet();
+  private static final Thread WRITER = new Thread(AsyncLogHandler::drainAll, "log-writer");
+  /**
+   * Whether the writer is about to park, to be woken by the threads logging.
+   */
+  private static volatile boolean idle;
+
+  static {
+    WRITER.setDaemon(true);
+    WRITER.start();
+  }
+
+  private final int mask;
+  private final AtomicReferenceArray<LogRecord> slots;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head;
+  private volatile long flushed;
+  private volatile boolean closed;
+  private final CountDownLatch drained = new CountDownLatch(1);
+  private final Writer out;
+
+  /**
+   * Open the file, replacing it if it exists, and hand it to the writer.
+   *
+   * @param path path of the log file.
+   * @throws IOException if the file cannot be opened.
+   */
+  public AsyncLogHandler(Path path) throws IOException {
+
+    var capacity = Integer.highestOneBit(Math.max(2, LOG_BUFFER_CAPACITY - 1)) << 1;
+    this.mask = capacity - 1;
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+    this.setFormatter(new JsonLinesFormatter());
+    HANDLERS.add(this);
+  }
+
+  @Override
+  public void publish(LogRecord record) {
+
+    if (closed || !isLoggable(record)) {
+      return;
+    }
+    while (!offer(record)) {
+      if (closed) {
+        return;
+      }
+      LockSupport.unpark(WRITER);
+      LockSupport.parkNanos(this, WAIT_NANOS);
+    }
+    if (idle) {
+      LockSupport.unpark(WRITER);
+    }
+  }
+
+  /**
+   * Claim the slot at the tail, if it has been drained.
+   *
+   * @return false if the buffer is full.
+   */
+  private boolean offer(LogRecord record) {
+
+    var position = tail.get();
+    while (true) {
+      var slot = (int) position & mask;
+      var gap = sequences.get(slot) - position;
+      if (gap == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          slots.set(slot, record);
+          sequences.set(slot, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (gap < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Loop of the writer, draining the handlers in turn and parking once none
+   * of them has anything to do.
+   */
+  private static void drainAll() {
+
+    while (true) {
+      var busy = false;
+      for (var handler : HANDLERS) {
+        busy |= handler.drain();
+      }
+      if (!busy) {
+        idle = true;
+        if (HANDLERS.stream().noneMatch(AsyncLogHandler::pending)) {
+          LockSupport.park(HANDLERS);
+        }
+        idle = false;
+      }
+    }
+  }
+
+  private boolean pending() {
+
+    var position = head;
+    return sequences.get((int) position & mask) == position + 1
+            || flushed < position || closed;
+  }
+
+  /**
+   * Write at most a buffer of records, so that the handlers take turns, and
+   * flush the file once the buffer runs empty.
+   *
+   * @return false if there was nothing to do.
+   */
+  private boolean drain() {
+
+    var position = head;
+    var written = 0;
+    while (written <= mask && sequences.get((int) position & mask) == position + 1) {
+      var slot = (int) position & mask;
+      var record = slots.get(slot);
+      slots.set(slot, null);
+      sequences.set(slot, position + mask + 1);
+      head = ++position;
+      write(record);
+      written++;
+    }
+    if (written > mask) {
+      return true;
+    }
+    if (closed && position == tail.get()) {
+      flush(position);
+      HANDLERS.remove(this);
+      drained.countDown();
+      return true;
+    }
+    if (flushed < position) {
+      flush(position);
+      return true;
+    }
+    return false;
+  }
+
+  private void write(LogRecord record) {
+
+    try {
+      out.write(getFormatter().format(record));
+    } catch (IOException | RuntimeException ex) {
+      reportError(null, ex, ErrorManager.WRITE_FAILURE);
+    }
+  }
+
+  private void flush(long position) {
+
+    try {
+      out.flush();
+    } catch (IOException ex) {
+      reportError(null, ex, ErrorManager.FLUSH_FAILURE);
+    }
+    flushed = position;
+  }
+
+  /**
+   * Wait until the records published so far are written and flushed.
+   */
+  @Override
+  public void flush() {
+
+    var target = tail.get();
+    while (flushed < target && drained.getCount() > 0) {
+      LockSupport.unpark(WRITER);
+      LockSupport.parkNanos(this, WAIT_NANOS);
+    }
+  }
+
+  /**
+   * Write the records published so far, release the file from the writer and
+   * close it.
+   */
+  @Override
+  public void close() {
+
+    closed = true;
+    LockSupport.unpark(WRITER);
+    try {
+      drained.await();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      out.close();
+    } catch (IOException ex) {
+      reportError(null, ex, ErrorManager.CLOSE_FAILURE);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package tech.metacontext.ocnhfa.composer.cf.utils.log;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Objects;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * Formatter of log records as JSON lines, one object per record:
+ * <pre>
+ * {"time":"...","seq":0,"level":"INFO","thread":1,"message":"...","thrown":"..."}
+ * </pre>
+ * The source class and method are left out, as inferring them walks the
+ * stack of the caller.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class JsonLinesFormatter extends Formatter {
+
+  @Override
+  public String format(LogRecord record) {
+
+    var line = new StringBuilder(128)
+            .append("{\"time\":\"").append(record.getInstant())
+            .append("\",\"seq\":").append(record.getSequenceNumber())
+            .append(",\"level\":\"").append(record.getLevel().getName())
+            .append("\",\"thread\":").append(record.getLongThreadID())
+            .append(",\"message\":");
+    quote(line, Objects.requireNonNullElse(formatMessage(record), ""));
+    if (Objects.nonNull(record.getThrown())) {
+      var trace = new StringWriter();
+      record.getThrown().printStackTrace(new PrintWriter(trace));
+      line.append(",\"thrown\":");
+      quote(line, trace.toString());
+    }
+    return line.append("}\n").toString();
+  }
+
+  private static void quote(StringBuilder line, String value) {
+
+    line.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      switch (c) {
+        case '"' ->
+          line.append("\\\"");
+        case '\\' ->
+          line.append("\\\\");
+        case '\n' ->
+          line.append("\\n");
+        case '\r' ->
+          line.append("\\r");
+        case '\t' ->
+          line.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            line.append(String.format("\\u%04x", (int) c));
+          } else {
+            line.append(c);
+          }
+        }
+      }
+    }
+    line.append('"');
+  }
+}
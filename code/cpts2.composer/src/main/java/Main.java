@@ -14,32 +14,40 @@
  * limitations under the License.
  */
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.io.FileWriter;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.time.Instant;
-import java.time.ZoneId;
-import org.dom4j.DocumentHelper;
-import org.dom4j.io.OutputFormat;
-import org.dom4j.io.XMLWriter;
 
 import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink;
 import art.cctcc.music.cpt.model.CptCantusFirmus;
 import art.cctcc.music.utils.JeppesenCF;
-import art.cctcc.music.utils.io.CFXMLReader;
+import art.cctcc.music.utils.io.CFCorpus;
 
+import art.cctcc.music.composer.cpts2.framework.Cpt2Checkpoint;
 import art.cctcc.music.composer.cpts2.framework.Cpt2Composer;
-import art.cctcc.music.composer.cpts2.framework.Cpt2Thread;
+import art.cctcc.music.composer.cpts2.framework.Cpt2Job;
+import art.cctcc.music.composer.cpts2.framework.Cpt2Scheduler;
+import art.cctcc.music.composer.cpts2.graphs.x.Cpt2MusicSpace;
 import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfGraphMode;
 import art.cctcc.music.composer.cpts2.utils.Tools;
 import static art.cctcc.music.composer.cpts2.utils.Constants.*;
-import static art.cctcc.music.composer.cpts2.utils.Tools.getIndexOfFile;
+import static art.cctcc.music.cpt.model.enums.CptTask.DEVELOP_PRIMARY;
+import static java.nio.file.StandardCopyOption.*;
 
 /**
  *
@@ -51,9 +59,41 @@ public class Main {
   private static boolean wholeNoteCadence;
   private static Cpt2CfGraphMode y_mode;
   private static String cf_source;
+  private static String[] arguments;
+  private static long id;
+  private static Resume resume;
+
+  /**
+   * Checkpoint file content: the command-line args and id of the run, the
+   * index of the cantus firmus in progress, and the checkpoint of its
+   * composer.
+   */
+  private record Resume(String[] args, long id, int index, Cpt2Checkpoint checkpoint)
+          implements Serializable {
+
+  }
 
   public static void main(String[] args) throws URISyntaxException {
 
+    if (args.length > 1 && args[0].toLowerCase().equals("resume")) {
+      try (var in = new ObjectInputStream(Files.newInputStream(Path.of(args[1])))) {
+        resume = (Resume) in.readObject();
+      } catch (IOException | ClassNotFoundException ex) {
+        Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+        System.exit(-1);
+      }
+      System.out.printf("Resuming %s from cf %d, %s, thread %d\n", args[1],
+              resume.index() + 1, resume.checkpoint().task(), resume.checkpoint().ant());
+      main(resume.args());
+      return;
+    }
+    arguments = args;
+
+    if (args.length > 0 && args[0].toLowerCase().equals("batch")) {
+      batch(args);
+      return;
+    }
+
     if (args.length > 0 && args[0].toLowerCase().equals("help")) {
       System.out.println(
               """
@@ -67,6 +107,18 @@ public class Main {
                 * JEP: cf numbers(1-22)
                 * DEF: [3] composer(0-4), [4...] cf numbers(31, 51, 41, 48, 36)
 
+              or
+
+              resume [checkpoint] - resume an interrupted run from its checkpoint
+
+              or
+
+              batch [modes] [options] [cf] [...] - run a job matrix in parallel
+                [modes]   - comma-separated modes, or ALL
+                [options] - comma-separated options, NONE for neither
+                [cf] [...] - as above
+              batch resume [manifest] - resume an interrupted batch
+
               ========================
               explaination
               ========================
@@ -90,11 +142,24 @@ public class Main {
 
               Run with Jeppesen cf no. 22 in dissonant-style-twisted rules with options WNC.
               mvn exec:java@main -Dexec.args="dis wnc jep 22"
+
+              Resume an interrupted run from the checkpoint left in the projects folder.
+              mvn exec:java@main -Dexec.args="resume projects/1650000000.checkpoint"
+
+              Pack the output of a run into projects/[id].zip (or .tar) instead of separate files.
+              mvn exec:java@main -Dexec.args="con - jep 1 2 3" -Darchive=zip
+
+              Run Jeppesen cf no. 1 to 4 in all modes, with and without options, on 4 workers.
+              mvn exec:java@main -Dexec.args="batch all -,none jep 1 2 3 4" -Dworkers=4
+
+              Resume an interrupted batch, skipping the jobs done.
+              mvn exec:java@main -Dexec.args="batch resume projects/1650000000.manifest"
               """);
       System.exit(0);
     }
 
     StandardParameters.initialization(Instant.now().getEpochSecond());
+    id = Objects.isNull(resume) ? Instant.now().getEpochSecond() : resume.id();
 
     y_mode = args.length > 0 ? Arrays.stream(Cpt2CfGraphMode.values())
             .filter(m -> m.abbr.equals(args[0].toUpperCase()))
@@ -115,8 +180,17 @@ public class Main {
     }
     System.out.println("CF: " + cf_source);
 
-    var numbers = args.length > 3 ? Arrays.stream(args)
-            .skip(cf_source.equals("def") ? 4 : 3)
+    compose(getCFs(args, 2));
+  }
+
+  /**
+   * Get the cantus firmi of the command-line args: [cf] [...] from the given
+   * position.
+   */
+  private static List<CptCantusFirmus> getCFs(String[] args, int position) {
+
+    var numbers = args.length > position + 1 ? Arrays.stream(args)
+            .skip(position + (cf_source.equals("def") ? 2 : 1))
             .mapToInt(Integer::valueOf)
             .distinct()
             .filter(i -> i > 0)
@@ -124,98 +198,234 @@ public class Main {
             .toArray() : new int[]{1};
     System.out.println("Number(s): " + Arrays.toString(numbers));
 
-    switch (cf_source) {
-      case "def" -> compose(args.length > 3 ? args[3] : "0", numbers);
-      case "jep" -> compose(numbers);
-    }
+    return switch (cf_source) {
+      case "def" -> getCFs(args.length > position + 1 ? args[position + 1] : "0", numbers);
+      default -> getCFs(numbers);
+    };
   }
 
   public static void compose(String composer, int... numbers) {
 
+    compose(getCFs(composer, numbers));
+  }
+
+  private static List<CptCantusFirmus> getCFs(String composer, int... numbers) {
+
     System.out.println("Composer: " + composer);
-    var xml_files_path = CF_PATH.resolve(CF_COMPOSER_PREFIX + composer)
-            .resolve("cantus_firmus");
-    System.out.println("xml_files_path = " + xml_files_path);
-    var xml_files = xml_files_path.toFile().listFiles(file -> file.getName().endsWith(".xml"));
-    var indices = Arrays.stream(numbers).boxed().toList();
-    var cf_list = Arrays.stream(xml_files)
-            .sorted(Comparator.comparing(getIndexOfFile::apply))
-            .map(CFXMLReader::getCptCantusFirmusFromXML)
-            .filter(Tools.CFFilter)
-            .toList();
-    var cfs = cf_list.stream()
-            .filter(cf -> numbers.length == 0 || indices.contains(cf_list.indexOf(cf) + 1))
-            .peek(cf -> System.out.printf("Fetching %s (%d) ...\n", cf.getId(), cf_list.indexOf(cf) + 1))
+    var model_path = CF_PATH.resolve(CF_COMPOSER_PREFIX + composer);
+    System.out.println("model_path = " + model_path);
+    List<CptCantusFirmus> cf_list;
+    try {
+      cf_list = CFCorpus.getInstance(model_path).stream()
+              .parallel()
+              .filter(Tools.CFFilter)
+              .toList();
+    } catch (IOException ex) {
+      Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+      return List.of();
+    }
+    var indices = Arrays.stream(numbers).boxed().collect(Collectors.toSet());
+    return IntStream.range(0, cf_list.size())
+            .filter(i -> numbers.length == 0 || indices.contains(i + 1))
+            .peek(i -> System.out.printf("Fetching %s (%d) ...\n", cf_list.get(i).getId(), i + 1))
+            .mapToObj(cf_list::get)
             .toList();
-    compose(cfs);
   }
 
   public static void compose(int... jepNumber) {
 
-    var cfs = Arrays.stream(jepNumber)
+    compose(getCFs(jepNumber));
+  }
+
+  private static List<CptCantusFirmus> getCFs(int... jepNumber) {
+
+    return Arrays.stream(jepNumber)
             .mapToObj(JeppesenCF.getInstance()::getCFByNumber)
             .toList();
-    compose(cfs);
   }
 
-  public static void compose(List<CptCantusFirmus> cfs) {
-
-    var id = Instant.now().getEpochSecond();
+  /**
+   * Run a job matrix of modes × options × cantus firmi with Cpt2Scheduler, on
+   * the number of workers given by the system property <code>workers</code>,
+   * by default the number of processors. Jobs are seeded from the system
+   * property <code>seed</code>, by default the id of the batch.
+   */
+  public static void batch(String[] args) {
 
-    cfs.stream().forEach(cf -> {
-      try {
-        var c_treble = Cpt2Composer.getInstance(
-                String.format("%s on %s (%s)", id, cf.getId().replace("_", " "), "treble"),
-                cf, true, beginWithRest, wholeNoteCadence);
-        c_treble.setFraction_mode(StandardGraph.FractionMode.Power_Multiply);
-        c_treble.developPrimary(y_mode);
-        var folder = getStandardOutputFolder("" + id, c_treble);
-
-        saveSettings(folder.resolve("settings.xml"), id, cf);
-
-        c_treble.compose();
-        c_treble.save(folder);
-
-        var c_bass = Cpt2Composer.getInstance(
-                String.format("%s on %s (%s)", id, cf.getId().replace("_", " "), "bass"),
-                cf, false, beginWithRest, wholeNoteCadence);
-        c_bass.setFraction_mode(StandardGraph.FractionMode.Power_Multiply);
-        c_bass.developSecondary(y_mode, c_treble.getX());
-        c_bass.compose();
-        c_bass.save(folder);
-      } catch (Exception ex) {
-        Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
-        System.exit(-1);
+    var resumed = args.length > 2 && args[1].toLowerCase().equals("resume");
+    Cpt2Scheduler scheduler;
+    try {
+      if (resumed) {
+        scheduler = Cpt2Scheduler.resume(Path.of(args[2]));
+        System.out.printf("Resuming batch %s\n", args[2]);
+        args = scheduler.getArgs();
+      } else {
+        id = Instant.now().getEpochSecond();
+        scheduler = Cpt2Scheduler.getInstance(DIR_PROJECT_OUTPUT, id,
+                Long.getLong("seed", id), args,
+                args.length > 3 ? args[3].toLowerCase() : "jep");
       }
-    });
+    } catch (IOException ex) {
+      Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+      System.exit(-1);
+      return;
+    }
+    id = scheduler.getId();
+    var modes = args.length > 1 && !args[1].equalsIgnoreCase("all")
+            ? Arrays.stream(args[1].split(","))
+                    .map(abbr -> Arrays.stream(Cpt2CfGraphMode.values())
+                    .filter(m -> m.abbr.equalsIgnoreCase(abbr))
+                    .findAny().orElseThrow(() -> new IllegalArgumentException("Unrecognized mode: " + abbr)))
+                    .distinct()
+                    .toList()
+            : List.of(Cpt2CfGraphMode.values());
+    var options = Arrays.stream(args.length > 2 ? args[2].split(",") : new String[]{"-"})
+            .map(Cpt2Job.Options::of)
+            .distinct()
+            .toList();
+    cf_source = args.length > 3 ? args[3].toLowerCase() : "jep";
+    if (!List.of("def", "jep").contains(cf_source)) {
+      System.out.println("Unrecognized cf source: " + cf_source);
+      System.exit(-1);
+    }
+    System.out.println("Y_MODE(s) = " + modes);
+    System.out.println("Options = " + options);
+    System.out.println("CF: " + cf_source);
+    var jobs = Cpt2Job.matrix(modes, options, getCFs(args, 3));
+    var workers = Integer.getInteger("workers", Runtime.getRuntime().availableProcessors());
+    System.out.printf("Batch %d: %d job(s) on %d worker(s), manifest %s\n",
+            id, jobs.size(), workers, scheduler.getManifest());
+
+    Map<String, Cpt2Job.State> states;
+    try (var sink = getArtifactSink(id + (resumed ? "_resumed_" + Instant.now().getEpochSecond() : ""))) {
+      states = scheduler.run(jobs, sink, workers);
+    } catch (IOException | InterruptedException ex) {
+      Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+      System.exit(-1);
+      return;
+    }
+    var failed = jobs.stream()
+            .map(Cpt2Job::key)
+            .filter(key -> states.get(key) != Cpt2Job.State.DONE)
+            .toList();
+    if (!failed.isEmpty()) {
+      System.out.println("Failed job(s): " + failed);
+      System.out.println("Resume with: batch resume " + scheduler.getManifest());
+      System.exit(-1);
+    }
     System.out.println("All writings finished.");
   }
 
-  private static void saveSettings(Path path, long id, CptCantusFirmus cf) {
-
-    var doc = DocumentHelper.createDocument();
-    var root = doc.addElement("cpts2.composer")
-            .addAttribute("id", "" + id);
-    root.addElement("timestamp")
-            .addText(Instant.ofEpochSecond(id).atZone(ZoneId.systemDefault()).toString());
-    root.addElement("y_mode")
-            .addText(y_mode.toString());
-    root.addElement("BWR")
-            .addText("" + beginWithRest);
-    root.addElement("WNC")
-            .addText("" + wholeNoteCadence);
-    root.addElement("cf_source")
-            .addText(cf_source);
-    root.addElement("cantus_firmus")
-            .addAttribute("id", cf.getId())
-            .addText(cf.getMelody().toString());
-    var format = OutputFormat.createPrettyPrint();
-    format.setExpandEmptyElements(true);
-    try (var fw = new FileWriter(path.toFile())) {
-      var writer = new XMLWriter(fw, format);
-      writer.write(doc);
+  public static void compose(List<CptCantusFirmus> cfs) {
+
+    var failed = false;
+    try (var sink = getArtifactSink()) {
+      for (int index = Objects.isNull(resume) ? 0 : resume.index(); index < cfs.size(); index++) {
+        var cf = cfs.get(index);
+        var resuming = Objects.isNull(resume) ? null : resume.checkpoint();
+        resume = null;
+        try {
+          Cpt2MusicSpace x = null;
+          if (Objects.isNull(resuming) || resuming.task() == DEVELOP_PRIMARY) {
+            var c_treble = Cpt2Composer.getInstance(
+                    String.format("%s on %s (%s)", id, cf.getId().replace("_", " "), "treble"),
+                    cf, true, beginWithRest, wholeNoteCadence);
+            c_treble.setFraction_mode(StandardGraph.FractionMode.Power_Multiply);
+            c_treble.setCheckpointer(checkpointer(index));
+            if (Objects.isNull(resuming))
+              c_treble.developPrimary(y_mode);
+            else
+              c_treble.resume(y_mode, resuming);
+            var folder = getStandardOutputFolder("" + id, c_treble);
+
+            saveSettings(sink, folder.resolve("settings.xml"), id, cf);
+
+            c_treble.compose();
+            c_treble.save(sink, folder);
+            x = c_treble.getX();
+            resuming = null;
+          }
+
+          var c_bass = Cpt2Composer.getInstance(
+                  String.format("%s on %s (%s)", id, cf.getId().replace("_", " "), "bass"),
+                  cf, false, beginWithRest, wholeNoteCadence);
+          c_bass.setFraction_mode(StandardGraph.FractionMode.Power_Multiply);
+          c_bass.setCheckpointer(checkpointer(index));
+          if (Objects.isNull(resuming))
+            c_bass.developSecondary(y_mode, x);
+          else
+            c_bass.resume(y_mode, resuming);
+          c_bass.compose();
+          c_bass.save(sink, getStandardOutputFolder("" + id, c_bass));
+        } catch (Exception ex) {
+          Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+          failed = true;
+          break;
+        }
+      }
     } catch (IOException ex) {
-      Logger.getLogger(Cpt2Thread.class.getName()).log(Level.SEVERE, null, ex);
+      Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+      failed = true;
     }
+    if (failed)
+      System.exit(-1);
+    try {
+      Files.deleteIfExists(getCheckpointFile());
+    } catch (IOException ex) {
+      Logger.getLogger(Main.class.getName()).log(Level.WARNING, null, ex);
+    }
+    System.out.println("All writings finished.");
+  }
+
+  /**
+   * Scores are written in the background while the next cantus firmus is
+   * being composed, as files, or packed into projects/[id].zip or .tar when
+   * the system property <code>archive</code> is set to zip or tar. A resumed
+   * run packs the rest of its output into an archive of its own.
+   */
+  private static ArtifactSink getArtifactSink() throws IOException {
+
+    return getArtifactSink(id + (Objects.isNull(resume) ? "" : "_resumed_" + (resume.index() + 1)));
+  }
+
+  private static ArtifactSink getArtifactSink(String name) throws IOException {
+
+    var format = ArtifactSink.Format.of(System.getProperty("archive"));
+    if (format == ArtifactSink.Format.FILES)
+      return ArtifactSink.of(DIR_PROJECT_OUTPUT);
+    return ArtifactSink.archive(DIR_PROJECT_OUTPUT, DIR_PROJECT_OUTPUT.resolve(name + format.extension()));
+  }
+
+  private static Path getCheckpointFile() {
+
+    return DIR_PROJECT_OUTPUT.resolve(id + ".checkpoint");
+  }
+
+  /**
+   * Checkpoints are written to a temporary file first and then moved over the
+   * previous one, so that an interruption never leaves a broken checkpoint.
+   */
+  private static Consumer<Cpt2Checkpoint> checkpointer(int index) {
+
+    return checkpoint -> {
+      var file = getCheckpointFile();
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      try {
+        Files.createDirectories(DIR_PROJECT_OUTPUT);
+        try (var out = new ObjectOutputStream(Files.newOutputStream(temp))) {
+          out.writeObject(new Resume(arguments, id, index, checkpoint));
+        }
+        Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+      } catch (IOException ex) {
+        Logger.getLogger(Main.class.getName()).log(Level.WARNING, null, ex);
+      }
+    };
+  }
+
+  private static void saveSettings(ArtifactSink sink, Path path, long id, CptCantusFirmus cf)
+          throws IOException {
+
+    new Cpt2Job(y_mode, beginWithRest, wholeNoteCadence, cf)
+            .saveSettings(sink, path, id, cf_source);
   }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.composer.cpts2.framework;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Random;
+
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.Snapshot;
+import art.cctcc.music.cpt.model.enums.CptPitch;
+import art.cctcc.music.cpt.model.enums.CptTask;
+
+/**
+ * State of a Cpt2Composer in the middle of a DEVELOP_PRIMARY or
+ * DEVELOP_SECONDARY phase, taken after the first <code>ant</code> threads
+ * have been developed. Resuming it with
+ * {@link Cpt2Composer#resume} continues the phase exactly as the uninterrupted run would have.
+ *
+ * @param composer id of the composer.
+ * @param task developing task.
+ * @param ant index of the next thread to be developed.
+ * @param x pheromone state of graph x.
+ * @param y pheromone state of graph y.
+ * @param entries entry pitches of all the threads of the phase.
+ * @param random state of the random generator.
+ * @param chancePerPathNode chances recorded so far in the phase.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public record Cpt2Checkpoint(String composer, CptTask task, int ant,
+        Snapshot x, Snapshot y, List<CptPitch> entries, Random random,
+        double[][][] chancePerPathNode) implements Serializable {
+
+}
@@ -22,6 +22,9 @@ import java.util.stream.Stream;
 import java.util.Collections;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.io.IOException;
 import java.nio.file.Path;
 import lombok.Getter;
@@ -31,6 +34,8 @@ import tech.metacontext.ocnhfa.antsomg.model.AntsOMGSystem;
 import tech.metacontext.ocnhfa.antsomg.model.Graph;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.FractionMode;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink;
 import art.cctcc.music.cpt.ex.ImmatureCptCfPitchSpaceException;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchPath;
 import art.cctcc.music.cpt.model.CptCantusFirmus;
@@ -76,6 +81,11 @@ public class Cpt2Composer implements AntsOMGSystem<Cpt2Thread> {
   @Getter private double[][][] chancePerPathNode;
 
   @Setter private StandardGraph.FractionMode fraction_mode;
+  /**
+   * Receives a checkpoint every CHECKPOINT_FREQUENCY threads of the
+   * developing phases.
+   */
+  @Setter private Consumer<Cpt2Checkpoint> checkpointer;
 
   public static Cpt2Composer getInstance(String id, CptCantusFirmus cf, boolean isTreble,
           boolean beginWithRest, boolean wholeNoteCadence) {
@@ -115,6 +125,51 @@ public class Cpt2Composer implements AntsOMGSystem<Cpt2Thread> {
     this.navigate();
   }
 
+  /**
+   * Resume a developing phase from a checkpoint taken by a composer of the
+   * same settings, continuing exactly where it stopped. Threads developed
+   * before the checkpoint are only restored as completed placeholders.
+   *
+   * @param Y_MODE graph mode of y.
+   * @param checkpoint checkpoint of the phase.
+   */
+  public void resume(Cpt2CfGraphMode Y_MODE, Cpt2Checkpoint checkpoint) {
+
+    if (!Objects.equals(this.id, checkpoint.composer()))
+      throw new IllegalArgumentException("Checkpoint of " + checkpoint.composer() + " does not fit " + this.id);
+    this.y_mode = Y_MODE;
+    this.init_graph_y();
+    if (Objects.isNull(this.getX())) {
+      this.graphs.put("x", new Cpt2MusicSpace());
+      this.getX().init_graph();
+    }
+    this.setTask(checkpoint.task());
+    this.getX().restore(checkpoint.x());
+    this.getY().restore(checkpoint.y());
+    this.chancePerPathNode = Arrays.copyOf(checkpoint.chancePerPathNode(), population + 1);
+    this.threads = new ArrayList<>();
+    checkpoint.entries().stream()
+            .map(pitch -> new Cpt2Thread(
+            "Cpt-" + this.cf.getId(),
+            this.cf, pitch.getNode(),
+            this.treble, this.beginWithRest, this.wholeNoteCadence))
+            .forEach(this.threads::add);
+    this.threads.stream().limit(checkpoint.ant())
+            .forEach(thread -> thread.setCompleted(true));
+    StandardParameters.resumeRandom(checkpoint.random());
+    this.navigate(checkpoint.ant());
+  }
+
+  private Cpt2Checkpoint checkpoint(int ant) {
+
+    var entries = this.threads.stream()
+            .map(thread -> thread.getCpt().getMelody().get(this.beginWithRest ? 1 : 0).getPitch())
+            .toList();
+    return new Cpt2Checkpoint(this.id, this.task, ant,
+            this.getX().snapshot(), this.getY().snapshot(), entries,
+            StandardParameters.copyRandom(), Arrays.copyOf(chancePerPathNode, ant + 1));
+  }
+
   public void compose() {
 
     this.setTask(CptTask.COMPOSE);
@@ -123,14 +178,29 @@ public class Cpt2Composer implements AntsOMGSystem<Cpt2Thread> {
 
   public void save(Path folder) throws IOException {
 
+    try (var sink = ArtifactSink.synchronous()) {
+      save(sink, folder);
+    }
+  }
+
+  /**
+   * Submit the scores of all threads to the sink. Scores hold the composed
+   * counterpoints, so the composer may go on with another task meanwhile.
+   *
+   * @param sink artifact sink.
+   * @param folder output folder.
+   * @throws IOException if the sink failed.
+   */
+  public void save(ArtifactSink sink, Path folder) throws IOException {
+
     var subfolder = folder.resolve(treble ? "treble" : "bass");
     System.out.println("Output folder = " + folder);
     for (int i = 0; i < this.threads.size(); i++) {
       var t = this.threads.get(i);
       var filename = "S2Counterpoint_" + (i + 1);
       System.out.println("Writing score to " + filename);
-      new Cpt2Score("No." + (i + 1) + " in " + t.getCpt().getCf().getMode(), id, t)
-              .writeMusicXML(subfolder, filename + ".musicxml");
+      var score = new Cpt2Score("No." + (i + 1) + " in " + t.getCpt().getCf().getMode(), id, t);
+      sink.writeText(subfolder.resolve(filename + ".musicxml"), score::writeMusicXML);
     }
   }
 
@@ -147,17 +217,14 @@ public class Cpt2Composer implements AntsOMGSystem<Cpt2Thread> {
     if (this.graphs == null)
       this.graphs = new HashMap<>();
 
-    var y = new Cpt2CfPitchSpace(this.cf, this.treble,
-            this.beginWithRest, this.wholeNoteCadence);
-    y.modifyBaseGraph(y_mode);
     try {
-      y.init_graph();
+      this.setY(Cpt2CfPitchSpace.getInstance(this.cf, this.treble,
+              this.beginWithRest, this.wholeNoteCadence, y_mode));
     } catch (ImmatureCptCfPitchSpaceException ex) {
       System.out.println(ex);
       System.out.println(ex.graph);
-      System.exit(-1);
+      throw ex;
     }
-    this.setY(y);
   }
 
   @Override
@@ -183,7 +250,12 @@ public class Cpt2Composer implements AntsOMGSystem<Cpt2Thread> {
   public void navigate() {
 
     init_population();
-    for (int i = 0; i < this.threads.size(); i++) {
+    navigate(0);
+  }
+
+  private void navigate(int from) {
+
+    for (int i = from; i < this.threads.size(); i++) {
       this.threads.get(i).develop(this.getX(), this.getY(),
               this.x_pheromone_deposit, this.y_pheromone_deposit);
       if (this.task == COMPOSE)
@@ -191,6 +263,9 @@ public class Cpt2Composer implements AntsOMGSystem<Cpt2Thread> {
       if (i + 1 % EVAPORATE_FREQUENCY == 0)
         this.evaporate();
       chancePerPathNode[i + 1] = Tools.getChancePerPathNode(this.getY());
+      if (Objects.nonNull(checkpointer) && (i + 1) % CHECKPOINT_FREQUENCY == 0
+              && i + 1 < this.threads.size())
+        checkpointer.accept(checkpoint(i + 1));
     }
     if (this.task == COMPOSE) {
       var before = this.threads.size();
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.composer.cpts2.framework;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import org.dom4j.DocumentHelper;
+import org.dom4j.io.OutputFormat;
+import org.dom4j.io.XMLWriter;
+
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink;
+import art.cctcc.music.cpt.ex.ImmatureCptCfPitchSpaceException;
+import art.cctcc.music.cpt.model.CptCantusFirmus;
+import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfGraphMode;
+import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfPitchSpace;
+
+/**
+ * One cell of a job matrix: a cantus firmus composed in one graph mode with
+ * one set of options, treble first and then bass on the treble's graph x.
+ *
+ * @param y_mode graph mode of y.
+ * @param beginWithRest whether counterpoints begin with a rest.
+ * @param wholeNoteCadence whether cadences end in a whole note.
+ * @param cf cantus firmus.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public record Cpt2Job(Cpt2CfGraphMode y_mode, boolean beginWithRest,
+        boolean wholeNoteCadence, CptCantusFirmus cf) {
+
+  /**
+   * Progress of a job, as recorded in the manifest of a batch.
+   */
+  public enum State {
+
+    PENDING, TREBLE, DONE, FAILED
+  }
+
+  /**
+   * Options of a job, parsed as the command-line options of Main: BWR, WNC,
+   * or both with BWRWNC or "-".
+   *
+   * @param beginWithRest whether counterpoints begin with a rest.
+   * @param wholeNoteCadence whether cadences end in a whole note.
+   */
+  public record Options(boolean beginWithRest, boolean wholeNoteCadence) {
+
+    public static Options of(String options) {
+
+      var o = options.toLowerCase();
+      return new Options("-".equals(o) || o.contains("bwr"), "-".equals(o) || o.contains("wnc"));
+    }
+  }
+
+  /**
+   * Build the job matrix of modes × options × cantus firmi.
+   *
+   * @param modes graph modes.
+   * @param options option sets.
+   * @param cfs cantus firmi.
+   * @return jobs, cantus firmi varying fastest.
+   */
+  public static List<Cpt2Job> matrix(List<Cpt2CfGraphMode> modes, List<Options> options,
+          List<CptCantusFirmus> cfs) {
+
+    var jobs = new ArrayList<Cpt2Job>();
+    for (var mode : modes)
+      for (var option : options)
+        for (var cf : cfs)
+          jobs.add(new Cpt2Job(mode, option.beginWithRest(), option.wholeNoteCadence(), cf));
+    return jobs;
+  }
+
+  /**
+   * @return key of the job, unique within a matrix, in the fashion of the
+   * output folder names.
+   */
+  public String key() {
+
+    return cf.getId()
+            + "_" + y_mode.abbr
+            + (beginWithRest ? "_BWR" : "")
+            + (wholeNoteCadence ? "_WNC" : "");
+  }
+
+  /**
+   * Seed of the job, derived from the seed of the batch and the key only, so
+   * that a job draws the same random numbers whatever the order and
+   * concurrency of the batch.
+   *
+   * @param seed seed of the batch.
+   * @return seed of the job.
+   */
+  public long seed(long seed) {
+
+    var hash = 0L;
+    for (var b : key().getBytes(StandardCharsets.UTF_8))
+      hash = hash * 31 + b;
+    return StandardParameters.mixSeed(seed, hash);
+  }
+
+  /**
+   * Estimated cost of the job, i.e. the number of counterpoints of graph y on
+   * both sides. The graphs are cached, so the job reuses them when it runs.
+   *
+   * @return estimated cost, or zero if a graph is immature.
+   */
+  public BigDecimal cost() {
+
+    try {
+      return Cpt2CfPitchSpace.getInstance(cf, true, beginWithRest, wholeNoteCadence, y_mode).cpt_count()
+              .add(Cpt2CfPitchSpace.getInstance(cf, false, beginWithRest, wholeNoteCadence, y_mode).cpt_count());
+    } catch (ImmatureCptCfPitchSpaceException ex) {
+      return BigDecimal.ZERO;
+    }
+  }
+
+  public void saveSettings(ArtifactSink sink, Path path, long id, String cf_source)
+          throws IOException {
+
+    var doc = DocumentHelper.createDocument();
+    var root = doc.addElement("cpts2.composer")
+            .addAttribute("id", "" + id);
+    root.addElement("timestamp")
+            .addText(Instant.ofEpochSecond(id).atZone(ZoneId.systemDefault()).toString());
+    root.addElement("y_mode")
+            .addText(y_mode.toString());
+    root.addElement("BWR")
+            .addText("" + beginWithRest);
+    root.addElement("WNC")
+            .addText("" + wholeNoteCadence);
+    root.addElement("cf_source")
+            .addText(cf_source);
+    root.addElement("cantus_firmus")
+            .addAttribute("id", cf.getId())
+            .addText(cf.getMelody().toString());
+    var format = OutputFormat.createPrettyPrint();
+    format.setExpandEmptyElements(true);
+    sink.writeText(path, out -> {
+      var writer = new XMLWriter(out, format);
+      writer.write(doc);
+      writer.flush();
+    });
+  }
+}
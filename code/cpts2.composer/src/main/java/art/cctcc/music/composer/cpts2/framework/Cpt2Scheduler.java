@@ -0,0 +1,286 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.composer.cpts2.framework;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import lombok.Getter;
+
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph.Snapshot;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink;
+import art.cctcc.music.composer.cpts2.framework.Cpt2Job.State;
+import art.cctcc.music.composer.cpts2.graphs.x.Cpt2MusicSpace;
+import static art.cctcc.music.composer.cpts2.utils.Constants.getStandardOutputFolder;
+import static java.nio.file.StandardCopyOption.*;
+
+/**
+ * Runs a matrix of Cpt2Jobs on a bounded pool of workers.
+ * <p>
+ * Jobs are started in descending order of their estimated cost, so that the
+ * longest ones do not trail behind at the end of the batch. Each job runs
+ * treble and then bass on the treble's graph x on one worker, with a random
+ * generator seeded by {@link Cpt2Job#seed}; a failing job is marked FAILED
+ * without affecting the others.
+ * <p>
+ * Progress is recorded in a manifest, a properties file holding the id, seed
+ * and arguments of the batch and the state of every job. Once a treble is
+ * done, its graph x and random state are kept in [manifest].stages, so that
+ * a resumed batch composes only the bass of such a job. Resuming skips the
+ * jobs done and retries the failed ones.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Cpt2Scheduler {
+
+  public static final String MANIFEST = ".manifest";
+
+  @Getter private final long id;
+  @Getter private final long seed;
+  @Getter private final String[] args;
+  @Getter private final Path manifest;
+  private final String cf_source;
+  private final Map<String, State> states = new LinkedHashMap<>();
+
+  /**
+   * Graph x and random state of a job after its treble.
+   */
+  private record Stage(Snapshot x, Random random) implements Serializable {
+
+  }
+
+  /**
+   * Start a new batch, recorded in [folder]/[id].manifest.
+   *
+   * @param folder folder of the manifest.
+   * @param id id of the batch.
+   * @param seed seed of the batch.
+   * @param args arguments the batch is rebuilt from when resumed.
+   * @param cf_source cf source, for the settings of each job.
+   * @return new Cpt2Scheduler.
+   */
+  public static Cpt2Scheduler getInstance(Path folder, long id, long seed, String[] args,
+          String cf_source) {
+
+    return new Cpt2Scheduler(folder.resolve(id + MANIFEST), id, seed, args, cf_source);
+  }
+
+  /**
+   * Reopen the manifest of an interrupted batch.
+   *
+   * @param manifest manifest file.
+   * @return Cpt2Scheduler with the recorded states.
+   * @throws IOException
+   */
+  public static Cpt2Scheduler resume(Path manifest) throws IOException {
+
+    var props = new Properties();
+    try (var in = Files.newBufferedReader(manifest)) {
+      props.load(in);
+    }
+    var scheduler = new Cpt2Scheduler(manifest,
+            Long.parseLong(props.getProperty("id")),
+            Long.parseLong(props.getProperty("seed")),
+            props.getProperty("args").split(" "),
+            props.getProperty("cf_source"));
+    props.stringPropertyNames().stream()
+            .filter(key -> key.startsWith("job."))
+            .forEach(key -> scheduler.states.put(key.substring(4), State.valueOf(props.getProperty(key))));
+    return scheduler;
+  }
+
+  private Cpt2Scheduler(Path manifest, long id, long seed, String[] args, String cf_source) {
+
+    this.manifest = manifest;
+    this.id = id;
+    this.seed = seed;
+    this.args = args;
+    this.cf_source = cf_source;
+  }
+
+  /**
+   * Run the jobs not done yet and wait for all of them.
+   *
+   * @param jobs job matrix.
+   * @param sink sink of the output.
+   * @param workers number of jobs run at once.
+   * @return states of all jobs by key.
+   * @throws IOException if the manifest cannot be written.
+   * @throws InterruptedException
+   */
+  public Map<String, State> run(List<Cpt2Job> jobs, ArtifactSink sink, int workers)
+          throws IOException, InterruptedException {
+
+    synchronized (states) {
+      jobs.forEach(job -> states.putIfAbsent(job.key(), State.PENDING));
+      writeManifest();
+    }
+    var todo = jobs.stream()
+            .filter(job -> getState(job) != State.DONE)
+            .toList();
+    System.out.printf("Estimating the cost of %d job(s) ...\n", todo.size());
+    var costs = todo.parallelStream()
+            .collect(LinkedHashMap<Cpt2Job, BigDecimal>::new,
+                    (map, job) -> map.put(job, job.cost()), Map::putAll);
+    var count = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+      var thread = new Thread(runnable, "cpt2-job-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      todo.stream()
+              .sorted(Comparator.comparing(costs::get).reversed())
+              .peek(job -> System.out.printf("Scheduling %s (cost %s)\n", job.key(), costs.get(job)))
+              .forEach(job -> pool.execute(() -> run(job, sink)));
+      pool.shutdown();
+      while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    synchronized (states) {
+      return Map.copyOf(states);
+    }
+  }
+
+  private void run(Cpt2Job job, ArtifactSink sink) {
+
+    var key = job.key();
+    var composer_id = String.format("%s on %s", id, job.cf().getId().replace("_", " "));
+    StandardParameters.setScopedRandom(new Random(job.seed(seed)));
+    try {
+      Cpt2MusicSpace x;
+      var stage = getState(job) == State.TREBLE ? readStage(key) : null;
+      if (Objects.isNull(stage)) {
+        var c_treble = Cpt2Composer.getInstance(composer_id + " (treble)",
+                job.cf(), true, job.beginWithRest(), job.wholeNoteCadence());
+        c_treble.setFraction_mode(StandardGraph.FractionMode.Power_Multiply);
+        c_treble.developPrimary(job.y_mode());
+        var folder = getStandardOutputFolder("" + id, c_treble);
+        job.saveSettings(sink, folder.resolve("settings.xml"), id, cf_source);
+        c_treble.compose();
+        c_treble.save(sink, folder);
+        x = c_treble.getX();
+        writeStage(key, new Stage(x.snapshot(), StandardParameters.copyRandom()));
+        update(key, State.TREBLE);
+      } else {
+        System.out.printf("Resuming %s from its treble\n", key);
+        x = new Cpt2MusicSpace();
+        x.init_graph();
+        x.restore(stage.x());
+        StandardParameters.resumeRandom(stage.random());
+      }
+      var c_bass = Cpt2Composer.getInstance(composer_id + " (bass)",
+              job.cf(), false, job.beginWithRest(), job.wholeNoteCadence());
+      c_bass.setFraction_mode(StandardGraph.FractionMode.Power_Multiply);
+      c_bass.developSecondary(job.y_mode(), x);
+      c_bass.compose();
+      c_bass.save(sink, getStandardOutputFolder("" + id, c_bass));
+      update(key, State.DONE);
+      Files.deleteIfExists(getStageFile(key));
+      System.out.printf("Job %s done.\n", key);
+    } catch (Exception ex) {
+      Logger.getLogger(Cpt2Scheduler.class.getName()).log(Level.SEVERE, "Job " + key + " failed.", ex);
+      try {
+        update(key, State.FAILED);
+      } catch (IOException e) {
+        Logger.getLogger(Cpt2Scheduler.class.getName()).log(Level.WARNING, null, e);
+      }
+    } finally {
+      StandardParameters.setScopedRandom(null);
+    }
+  }
+
+  public State getState(Cpt2Job job) {
+
+    synchronized (states) {
+      return states.getOrDefault(job.key(), State.PENDING);
+    }
+  }
+
+  private void update(String key, State state) throws IOException {
+
+    synchronized (states) {
+      states.put(key, state);
+      writeManifest();
+    }
+  }
+
+  /**
+   * The manifest is written to a temporary file first and then moved over the
+   * previous one, so that an interruption never leaves a broken manifest.
+   */
+  private void writeManifest() throws IOException {
+
+    var props = new Properties();
+    props.setProperty("id", "" + id);
+    props.setProperty("seed", "" + seed);
+    props.setProperty("args", String.join(" ", args));
+    props.setProperty("cf_source", cf_source);
+    states.forEach((key, state) -> props.setProperty("job." + key, state.name()));
+    Files.createDirectories(manifest.toAbsolutePath().getParent());
+    var temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+    try (var out = Files.newBufferedWriter(temp)) {
+      props.store(out, "cpts2.composer batch " + id);
+    }
+    Files.move(temp, manifest, REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+
+  private Path getStageFile(String key) {
+
+    return manifest.resolveSibling(manifest.getFileName() + ".stages").resolve(key + ".treble");
+  }
+
+  private void writeStage(String key, Stage stage) throws IOException {
+
+    var file = getStageFile(key);
+    Files.createDirectories(file.getParent());
+    try (var out = new ObjectOutputStream(Files.newOutputStream(file))) {
+      out.writeObject(stage);
+    }
+  }
+
+  private Stage readStage(String key) {
+
+    try (var in = new ObjectInputStream(Files.newInputStream(getStageFile(key)))) {
+      return (Stage) in.readObject();
+    } catch (IOException | ClassNotFoundException ex) {
+      Logger.getLogger(Cpt2Scheduler.class.getName()).log(Level.WARNING,
+              "Treble of " + key + " is composed again.", ex);
+      return null;
+    }
+  }
+}
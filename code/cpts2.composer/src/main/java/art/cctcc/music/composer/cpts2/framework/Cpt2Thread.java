@@ -18,10 +18,16 @@ package art.cctcc.music.composer.cpts2.framework;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
+import java.util.function.Function;
 import java.util.function.Predicate;
-import org.dom4j.DocumentHelper;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
 import lombok.Getter;
 
+import tech.metacontext.ocnhfa.antsomg.impl.XMLStreamExporter;
 import tech.metacontext.ocnhfa.composer.cf.ex.UnexpectedMusicNodeException;
 import tech.metacontext.ocnhfa.composer.cf.model.enums.MusicThought;
 import art.cctcc.music.cpt.framework.CptThread;
@@ -33,7 +39,6 @@ import art.cctcc.music.composer.cpts2.graphs.x.*;
 import art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfPitchSpace;
 import art.cctcc.music.composer.cpts2.model.Cpt2Counterpoint;
 import art.cctcc.music.composer.cpts2.model.Cpt2Locus;
-import art.cctcc.music.composer.cpts2.utils.Tools;
 import static art.cctcc.music.composer.cpts2.utils.Constants.*;
 
 /**
@@ -153,75 +158,94 @@ public class Cpt2Thread extends CptThread {
 
   public String asXML(Cpt2MusicSpace x, Cpt2CfPitchSpace y) {
 
-    var doc = DocumentHelper.createDocument();
-    var root = doc.addElement(this.getClass().getSimpleName());
+    var stringWriter = new StringWriter();
+    try (var out = XMLStreamExporter.of(stringWriter, true, true)) {
+      writeXML(out, x, y);
+    } catch (IOException ex) {
+      Logger.getLogger(Cpt2Thread.class.getName()).log(Level.SEVERE, null, ex);
+    }
+    return stringWriter.toString();
+  }
+
+  /**
+   * Write asXML() to a file in one pass over the route.
+   *
+   * @param file target file.
+   * @param x graph x the thread developed on.
+   * @param y graph y the thread developed on.
+   * @throws IOException
+   */
+  public void writeXML(Path file, Cpt2MusicSpace x, Cpt2CfPitchSpace y) throws IOException {
+
+    try (var out = XMLStreamExporter.of(file, true, true)) {
+      writeXML(out, x, y);
+    }
+  }
+
+  private void writeXML(XMLStreamExporter out, Cpt2MusicSpace x, Cpt2CfPitchSpace y) throws IOException {
+
     var cf = this.getCpt().getCf();
-    root.addElement("mode")
-            .addText(this.getCpt().getCf().getMode().name());
-    root.addElement(cf.getClass().getSimpleName())
-            .addText(cf.getMelody().toString());
-    root.addElement("cf_length")
-            .addText("" + this.getCpt().getCf().length());
-    root.addElement(this.getCpt().getClass().getSimpleName())
-            .addText(this.getCpt().getMelody().toString().replace("null", "Rest"));
-    root.addElement("beginWithRest")
-            .addText("" + this.getCpt().isBeginWithRest());
-    root.addElement("wholeNoteCadence")
-            .addText("" + this.getCpt().isWholeNoteCadence());
-    var route = root.addElement("cpt2_route")
-            .addAttribute("length", "" + this.getCpt().length());
-
-    this.getRoute().stream()
-            .filter(tr -> tr.getX() != null && tr.getY().getSelected().getFrom() != null)
-            .forEach(tr -> {
-              var locus = y.getSortedLoci().get(this.getRoute().indexOf(tr));
-              var trace = route.addElement(tr.getClass().getSimpleName())
-                      .addAttribute("locus", locus.toString());
-
-              var cptMusicMove = tr.getX();
-              var music_move = trace.addElement(cptMusicMove.getClass().getSimpleName());
-              music_move.addElement(cptMusicMove.getMusicThought().getClass().getSimpleName())
-                      .addText(cptMusicMove.getMusicThought().name());
-              var x_moves = music_move.addElement("MusicPaths");
-              Stream.of(0, 1)
-                      .forEach(i -> {
-                        var selected = cptMusicMove.getMoves()[i].getSelected();
-                        var x_move = x_moves.addElement("MusicPath")
-                                .addAttribute("move", "" + i);
-                        x_move.addElement("from")
-                                .addText(selected.getFrom().getName());
-                        x_move.addElement("to")
-                                .addText(selected.getTo().getName());
-                        x_move.addElement("chance")
-                                .addText("" + x.getChance(x.queryByVertex(selected.getFrom()), selected));
-                        x_move.addElement("exploit")
-                                .addText("" + !cptMusicMove.getMoves()[i].isExploring());
-                      });
-
-              var cptPitchMove = tr.getY();
-              var pitch_move = trace.addElement(cptPitchMove.getClass().getSimpleName());
-              var selected = pitch_move.addElement("selected");
-              selected.addElement("from")
-                      .addText(cptPitchMove.getSelected().getFrom().getName());
-              selected.addElement("to")
-                      .addText(cptPitchMove.getSelected().getTo().getName());
-              selected.addElement("chance")
-                      .addText("" + y.getChance(cptPitchMove.getSelected(), locus));
-              selected.addElement("exploit")
-                      .addText("" + !cptPitchMove.isExploring());
-              var y_moves = pitch_move.addElement("CptPitchPaths");
-              cptPitchMove.getPheromoneRecords().entrySet().stream()
-                      .forEach(e -> {
-                        var y_move = y_moves.addElement("CptPitchPath");
-                        y_move.addElement("from")
-                                .addText(e.getKey().getFrom().getName());
-                        y_move.addElement("to")
-                                .addText(e.getKey().getTo().getName());
-                        y_move.addElement("chance")
-                                .addText("" + y.getChance(e.getKey(), locus));
-                      });
-            });
-    return Tools.getXMLPrettyPrint(doc, false);
+    out.start(this.getClass().getSimpleName())
+            .element("mode", cf.getMode().name())
+            .element(cf.getClass().getSimpleName(), cf.getMelody().toString())
+            .element("cf_length", "" + cf.length())
+            .element(this.getCpt().getClass().getSimpleName(),
+                    this.getCpt().getMelody().toString().replace("null", "Rest"))
+            .element("beginWithRest", "" + this.getCpt().isBeginWithRest())
+            .element("wholeNoteCadence", "" + this.getCpt().isWholeNoteCadence())
+            .start("cpt2_route").attribute("length", "" + this.getCpt().length());
+
+    var route = this.getRoute();
+    var loci = y.getSortedLoci();
+    for (int index = 0; index < route.size(); index++) {
+      var tr = route.get(index);
+      if (tr.getX() == null || tr.getY().getSelected().getFrom() == null)
+        continue;
+      var locus = loci.get(index);
+      out.start(tr.getClass().getSimpleName()).attribute("locus", locus.toString());
+
+      var cptMusicMove = tr.getX();
+      out.start(cptMusicMove.getClass().getSimpleName())
+              .element(cptMusicMove.getMusicThought().getClass().getSimpleName(),
+                      cptMusicMove.getMusicThought().name())
+              .start("MusicPaths");
+      for (int i = 0; i < 2; i++) {
+        var selected = cptMusicMove.getMoves()[i].getSelected();
+        out.start("MusicPath").attribute("move", "" + i)
+                .element("from", selected.getFrom().getName())
+                .element("to", selected.getTo().getName())
+                .element("chance", "" + x.getChance(x.queryByVertex(selected.getFrom()), selected))
+                .element("exploit", "" + !cptMusicMove.getMoves()[i].isExploring())
+                .end();
+      }
+      out.end().end();
+
+      var cptPitchMove = tr.getY();
+      var selected = cptPitchMove.getSelected();
+      // all candidates of a move leave the same vertex, so the chances share one sum
+      var candidates = y.queryByVertex(locus, selected.getFrom());
+      var sum = candidates.stream().mapToDouble(y::getFraction).sum();
+      Function<CptPitchPath, Double> chance = path -> Objects.equals(path.getFrom(), selected.getFrom())
+              ? candidates.isEmpty() ? 0.0 : y.getFraction(path) / sum
+              : y.getChance(path, locus);
+      out.start(cptPitchMove.getClass().getSimpleName())
+              .start("selected")
+              .element("from", selected.getFrom().getName())
+              .element("to", selected.getTo().getName())
+              .element("chance", "" + chance.apply(selected))
+              .element("exploit", "" + !cptPitchMove.isExploring())
+              .end()
+              .start("CptPitchPaths");
+      for (var path : cptPitchMove.getPheromoneRecords().keySet()) {
+        out.start("CptPitchPath")
+                .element("from", path.getFrom().getName())
+                .element("to", path.getTo().getName())
+                .element("chance", "" + chance.apply(path))
+                .end();
+      }
+      out.end().end().end();
+    }
+    out.end().end();
   }
 
   @Override
@@ -15,9 +15,13 @@
  */
 package art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.Formatter;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -25,29 +29,32 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.Setter;
 
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.getRandom;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
+import tech.metacontext.ocnhfa.antsomg.impl.XMLStreamExporter;
 import tech.metacontext.ocnhfa.composer.cf.utils.Pair;
 import static art.cctcc.music.utils.CptCalculator.matrix_power;
+import art.cctcc.music.utils.GraphCache;
 import art.cctcc.music.cpt.ex.EmptyGraphException;
 import art.cctcc.music.cpt.ex.ImmatureCptCfPitchSpaceException;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchMove;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchNode;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchPath;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpace;
-import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpaceChromatic;
 import art.cctcc.music.cpt.model.CptCadence;
 import art.cctcc.music.cpt.model.CptCantusFirmus;
 import art.cctcc.music.cpt.model.enums.CptContrapuntalMotion;
 import art.cctcc.music.cpt.model.enums.CptEcclesiasticalMode;
 import art.cctcc.music.cpt.model.enums.CptPitch;
-import static art.cctcc.music.cpt.model.enums.IntervalQuality.*;
 
 import static art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf.Cpt2CfGraphMode.*;
 import static art.cctcc.music.composer.cpts2.utils.Constants.*;
@@ -62,6 +69,18 @@ import art.cctcc.music.composer.cpts2.ex.InvalidLocusException;
  */
 public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode> {
 
+  private record Key(String melody, CptEcclesiasticalMode cf_mode, boolean treble,
+          boolean beginWithRest, boolean wholeNoteCadence, Cpt2CfGraphMode mode) {
+
+  }
+
+  private static final GraphCache<Key, Cpt2CfPitchSpace> cache
+          = new GraphCache<>(GRAPH_CACHE_SIZE);
+
+  private static final Comparator<CptPitchPath> PATH_ORDER
+          = Comparator.comparingInt((CptPitchPath path) -> ordinal(path.getFrom()))
+                  .thenComparingInt(path -> ordinal(path.getTo()));
+
   @Getter private CptCantusFirmus cf;
   @Getter private boolean treble;
 
@@ -71,6 +90,7 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
 
   private Map<Cpt2Locus, Set<CptPitchPath>> loci;
   private List<CptCadence> cadences;
+  private final Cpt2CfRuleTable rules;
   private boolean dissonant;
   private Cpt2CfGraphMode mode;
 
@@ -91,40 +111,86 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
     this.treble = treble;
     this.beginWithRest = beginWithRest;
     this.wholeNoteCadence = wholeNoteCadence;
+    this.rules = Cpt2CfRuleTable.getInstance(cf);
 
-    this.y_cpt = new CptPitchSpaceChromatic(); // getInstance() will return a shared instance
-    this.y_cpt.init_graph(); // using constructor requires manually initialization.
+    this.y_cpt = Cpt2PitchSpaceTemplate.getInstance(null); // shared, unmodified chromatic graph
 
     this.cadences = this.cf.getMode().getCadences().stream()
             .filter(c -> !isVoiceOverlappingAtLocus(treble, c.getFormula().getLast(), cf.length() - 1))
             .collect(Collectors.toList());
   }
 
+  /**
+   * Get a fork of the built graph for the given settings, with its own copy
+   * of the pheromone trails the graph is built with. Built graphs are cached
+   * by melody, voice, options and mode, and shared between callers, which
+   * never walk them.
+   *
+   * @param cf cantus firmus.
+   * @param treble if the counterpoint is above the cantus firmus.
+   * @param beginWithRest if the counterpoint begins with a half rest.
+   * @param wholeNoteCadence if the cadence is in whole notes.
+   * @param mode Cpt2CfGraphMode, or <code>null</code> for the unmodified base
+   * graph.
+   * @return built Cpt2CfPitchSpace owned by the caller.
+   */
+  public static Cpt2CfPitchSpace getInstance(CptCantusFirmus cf, boolean treble,
+          boolean beginWithRest, boolean wholeNoteCadence, Cpt2CfGraphMode mode) {
+
+    var key = new Key(cf.getMelody().toString(), cf.getMode(), treble,
+            beginWithRest, wholeNoteCadence, mode);
+    return cache.get(key, () -> {
+      var y = new Cpt2CfPitchSpace(cf, treble, beginWithRest, wholeNoteCadence);
+      if (Objects.nonNull(mode))
+        y.modifyBaseGraph(mode);
+      y.init_graph();
+      return y;
+    }).fork(cf);
+  }
+
+  public static void clearCache() {
+
+    cache.clear();
+  }
+
+  /**
+   * Fork this graph for another cantus firmus instance.
+   *
+   * @param cf cantus firmus of the fork, with the same melody and mode.
+   * @return forked Cpt2CfPitchSpace.
+   */
+  public Cpt2CfPitchSpace fork(CptCantusFirmus cf) {
+
+    Cpt2CfPitchSpace fork = this.fork();
+    fork.cf = cf;
+    return fork;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // a fork is of the class of this graph, as clone() makes it
+  public <G extends StandardGraph<CptPitchPath, CptPitchNode>> G fork() {
+
+    Cpt2CfPitchSpace fork = super.fork();
+    if (Objects.nonNull(this.loci)) {
+      fork.loci = new HashMap<>();
+      this.loci.forEach((locus, paths) -> fork.loci.put(locus, paths.stream()
+              .map(path -> (CptPitchPath) path.copy())
+              .collect(Collectors.toCollection(HashSet::new))));
+    }
+    return (G) fork;
+  }
+
+  /**
+   * Switch y-cpt to the shared template of the given mode, in which the
+   * mode-specific edges and costs are precompiled.
+   *
+   * @param mode Cpt2CfGraphMode to be applied.
+   */
   public void modifyBaseGraph(Cpt2CfGraphMode mode) {
 
     this.mode = mode;
-    switch (mode) {
-      case DISSONANT:
-        this.dissonant = true;
-      case CHROMATIC:
-        y_cpt.getEdges().removeIf(path -> path.absDiff() == 0);
-        y_cpt.getEdges().stream()
-                .filter(path -> !path.getTo().getPitch().getAccidental().isEmpty())
-                .forEach(path -> path.setCost(path.getCost() / 2.0));
-        y_cpt.getEdges().stream()
-                .filter(CptContrapuntalMotion::leap)
-                .forEach(path -> path.setCost(path.getCost() * 2.0));
-        break;
-      case CONVENTIONAL:
-        y_cpt.getEdges().removeIf(path -> path.absDiff() == 0);
-        y_cpt.getEdges().removeIf(path -> !path.getFrom().getPitch().getAccidental().isEmpty()
-                && !path.getFrom().toString().startsWith("Bf"));
-        y_cpt.getEdges().removeIf(path -> !path.getTo().getPitch().getAccidental().isEmpty()
-                && !path.getTo().toString().startsWith("Bf"));
-        y_cpt.getEdges().stream()
-                .filter(path -> path.getTo().toString().startsWith("Bf") || CptContrapuntalMotion.leap(path))
-                .forEach(path -> path.setCost(path.getCost() * 2.0));
-    }
+    this.dissonant = mode == DISSONANT;
+    this.y_cpt = Cpt2PitchSpaceTemplate.getInstance(mode);
   }
 
   @Override
@@ -140,8 +206,7 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
       var locus = new Cpt2Locus(i, i == 0 && beginWithRest ? REST : ARSIS);
       if (locus.portion().equals(REST)) {
         loci.put(locus.getNext(), starts);
-        var set_arsis = starts.stream()
-                .flatMap(path -> y_cpt.queryByVertex(path.getTo()).stream())
+        var set_arsis = candidates(starts)
                 .filter(path -> dissonant ^ isConsonanceAtLocus(path.getTo(), locus.bar() + 1))
                 .filter(path -> !isForbiddenMotion(path, locus.bar() + 1))
                 .filter(path -> !isVoiceOverlappingAtLocus(this.treble, path.getTo(), locus.bar()))
@@ -187,6 +252,8 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
                   }
                 });
       });
+      if (cf.getMode().equals(CptEcclesiasticalMode.Aeolian))
+        loci.put(locus_thesis, new HashSet<>(loci.get(locus_thesis))); // rehash the paths altered above
       loci.put(locus.getNextBar(), set_arsis);
       loci.put(locus.getNextBar().getNextBar(), set_finalis);
     } else { //!wholeNoteCadence
@@ -220,25 +287,14 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
                   }
                 });
       });
+      if (cf.getMode().equals(CptEcclesiasticalMode.Aeolian))
+        loci.put(locus_arsis, new HashSet<>(loci.get(locus_arsis))); // rehash the paths altered above
       loci.put(locus_arsis.getNext(), set_thesis);
       loci.put(locus_arsis.getNextBar(), set_finalis);
     }
     
     if (this.getBar() == cf.length()) {
-      loci.keySet().stream()
-              .sorted(Comparator.reverseOrder())
-              .skip(2)
-              .forEach(loc -> {
-                try {
-                  loci.get(loc).removeIf(path -> this.queryByVertex(loc.getNext(), path.getTo()).isEmpty());
-                } catch (Exception ex) {
-                  System.out.println("loc = " + loc);
-                  System.out.println("loci.get(loc) = " + loci.get(loc));
-                  System.exit(-1);
-                }
-                loci.getOrDefault(loc.getNext(), Set.of())
-                        .removeIf(p -> this.queryByDestination(loc, p.getFrom()).isEmpty());
-              });
+      this.removeDeadEnds();
       if (List.of(FractionMode.Power, FractionMode.Power_Multiply).contains(this.getFraction_mode()))
         this.getEdges().forEach(path -> path.addPheromoneDeposit(alpha));
     }
@@ -261,10 +317,48 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
       loci.put(locus.getNext(), Set.of(paths));
   }
 
+  /**
+   * Remove paths which cannot be part of a complete counterpoint, by a
+   * backward sweep for paths whose destination leads nowhere in the next
+   * locus, followed by a forward sweep for paths whose origin is not reached
+   * from the previous locus. Unlike the single pass it replaces, the sweeps
+   * also cover the last two loci and the removals they cascade into.
+   */
+  private void removeDeadEnds() {
+
+    var sorted = this.getSortedLoci();
+    for (int i = sorted.size() - 2; i >= 0; i--) {
+      var continued = pitchMask(loci.get(sorted.get(i + 1)), CptPitchPath::getFrom);
+      loci.get(sorted.get(i)).removeIf(path -> !continued.get(path.getTo().getPitch().ordinal()));
+    }
+    for (int i = 1; i < sorted.size(); i++) {
+      var reached = pitchMask(loci.get(sorted.get(i - 1)), CptPitchPath::getTo);
+      loci.get(sorted.get(i)).removeIf(path -> !reached.get(path.getFrom().getPitch().ordinal()));
+    }
+  }
+
+  private static BitSet pitchMask(Set<CptPitchPath> paths, Function<CptPitchPath, CptPitchNode> end) {
+
+    var mask = new BitSet(CptPitch.values().length);
+    paths.forEach(path -> mask.set(end.apply(path).getPitch().ordinal()));
+    return mask;
+  }
+
+  /**
+   * Candidate paths in y-cpt leaving the destinations of the given paths.
+   *
+   * @param previous paths of the previous locus.
+   * @return Stream of candidate paths.
+   */
+  private Stream<CptPitchPath> candidates(Set<CptPitchPath> previous) {
+
+    return previous.stream()
+            .flatMap(path -> y_cpt.queryByVertex(path.getTo()).stream());
+  }
+
   private void generateBarEdges(Cpt2Locus locus) {
 
-    var set_thesis = loci.get(locus).stream()
-            .flatMap(path -> y_cpt.queryByVertex(path.getTo()).stream())
+    var set_thesis = candidates(loci.get(locus))
             .filter(path -> !isVoiceCrossing(treble, path, locus.getNext()))
             .map(CptPitchPath::new)
             .collect(Collectors.toSet());
@@ -281,16 +375,16 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
     if (!locus.portion().equals(ARSIS))
       throw new InvalidLocusException(locus);
     var set_previous = loci.get(locus.getPrevious());
-    var set_arsis = set_previous.stream()
-            .flatMap(path -> y_cpt.queryByVertex(path.getTo()).stream())
+    var set_arsis = candidates(set_previous)
             .filter(path -> !hasStylisticDepartures(path, locus))
             .map(CptPitchPath::new)
             .collect(Collectors.toSet());
     loci.put(locus, set_arsis);
+    var continued = pitchMask(set_arsis, CptPitchPath::getFrom);
     loci.replace(
             locus.getPrevious(),
             set_previous.stream()
-                    .filter(path -> set_arsis.stream().map(CptPitchPath::getFrom).toList().contains(path.getTo()))
+                    .filter(path -> continued.get(path.getTo().getPitch().ordinal()))
                     .collect(Collectors.toSet()));
   }
 
@@ -367,61 +461,98 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
   }
 
   @Override
-  public String asGraphviz() {
-
-    var incompleted = this.getBar() < cf.length();
-
-    var cluster = IntStream.range(0, this.getBar())
-            .mapToObj(bar -> String.format("""
-                    \tsubgraph cluster_locus_%d {
-                    %s
-                    \t\tlabel = \"%d [%s]\";
-                    \t\tcolor=red
-                    \t}""",
-            bar,
-            loci.keySet().stream().filter(l -> l.bar() == bar).sorted()
-                    .map(locus -> String.format("""                                        
-                    \t\tsubgraph cluster_%s {
-                    \t\t\tnode [style=filled];
-                    %s
-                    \t\t\tlabel = \"%s\";
-                    \t\t\tcolor=blue
-                    \t\t}""",
-                    locus.toString(),
-                    loci.get(locus).stream()
-                            .map(p -> String.format("\t\t\t%s_%s[label=\"%s\"];", p.getTo().getPitch().name(), locus.toString(), p.getTo().getPitch().name()))
-                            .distinct()
-                            .sorted()
-                            .collect(Collectors.joining("\n")),
-                    locus.portion())).collect(Collectors.joining("\n")),
-            bar, cf.getNote(bar)))
-            .collect(Collectors.joining("\n"));
-    var body = loci.keySet().stream().filter(l -> !loci.get(l).isEmpty()).sorted().map(
-            locus -> loci.get(locus).stream().filter(path -> path.getFrom() != null).sorted(Comparator.comparing(CptPitchPath::toString)).map(
-                    path -> isBlank()
-                            ? String.format("\t%s -> %s [ label=<c=%.1f>, penwidth=0.5 ];",
-                                    path.getFrom().getName() + "_" + (this.wholeNoteCadence && locus.bar() > cf.length() - 2 ? locus.getPreviousBar() : locus.getPrevious()).toString(),
-                                    path.getTo().getName() + "_" + locus.toString(),
-                                    path.getCost())
-                            : String.format("\t%s -> %s [ label=<c=%.1f, pher=%.2f>, penwidth=0.5 ];",
-                                    path.getFrom().getName() + "_" + (this.wholeNoteCadence && locus.bar() > cf.length() - 2 ? locus.getPreviousBar() : locus.getPrevious()).toString(),
-                                    path.getTo().getName() + "_" + locus.toString(),
-                                    path.getCost(),
-                                    path.getPheromoneTrail()))
-                    .collect(Collectors.joining("\n")))
-            .collect(Collectors.joining("\n"));
-    return String.format("""
-                    digraph %s {
-                    \t%s
-                    \trankdir=LR;
-                    \tnode [shape=circle];
-                    %s
-                    %s
-                    }""",
-            this.getClass().getSimpleName(),
-            String.format("// cantus firmus = %s", this.cf.getMelody().toString())
-            + (incompleted ? String.format("\n\t// Incompleted Graph (cf.length = %d).", cf.length()) : ""),
-            cluster, body);
+  public void writeGraphviz(Writer out) throws IOException {
+
+    var dot = new Formatter(out);
+    var blank = isBlank();
+    dot.format("digraph %s {\n\t// cantus firmus = %s", this.getClass().getSimpleName(), this.cf.getMelody().toString());
+    if (this.getBar() < cf.length())
+      dot.format("\n\t// Incompleted Graph (cf.length = %d).", cf.length());
+    out.write("\n\trankdir=LR;\n\tnode [shape=circle];\n");
+    var sorted = this.loci.keySet().stream().sorted().toList();
+    var by_bar = sorted.stream().collect(Collectors.groupingBy(Cpt2Locus::bar));
+    for (int bar = 0; bar < this.getBar(); bar++) {
+      if (bar > 0)
+        out.write("\n");
+      dot.format("\tsubgraph cluster_locus_%d {\n", bar);
+      var separator = "";
+      for (var locus : by_bar.getOrDefault(bar, List.of())) {
+        out.write(separator);
+        separator = "\n";
+        dot.format("\t\tsubgraph cluster_%s {\n\t\t\tnode [style=filled];\n", locus);
+        var nodes = new TreeSet<String>();
+        this.loci.get(locus).forEach(p -> nodes.add(String.format("\t\t\t%s_%s[label=\"%s\"];",
+                p.getTo().getPitch().name(), locus, p.getTo().getPitch().name())));
+        out.write(String.join("\n", nodes));
+        dot.format("\n\t\t\tlabel = \"%s\";\n\t\t\tcolor=blue\n\t\t}", locus.portion());
+      }
+      dot.format("\n\t\tlabel = \"%d [%s]\";\n\t\tcolor=red\n\t}", bar, cf.getNote(bar));
+    }
+    out.write("\n");
+    var separator = "";
+    for (var locus : sorted) {
+      if (this.loci.get(locus).isEmpty())
+        continue;
+      out.write(separator);
+      separator = "\n";
+      var paths = this.loci.get(locus).stream()
+              .filter(path -> path.getFrom() != null)
+              .map(path -> Map.entry(path.toString(), path))
+              .sorted(Entry.comparingByKey())
+              .map(Entry::getValue)
+              .toList();
+      if (paths.isEmpty())
+        continue;
+      var previous = previousLocus(locus);
+      for (int k = 0; k < paths.size(); k++) {
+        var path = paths.get(k);
+        if (k > 0)
+          out.write("\n");
+        if (blank)
+          dot.format("\t%s_%s -> %s_%s [ label=<c=%.1f>, penwidth=0.5 ];",
+                  path.getFrom().getName(), previous,
+                  path.getTo().getName(), locus,
+                  path.getCost());
+        else
+          dot.format("\t%s_%s -> %s_%s [ label=<c=%.1f, pher=%.2f>, penwidth=0.5 ];",
+                  path.getFrom().getName(), previous,
+                  path.getTo().getName(), locus,
+                  path.getCost(),
+                  path.getPheromoneTrail());
+      }
+    }
+    out.write("\n}");
+    flush(dot);
+  }
+
+  @Override
+  protected void writeGraphMLElements(XMLStreamExporter xml) throws IOException {
+
+    var sorted = this.loci.keySet().stream().sorted().toList();
+    for (var locus : sorted) {
+      var pitches = new BitSet();
+      for (var path : this.loci.get(locus)) {
+        var pitch = path.getTo().getPitch();
+        if (!pitches.get(pitch.ordinal())) {
+          pitches.set(pitch.ordinal());
+          writeGraphMLNode(xml, pitch.name() + "_" + locus, pitch.name());
+        }
+      }
+    }
+    for (var locus : sorted)
+      for (var path : this.loci.get(locus))
+        if (path.getFrom() != null)
+          writeGraphMLEdge(xml, path.getFrom().getName() + "_" + previousLocus(locus),
+                  path.getTo().getName() + "_" + locus, path);
+  }
+
+  /**
+   * Locus the paths into the given locus come from, as labelled in exports.
+   */
+  private String previousLocus(Cpt2Locus locus) {
+
+    return (this.wholeNoteCadence && locus.bar() > cf.length() - 2
+            ? locus.getPreviousBar() : locus.getPrevious()).toString();
   }
 
   private boolean hasStylisticDepartures(CptPitchPath path, Cpt2Locus locus) {
@@ -452,58 +583,29 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
 
     if (locus.getPrevious() == null || locus.portion().equals(THESIS))
       return false;
-    var cf_path = CptPitchPath.of(cf.getNote(locus.bar() - 1), cf.getNote(locus.bar()));
-    var path1 = CptPitchPath.of(path.getFrom(), cf_path.getTo());
-    var path2 = CptPitchPath.of(cf_path.getFrom(), path.getTo());
-    var degree1 = Math.abs(CptPitch.diatonicDiff(path1));
-    var degree2 = Math.abs(CptPitch.diatonicDiff(path2));
-    var quality1 = CptPitch.quality(path1);
-    var quality2 = CptPitch.quality(path2);
-    return degree1 % 7 == 0 && List.of(Augmented, Diminished).contains(quality1)
-            || degree2 % 7 == 0 && List.of(Augmented, Diminished).contains(quality2);
+    return rules.isDissonantOctave(path.getFrom(), locus.bar())
+            || rules.isDissonantOctave(path.getTo(), locus.bar() - 1);
   }
 
   public boolean isConsonanceAtLocus(CptPitchNode pitch, int locus) {
 
-    var pitch2 = cf.getNote(locus);
-    var degree = Math.abs(CptPitch.diatonicDiff(pitch, pitch2));
-    var quality = CptPitch.quality(pitch, pitch2);
-    return switch (degree % 7) {
-      case 0, 4: yield quality.equals(Perfect);
-      case 2, 5: yield List.of(Major, Minor).contains(quality);
-      default: yield false;
-    };
+    return rules.isConsonance(pitch, locus);
   }
 
   public boolean isTooFarApart(CptPitchNode pitch, int locus) {
 
-    var pitch2 = cf.getNote(locus);
-    var degree = Math.abs(CptPitch.diatonicDiff(pitch, pitch2));
-    return degree > 14;
+    return rules.isTooFarApart(pitch, locus);
   }
 
   public boolean isForbiddenMotion(CptPitchPath path, int bar) {
 
     // Check only if locus portion is ARSIS.
-    var cf_path = CptPitchPath.of(cf.getNote(bar - 1), cf.getNote(bar));
-
-    var isForbiddenHiddenParallel
-            = CptContrapuntalMotion.isForbiddenHiddenParallel(path, cf_path);
-    var isForbiddenParallel
-            = CptContrapuntalMotion.isForbiddenParallel(path, cf_path);
-    var isForbiddenLeap
-            = CptContrapuntalMotion.isForbiddenLeap(path, cf_path);
-
-    var result = isForbiddenHiddenParallel || isForbiddenParallel
-            || isForbiddenLeap;
-
-    return result;
+    return rules.isForbiddenMotion(path, bar);
   }
 
   public boolean isVoiceOverlappingAtLocus(boolean treble, CptPitchNode pitch, int locus) {
 
-    var diff = CptPitch.diff(cf.getNote(locus), pitch);
-    return diff != 0 && treble ^ diff > 0;
+    return rules.isVoiceOverlapping(treble, pitch, locus);
   }
 
   public boolean isVoiceCrossing(boolean treble, CptPitchPath path, Cpt2Locus locus) {
@@ -580,6 +682,27 @@ public class Cpt2CfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode>
     return loci.values().stream().flatMap(Set::stream).toList();
   }
 
+  /**
+   * Paths of all loci, in order of locus and then of the pitches of the
+   * paths, which does not depend on hashing; snapshots taken in one process
+   * are thus restored onto the same paths in another.
+   *
+   * @return List of CptPitchPath.
+   */
+  @Override
+  protected List<CptPitchPath> getOrderedEdges() {
+
+    return loci.entrySet().stream()
+            .sorted(Entry.comparingByKey())
+            .flatMap(e -> e.getValue().stream().sorted(PATH_ORDER))
+            .toList();
+  }
+
+  private static int ordinal(CptPitchNode node) {
+
+    return Objects.isNull(node) ? -1 : node.getPitch().ordinal();
+  }
+
   private List<String> checkPassing(CptPitchNode p, Cpt2Locus locus) {
 
     var result = new ArrayList<String>();
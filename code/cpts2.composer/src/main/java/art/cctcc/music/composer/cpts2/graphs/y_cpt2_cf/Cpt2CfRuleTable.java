@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchNode;
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchPath;
+import art.cctcc.music.cpt.model.CptCantusFirmus;
+import art.cctcc.music.cpt.model.enums.CptContrapuntalMotion;
+import art.cctcc.music.cpt.model.enums.CptPitch;
+import static art.cctcc.music.cpt.model.enums.IntervalQuality.*;
+
+/**
+ * Vertical interval rules of a cantus firmus, precomputed as bitsets over
+ * pitch ordinals for every bar, and over (from, to) ordinal pairs for every
+ * bar transition.
+ * <p>
+ * Tables are shared by the treble and bass {@link Cpt2CfPitchSpace} of the
+ * same CptCantusFirmus instance, whose melody must not change afterwards.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class Cpt2CfRuleTable {
+
+  private static final int PITCHES = CptPitch.values().length;
+
+  private static final Map<CptCantusFirmus, Cpt2CfRuleTable> tables
+          = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private final BitSet[] consonance;
+  private final BitSet[] tooFarApart;
+  private final BitSet[] above;
+  private final BitSet[] below;
+  private final BitSet[] dissonantOctave;
+  /**
+   * Forbidden motions into each bar from the previous one, indexed by
+   * <code>from * PITCHES + to</code>; <code>null</code> for bar 0.
+   */
+  private final BitSet[] forbiddenMotion;
+
+  public static Cpt2CfRuleTable getInstance(CptCantusFirmus cf) {
+
+    return tables.computeIfAbsent(cf, Cpt2CfRuleTable::new);
+  }
+
+  private Cpt2CfRuleTable(CptCantusFirmus cf) {
+
+    var length = cf.length();
+    this.consonance = new BitSet[length];
+    this.tooFarApart = new BitSet[length];
+    this.above = new BitSet[length];
+    this.below = new BitSet[length];
+    this.dissonantOctave = new BitSet[length];
+    this.forbiddenMotion = new BitSet[length];
+    for (int bar = 0; bar < length; bar++) {
+      var note = cf.getNote(bar);
+      consonance[bar] = new BitSet(PITCHES);
+      tooFarApart[bar] = new BitSet(PITCHES);
+      above[bar] = new BitSet(PITCHES);
+      below[bar] = new BitSet(PITCHES);
+      dissonantOctave[bar] = new BitSet(PITCHES);
+      for (var pitch : CptPitch.values()) {
+        var node = pitch.getNode();
+        var degree = Math.abs(CptPitch.diatonicDiff(node, note));
+        var quality = CptPitch.quality(node, note);
+        var diff = CptPitch.diff(note, node);
+        consonance[bar].set(pitch.ordinal(), switch (degree % 7) {
+          case 0, 4 -> quality.equals(Perfect);
+          case 2, 5 -> List.of(Major, Minor).contains(quality);
+          default -> false;
+        });
+        tooFarApart[bar].set(pitch.ordinal(), degree > 14);
+        above[bar].set(pitch.ordinal(), diff > 0);
+        below[bar].set(pitch.ordinal(), diff < 0);
+        dissonantOctave[bar].set(pitch.ordinal(),
+                degree % 7 == 0 && List.of(Augmented, Diminished).contains(quality));
+      }
+      if (bar > 0) {
+        var cf_path = CptPitchPath.of(cf.getNote(bar - 1), note);
+        forbiddenMotion[bar] = new BitSet(PITCHES * PITCHES);
+        for (var from : CptPitch.values()) {
+          for (var to : CptPitch.values()) {
+            var path = CptPitchPath.of(from.getNode(), to.getNode());
+            forbiddenMotion[bar].set(from.ordinal() * PITCHES + to.ordinal(),
+                    CptContrapuntalMotion.isForbiddenHiddenParallel(path, cf_path)
+                    || CptContrapuntalMotion.isForbiddenParallel(path, cf_path)
+                    || CptContrapuntalMotion.isForbiddenLeap(path, cf_path));
+          }
+        }
+      }
+    }
+  }
+
+  public boolean isConsonance(CptPitchNode pitch, int bar) {
+
+    return consonance[bar].get(pitch.getPitch().ordinal());
+  }
+
+  public boolean isTooFarApart(CptPitchNode pitch, int bar) {
+
+    return tooFarApart[bar].get(pitch.getPitch().ordinal());
+  }
+
+  /**
+   * Show if the pitch is on the wrong side of the cantus firmus.
+   *
+   * @param treble if the counterpoint is above the cantus firmus.
+   * @param pitch pitch of the counterpoint.
+   * @param bar bar number.
+   * @return true if the voices overlap.
+   */
+  public boolean isVoiceOverlapping(boolean treble, CptPitchNode pitch, int bar) {
+
+    return (treble ? below : above)[bar].get(pitch.getPitch().ordinal());
+  }
+
+  /**
+   * Show if the pitch forms an augmented or diminished octave (or unison) with
+   * the cantus firmus.
+   *
+   * @param pitch pitch of the counterpoint.
+   * @param bar bar number.
+   * @return true if dissonant.
+   */
+  public boolean isDissonantOctave(CptPitchNode pitch, int bar) {
+
+    return dissonantOctave[bar].get(pitch.getPitch().ordinal());
+  }
+
+  /**
+   * Show if the path moves into the bar in forbidden parallel, hidden parallel
+   * or leaping motion against the cantus firmus.
+   *
+   * @param path path of the counterpoint.
+   * @param bar bar number, must be greater than 0.
+   * @return true if forbidden.
+   */
+  public boolean isForbiddenMotion(CptPitchPath path, int bar) {
+
+    return forbiddenMotion[bar].get(
+            path.getFrom().getPitch().ordinal() * PITCHES + path.getTo().getPitch().ordinal());
+  }
+}
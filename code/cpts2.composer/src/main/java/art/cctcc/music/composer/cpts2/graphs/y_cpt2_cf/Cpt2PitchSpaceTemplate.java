@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.composer.cpts2.graphs.y_cpt2_cf;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchNode;
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchPath;
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpaceChromatic;
+import art.cctcc.music.cpt.model.enums.CptContrapuntalMotion;
+
+/**
+ * Shared, read-only base graph y-cpt for {@link Cpt2CfPitchSpace}, with the
+ * edges and costs of a {@link Cpt2CfGraphMode} already applied.
+ * <p>
+ * Templates are built once per mode and reused by every cantus firmus, so
+ * their edges must never be modified, nor the template initialized again:
+ * the edges are shared with every graph of the mode, and nothing guards them
+ * against setCost() or addPheromoneDeposit(). {@link Cpt2CfPitchSpace}
+ * copies the paths it takes into its loci, and callers needing edges of
+ * their own take a fork().
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public final class Cpt2PitchSpaceTemplate extends CptPitchSpaceChromatic {
+
+  private static final Map<Cpt2CfGraphMode, Cpt2PitchSpaceTemplate> templates
+          = new ConcurrentHashMap<>();
+
+  private static class Unmodified {
+
+    private static final Cpt2PitchSpaceTemplate INSTANCE = new Cpt2PitchSpaceTemplate(null);
+  }
+
+  private final Cpt2CfGraphMode mode;
+  private Map<CptPitchNode, List<CptPitchPath>> paths_by_vertex;
+
+  /**
+   * Get the shared template for the given mode.
+   *
+   * @param mode graph mode, or <code>null</code> for the unmodified chromatic
+   * graph.
+   * @return shared Cpt2PitchSpaceTemplate.
+   */
+  public static Cpt2PitchSpaceTemplate getInstance(Cpt2CfGraphMode mode) {
+
+    return Objects.isNull(mode)
+            ? Unmodified.INSTANCE
+            : templates.computeIfAbsent(mode, Cpt2PitchSpaceTemplate::new);
+  }
+
+  private Cpt2PitchSpaceTemplate(Cpt2CfGraphMode mode) {
+
+    this.mode = mode;
+    super.init_graph();
+    modify(mode);
+    this.setEdges(List.copyOf(this.getEdges()));
+    this.paths_by_vertex = index(this.getEdges());
+  }
+
+  private static Map<CptPitchNode, List<CptPitchPath>> index(List<CptPitchPath> edges) {
+
+    return edges.stream()
+            .collect(Collectors.groupingBy(CptPitchPath::getFrom, LinkedHashMap::new,
+                    Collectors.collectingAndThen(Collectors.toList(), List::copyOf)));
+  }
+
+  private void modify(Cpt2CfGraphMode mode) {
+
+    if (Objects.isNull(mode))
+      return;
+    var edges = new ArrayList<>(this.getEdges());
+    switch (mode) {
+      case DISSONANT:
+      case CHROMATIC:
+        edges.removeIf(path -> path.absDiff() == 0);
+        edges.stream()
+                .filter(path -> !path.getTo().getPitch().getAccidental().isEmpty())
+                .forEach(path -> path.setCost(path.getCost() / 2.0));
+        edges.stream()
+                .filter(CptContrapuntalMotion::leap)
+                .forEach(path -> path.setCost(path.getCost() * 2.0));
+        break;
+      case CONVENTIONAL:
+        edges.removeIf(path -> path.absDiff() == 0);
+        edges.removeIf(path -> !path.getFrom().getPitch().getAccidental().isEmpty()
+                && !path.getFrom().toString().startsWith("Bf"));
+        edges.removeIf(path -> !path.getTo().getPitch().getAccidental().isEmpty()
+                && !path.getTo().toString().startsWith("Bf"));
+        edges.stream()
+                .filter(path -> path.getTo().toString().startsWith("Bf") || CptContrapuntalMotion.leap(path))
+                .forEach(path -> path.setCost(path.getCost() * 2.0));
+    }
+    this.setEdges(edges);
+  }
+
+  /**
+   * Forks have their own copies of the edges, indexed anew; they are not
+   * shared through getInstance().
+   */
+  @Override
+  @SuppressWarnings("unchecked") // a fork is of the class of this graph, as clone() makes it
+  public <G extends StandardGraph<CptPitchPath, CptPitchNode>> G fork() {
+
+    Cpt2PitchSpaceTemplate fork = super.fork();
+    fork.paths_by_vertex = index(fork.getEdges());
+    return (G) fork;
+  }
+
+  @Override
+  public List<CptPitchPath> queryByVertex(CptPitchNode vertex) {
+
+    return paths_by_vertex.getOrDefault(vertex, List.of());
+  }
+
+  public Cpt2CfGraphMode getMode() {
+
+    return mode;
+  }
+}
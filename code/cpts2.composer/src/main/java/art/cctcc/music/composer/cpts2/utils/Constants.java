@@ -15,8 +15,12 @@
  */
 package art.cctcc.music.composer.cpts2.utils;
 
+import java.io.IOException;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.net.URISyntaxException;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,6 +44,8 @@ public class Constants {
   public static final double EVAPORATE_RATE = 0.05;
   public static final int EVAPORATE_FREQUENCY = 5;
   public static final int CPT_COMPOSING_POPULATION = 100;
+  public static final int GRAPH_CACHE_SIZE = 64;
+  public static final int CHECKPOINT_FREQUENCY = 100;
 
   public static final int CPT2_RANGE_RESTRICTION_CON = 16; // composite major 3rd
   public static final int CPT2_RANGE_RESTRICTION_CHR = 19; // composite perfect 5th
@@ -53,17 +59,26 @@ public class Constants {
   public static final String CF_COMPOSER_PREFIX
           = "Composer-EC_COMPOSE_STATIC_02-18-58-858638_";
 
-  public static Path CF_PATH;
+  public static final Path CF_PATH = getCFPath();
+
+  private static Path getCFPath() {
 
-  static {
     try {
-      CF_PATH = Path.of(Constants.class.getResource(CF_DIR).toURI());
-    } catch (URISyntaxException ex) {
+      var uri = Constants.class.getResource(CF_DIR).toURI();
+      // resources packed in a jar are reached through a zip file system
+      if ("jar".equals(uri.getScheme()))
+        try {
+          FileSystems.newFileSystem(uri, Map.of());
+        } catch (FileSystemAlreadyExistsException ex) {
+        }
+      return Path.of(uri);
+    } catch (URISyntaxException | IOException ex) {
       Logger.getLogger(Constants.class.getName()).log(Level.SEVERE, null, ex);
+      return null;
     }
   }
 
-  public static double DOUBLE_DELTA = 1e-15;
+  public static final double DOUBLE_DELTA = 1e-15;
 
   public static Path getStandardOutputFolder(String id,
           Cpt2Composer composer) {
@@ -55,18 +55,16 @@ public class Cpt2Calculator {
           boolean beginWithRest,
           boolean wholeNoteCadence) {
 
-    var treble = new Cpt2CfPitchSpace(cf, true, beginWithRest, wholeNoteCadence);
-    var bass = new Cpt2CfPitchSpace(cf, false, beginWithRest, wholeNoteCadence);
     BigDecimal treble_count, bass_count;
     try {
-      treble.init_graph();
-      treble_count = treble.cpt_count();
+      treble_count = Cpt2CfPitchSpace.getInstance(cf, true, beginWithRest, wholeNoteCadence, null)
+              .cpt_count();
     } catch (ImmatureCptCfPitchSpaceException ex) {
       treble_count = BigDecimal.ZERO;
     }
     try {
-      bass.init_graph();
-      bass_count = bass.cpt_count();
+      bass_count = Cpt2CfPitchSpace.getInstance(cf, false, beginWithRest, wholeNoteCadence, null)
+              .cpt_count();
     } catch (ImmatureCptCfPitchSpaceException ex) {
       bass_count = BigDecimal.ZERO;
     }
@@ -15,36 +15,18 @@
  */
 package art.cctcc.music.composer.cpts2.utils.musicxml;
 
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.io.Writer;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
 import java.util.Objects;
 import java.nio.file.Path;
-import javax.xml.datatype.DatatypeFactory;
-import org.audiveris.proxymusic.BarStyle;
-import org.audiveris.proxymusic.ClefSign;
-import org.audiveris.proxymusic.GroupBarlineValue;
-import org.audiveris.proxymusic.GroupSymbolValue;
-import org.audiveris.proxymusic.ObjectFactory;
-import org.audiveris.proxymusic.PartList;
-import org.audiveris.proxymusic.RightLeftMiddle;
-import org.audiveris.proxymusic.ScorePart;
-import org.audiveris.proxymusic.ScorePartwise;
-import org.audiveris.proxymusic.StartStop;
-import org.audiveris.proxymusic.Step;
-import org.audiveris.proxymusic.TimeSymbol;
-import org.audiveris.proxymusic.TypedText;
-import org.audiveris.proxymusic.UprightInverted;
-import org.audiveris.proxymusic.YesNo;
-import org.audiveris.proxymusic.util.Marshalling;
-import org.audiveris.proxymusic.AccidentalValue;
 
+import tech.metacontext.ocnhfa.composer.cf.utils.io.musicxml.MusicXMLWriter;
 import art.cctcc.music.utils.musicxml.XmlClef;
 import art.cctcc.music.cpt.model.CptMelody;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchNode;
@@ -58,12 +40,12 @@ import art.cctcc.music.composer.cpts2.model.Cpt2Counterpoint;
  */
 public class Cpt2Score {
 
-  private static final ObjectFactory OF = new ObjectFactory();
+  private final String title;
+  private final String composer;
+  private final LocalDate encoding_date;
+  private final List<XmlPart_Cpt2> parts;
 
-  private final ScorePartwise score_partwise;
-  private final PartList part_list;
-
-  private static final TimeSymbol TIME_SYMBOL = TimeSymbol.CUT;
+  private static final String TIME_SYMBOL = "cut";
   private static final int CF_DIVISIONS = 1;
   private static final int CPT_DIVISIONS = 2;
   private static final int CF_DURATION = 4;
@@ -76,116 +58,50 @@ public class Cpt2Score {
 
   public Cpt2Score(String title, String composer, Cpt2Thread thread) {
 
-    score_partwise = OF.createScorePartwise();
-
-    var work = OF.createWork();
-    work.setWorkTitle(title);
-    score_partwise.setWork(work);
+    this.title = title;
+    this.composer = composer;
+    this.encoding_date = LocalDate.ofInstant(Instant.now(), ZoneOffset.UTC);
 
-    var identification = OF.createIdentification();
-    score_partwise.setIdentification(identification);
-    identification.setEncoding(OF.createEncoding());
-    var creator = new TypedText();
-    identification.getCreator().add(creator);
-    creator.setValue(composer);
-    creator.setType("composer");
-    var today = DatatypeFactory.newDefaultInstance()
-            .newXMLGregorianCalendar(Instant.now().toString());
-    var encoding_date = OF.createEncodingEncodingDate(today);
-    identification.getEncoding().getEncodingDateOrEncoderOrSoftware().add(encoding_date);
-
-    part_list = OF.createPartList();
-    score_partwise.setPartList(part_list);
-    
     var cpt = thread.getCpt();
     if (cpt.isTreble()) {
       var treble = new XmlPart_Cpt2("P1", "Counterpoint-Treble", "cpt-tr",
               XmlClef.G2, cpt);
       var cf = new XmlPart_Cpt2("P2", "Cantus Firmus", "cf",
               XmlClef.C3, cpt.getCf());
-      this.addParts(treble, cf);
+      this.parts = List.of(treble, cf);
     } else {
       var cf = new XmlPart_Cpt2("P1", "Cantus Firmus", "cf",
               XmlClef.C3, cpt.getCf());
       var bass = new XmlPart_Cpt2("P2", "Counterpoint-Bass", "cpt-b",
               XmlClef.F4, cpt);
-      this.addParts(cf, bass);
+      this.parts = List.of(cf, bass);
     }
   }
 
-  private void addParts(XmlPart_Cpt2... parts) {
+  private void write(MusicXMLWriter xml) throws IOException {
 
-    var part_group_start = OF.createPartGroup();
-    part_list.getPartGroupOrScorePart().add(part_group_start);
-    part_group_start.setNumber("1");
-    part_group_start.setType(StartStop.START);
-    var group_symbol = OF.createGroupSymbol();
-    part_group_start.setGroupSymbol(group_symbol);
-    group_symbol.setValue(GroupSymbolValue.BRACKET);
-    var group_barline = OF.createGroupBarline();
-    part_group_start.setGroupBarline(group_barline);
-    group_barline.setValue(GroupBarlineValue.YES);
+    xml.header(title, composer, encoding_date);
 
-    for (var part : parts) {
-      var score_part = _createPart(part);
-      part_list.getPartGroupOrScorePart().add(score_part);
-      _addMelody(score_part, part.getMelodies(), part.getClef());
-    }
+    xml.start("part-list");
+    xml.start("part-group").attribute("type", "start").attribute("number", "1");
+    xml.element("group-symbol", "bracket");
+    xml.element("group-barline", "yes");
+    xml.end();
+    for (var part : parts)
+      xml.scorePart(part.getId(), part.getPart_name(), part.getPart_name().replace("-", "\n"),
+              part.getPart_abbreviation(), INSTRUMENT_NAME,
+              Integer.parseInt(part.getId().replace("P", "")), MIDI_PROGRAM);
+    xml.start("part-group").attribute("type", "stop").attribute("number", "1").end();
+    xml.end();
 
-    var part_group_stop = OF.createPartGroup();
-    part_list.getPartGroupOrScorePart().add(part_group_stop);
-    part_group_stop.setNumber("1");
-    part_group_stop.setType(StartStop.STOP);
+    for (var part : parts)
+      _writeMelody(xml, part.getId(), part.getMelodies(), part.getClef());
   }
 
-  private ScorePart _createPart(XmlPart_Cpt2 part) {
-
-    var i_id = part.getId() + "-" + part.getId().replace("P", "I");
-    var score_part = OF.createScorePart();
-    score_part.setId(part.getId());
-
-    var part_name = OF.createPartName();
-    score_part.setPartName(part_name);
-    part_name.setValue(part.getPart_name());
-
-    var name_display = OF.createNameDisplay();
-    score_part.setPartNameDisplay(name_display);
-    var display_text = OF.createFormattedText();
-    name_display.getDisplayTextOrAccidentalText().add(display_text);
-    display_text.setValue(part.getPart_name().replace("-", "\n"));
-    display_text.setFontSize("10");
-
-    var part_abbr = OF.createPartName();
-    score_part.setPartAbbreviation(part_abbr);
-    part_abbr.setValue(part.getPart_abbreviation());
+  private void _writeMelody(MusicXMLWriter xml, String part_id,
+          List<CptMelody> melodies, XmlClef xml_clef) throws IOException {
 
-    var abbr_display = OF.createNameDisplay();
-    score_part.setPartAbbreviationDisplay(abbr_display);
-    var abbr_display_text = OF.createFormattedText();
-    abbr_display.getDisplayTextOrAccidentalText().add(abbr_display_text);
-    abbr_display_text.setValue(part.getPart_abbreviation());
-    abbr_display_text.setFontSize("10");
-
-    var score_instrument = OF.createScoreInstrument();
-    score_instrument.setId(i_id);
-    score_instrument.setInstrumentName(INSTRUMENT_NAME);
-    score_part.getScoreInstrument().add(score_instrument);
-
-    var midi_instrument = OF.createMidiInstrument();
-    midi_instrument.setId(score_instrument);
-    midi_instrument.setMidiChannel(Integer.valueOf(part.getId().replace("P", "")));
-    midi_instrument.setMidiProgram(MIDI_PROGRAM);
-    score_part.getMidiDeviceAndMidiInstrument().add(midi_instrument);
-
-    return score_part;
-  }
-
-  private void _addMelody(ScorePart score_part,
-          List<CptMelody> melodies, XmlClef xml_clef) {
-
-    var part = OF.createScorePartwisePart();
-    score_partwise.getPart().add(part);
-    part.setId(score_part);
+    xml.part(part_id);
 
     var measure_no = 0;
 
@@ -197,49 +113,28 @@ public class Cpt2Score {
       var end_measure = measure_no + bar;
 
       for (int i = 0; i < bar; i++) {
-        var measure = OF.createScorePartwisePartMeasure();
-        part.getMeasure().add(measure);
-        measure.setNumber(++measure_no + "");
+        xml.measure(++measure_no);
 
         if (measure_no == 1) {
-          var attributes = OF.createAttributes();
-          measure.getNoteOrBackupOrForward().add(attributes);
-
-          var key = OF.createKey();
-          attributes.getKey().add(key);
-          key.setFifths(BigInteger.ZERO);
-
-          var time = OF.createTime();
-          attributes.getTime().add(time);
-          time.setSymbol(TIME_SYMBOL);
-          time.getTimeSignature().add(OF.createTimeBeats("2"));
-          time.getTimeSignature().add(OF.createTimeBeatType("2"));
-
-          var clef = OF.createClef();
-          attributes.getClef().add(clef);
-          clef.setSign(ClefSign.valueOf(xml_clef.getSign().name()));
-          clef.setLine(BigInteger.valueOf(xml_clef.getLine()));
-
-          if ("P1".equals(score_part.getId())) {
-            var direction = OF.createDirection();
-            measure.getNoteOrBackupOrForward().add(direction);
-            var direction_type = OF.createDirectionType();
-            direction.getDirectionType().add(direction_type);
-            var metronome = OF.createMetronome();
-            direction_type.setMetronome(metronome);
-            metronome.getBeatUnit().add(BEAT_UNIT);
-            var per_minute = OF.createPerMinute();
-            metronome.setPerMinute(per_minute);
-            per_minute.setValue(PER_MINUTE.toString());
-
-            var sound = OF.createSound();
-            measure.getNoteOrBackupOrForward().add(sound);
-            sound.setTempo(BigDecimal.valueOf(PER_MINUTE * 4));
+          xml.start("attributes");
+          xml.start("key").element("fifths", "0").end();
+          xml.start("time").attribute("symbol", TIME_SYMBOL);
+          xml.element("beats", "2").element("beat-type", "2");
+          xml.end();
+          xml.start("clef");
+          xml.element("sign", xml_clef.getSign().name());
+          xml.element("line", String.valueOf(xml_clef.getLine()));
+          xml.end();
+          xml.end();
+
+          if ("P1".equals(part_id)) {
+            xml.start("direction").start("direction-type").start("metronome");
+            xml.element("beat-unit", BEAT_UNIT).element("per-minute", PER_MINUTE.toString());
+            xml.end().end().end();
+            xml.start("sound").attribute("tempo", String.valueOf(PER_MINUTE * 4)).end();
           }
         } else if (measure_no == start_measure) {
-          var print = OF.createPrint();
-          measure.getNoteOrBackupOrForward().add(print);
-          print.setNewSystem(YesNo.YES);
+          xml.start("print").attribute("new-system", "yes").end();
         }
 
         var note_bar = (melody instanceof Cpt2Counterpoint cpt && (i != bar - 1 && (!cpt.isWholeNoteCadence() || i != bar - 2)))
@@ -250,90 +145,93 @@ public class Cpt2Score {
             index--;
           var cpt_pitch = pitch_list.get(index).equals(CptPitchNode.getEmptyNode())
                   ? null : pitch_list.get(index).getPitch();
-          var note = OF.createNote();
-          measure.getNoteOrBackupOrForward().add(note);
-          note.setDuration(BigDecimal.valueOf(melody instanceof Cpt2Counterpoint && i < bar - 1 ? CPT_DURATION : CF_DURATION));
+          var duration = String.valueOf(melody instanceof Cpt2Counterpoint && i < bar - 1 ? CPT_DURATION : CF_DURATION);
           if (cpt_pitch == null) {
-            var rest = OF.createRest();
             if (melody instanceof Cpt2Counterpoint) {
-              var type = OF.createNoteType();
-              note.setType(type);
-              type.setValue("half");
+              xml.start("note");
+              xml.start("rest").end();
+              xml.element("duration", duration);
+              xml.element("type", "half");
             } else {
-              note.setPrintObject(YesNo.NO);
-              rest.setMeasure(YesNo.YES);
-            }
-            note.setRest(rest);
-          } else {
-            var pitch = OF.createPitch();
-            note.setPitch(pitch);
-            pitch.setStep(Step.valueOf(cpt_pitch.getStep()));
-            pitch.setOctave(cpt_pitch.getOctave());
-            var type = OF.createNoteType();
-            note.setType(type);
-            var notetype = melody instanceof Cpt2Counterpoint cpt && (i < bar - 2 || !cpt.isWholeNoteCadence() && i < bar - 1) ? "half" : "whole";
-            type.setValue(notetype);
-
-            switch (cpt_pitch.getAccidental()) {
-              case "sharp" -> {
-                pitch.setAlter(BigDecimal.ONE);
-                var accidental = OF.createAccidental();
-                note.setAccidental(accidental);
-                accidental.setValue(AccidentalValue.SHARP);
-              }
-              case "flat" -> {
-                pitch.setAlter(BigDecimal.valueOf(-1));
-                var accidental = OF.createAccidental();
-                note.setAccidental(accidental);
-                accidental.setValue(AccidentalValue.FLAT);
-              }
-              default -> {
-                if (IntStream.range(0, index)
-                        .mapToObj(pitch_list::get)
-                        .map(CptPitchNode::getPitch)
-                        .filter(Objects::nonNull)
-                        .anyMatch(p -> p.getNatural().equals(cpt_pitch) && !p.getAccidental().isBlank())) {
-                  var accidental = OF.createAccidental();
-                  note.setAccidental(accidental);
-                  accidental.setValue(AccidentalValue.NATURAL);
-                }
-              }
-            }
-
-            var notations = OF.createNotations();
-            note.getNotations().add(notations);
-            if (measure_no == end_measure) {
-              var fermata = OF.createFermata();
-              if ("P2".equals(score_part.getId())) {
-                fermata.setType(UprightInverted.INVERTED);
-                fermata.setDefaultY(BigDecimal.valueOf(-65));
-              } else {
-                fermata.setType(UprightInverted.UPRIGHT);
-                fermata.setDefaultY(BigDecimal.valueOf(5));
-              }
-              notations.getTiedOrSlurOrTuplet().add(fermata);
+              xml.start("note").attribute("print-object", "no");
+              xml.start("rest").attribute("measure", "yes").end();
+              xml.element("duration", duration);
             }
+            xml.end();
+            continue;
+          }
+          var notetype = melody instanceof Cpt2Counterpoint cpt && (i < bar - 2 || !cpt.isWholeNoteCadence() && i < bar - 1) ? "half" : "whole";
+          var alter = switch (cpt_pitch.getAccidental()) {
+            case "sharp" -> "1";
+            case "flat" -> "-1";
+            default -> null;
+          };
+          var accidental = Objects.nonNull(alter) ? cpt_pitch.getAccidental()
+                  : IntStream.range(0, index)
+                          .mapToObj(pitch_list::get)
+                          .map(CptPitchNode::getPitch)
+                          .filter(Objects::nonNull)
+                          .anyMatch(p -> p.getNatural().equals(cpt_pitch) && !p.getAccidental().isBlank())
+                  ? "natural" : null;
+
+          xml.start("note");
+          xml.start("pitch");
+          xml.element("step", cpt_pitch.getStep());
+          if (Objects.nonNull(alter))
+            xml.element("alter", alter);
+          xml.element("octave", String.valueOf(cpt_pitch.getOctave()));
+          xml.end();
+          xml.element("duration", duration);
+          xml.element("type", notetype);
+          if (Objects.nonNull(accidental))
+            xml.element("accidental", accidental);
+
+          xml.start("notations");
+          if (measure_no == end_measure) {
+            xml.start("fermata");
+            if ("P2".equals(part_id))
+              xml.attribute("type", "inverted").attribute("default-y", "-65");
+            else
+              xml.attribute("type", "upright").attribute("default-y", "5");
+            xml.end();
           }
+          xml.end();
+          xml.end();
         }
-        var barline = OF.createBarline();
-        measure.getNoteOrBackupOrForward().add(barline);
-        barline.setLocation(RightLeftMiddle.RIGHT);
-        var barstyle = OF.createBarStyleColor();
-        barline.setBarStyle(barstyle);
-        barstyle.setValue(measure_no == end_measure
-                ? BarStyle.LIGHT_LIGHT : BarStyle.NONE);
+        xml.start("barline").attribute("location", "right");
+        xml.element("bar-style", measure_no == end_measure ? "light-light" : "none");
+        xml.end();
+        xml.end();
       }
     }
+    xml.end();
   }
 
+  /**
+   * Write the score as uncompressed MusicXML.
+   *
+   * @param out target writer, flushed but left open.
+   * @throws IOException
+   */
+  public void writeMusicXML(Writer out) throws IOException {
+
+    try (var xml = MusicXMLWriter.of(out)) {
+      write(xml);
+    }
+  }
+
+  /**
+   * Write the score as MusicXML, compressed if the file name ends with
+   * {@value MusicXMLWriter#MXL}.
+   *
+   * @param folder target folder.
+   * @param filename target file name.
+   */
   public void writeMusicXML(Path folder, String filename) {
 
     folder.toFile().mkdirs();
-    var destination = folder.resolve(filename).toFile();
-    try (var os = new FileOutputStream(destination)) {
-      Marshalling.marshal(score_partwise, os, true, 2);
-    } catch (Marshalling.MarshallingException | FileNotFoundException ex) {
-      Logger.getLogger(Cpt2Score.class.getName()).log(java.util.logging.Level.SEVERE, null, ex);
+    try (var xml = MusicXMLWriter.of(folder.resolve(filename))) {
+      write(xml);
     } catch (IOException ex) {
       Logger.getLogger(Cpt2Score.class.getName()).log(java.util.logging.Level.SEVERE, null, ex);
     }
@@ -35,10 +35,10 @@ public class Parameters {
   public static final String DEFAULT_CF
           = "GENERATE_CF_02-18-58-824635800";
   
-  public static double ALPHA = 1.0;
-  public static double BETA = 1.0;
-  public static double MUTATION_RATE = 0.2;
-  public static double CROSSOVER_RATE = 0.1;
+  public static final double ALPHA = 1.0;
+  public static final double BETA = 1.0;
+  public static final double MUTATION_RATE = 0.2;
+  public static final double CROSSOVER_RATE = 0.1;
 
   public static final int PLANNER_DEVELOPING_POPULATION = 1000;
   public static final int PLANNER_PLANNING_POPULATION = 1;
@@ -47,15 +47,17 @@ public class Parameters {
   public static final int CPT_COMPOSING_POPULATION = 100;
   public static final int CPT_TESTING_POPULATION = 20;
 
-  public static double X_PHEROMONE_EVAPORATE_RATE = 0.1;
-  public static double X_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
-  public static double X_ALPHA = 2.0, X_BETA = 1.0;
-  public static double X_EXPLORE_CHANCE = 0.1;
+  public static final double X_PHEROMONE_EVAPORATE_RATE = 0.1;
+  public static final double X_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
+  public static final double X_ALPHA = 2.0, X_BETA = 1.0;
+  public static final double X_EXPLORE_CHANCE = 0.1;
 
-  public static double Y_PHEROMONE_EVAPORATE_RATE = 0.1;
-  public static double Y_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
-  public static double Y_ALPHA = 1.0, Y_BETA = 1.0;
-  public static double Y_EXPLORE_CHANCE = 0.2;
+  public static final double Y_PHEROMONE_EVAPORATE_RATE = 0.1;
+  public static final double Y_PHEROMONE_DEPOSIT_AMOUNT = 1.0;
+  public static final double Y_ALPHA = 1.0, Y_BETA = 1.0;
+  public static final double Y_EXPLORE_CHANCE = 0.2;
+
+  public static final int GRAPH_CACHE_SIZE = 64;
 
   public static final double COST_STANDARD = 1.0;
   public static final double COST_CPT_TO_CF = 3.0;
@@ -74,9 +76,9 @@ public class Parameters {
   public static final int MOTET_COMPOSE_TARGET_SIZE = 20;
 
   //CF Generator
-  public static String DEFAULT_EC_MODEL
+  public static final String DEFAULT_EC_MODEL
           = "DEVELOP_MODAL_STANDARD_04-21-00-700950200";
-  public static int DEFAULT_GENERATION = 300;
-  public static int DEFAULT_POPULATION_SIZE = 400;
-  public static int DEFAULT_TARGET_SIZE = 100;
+  public static final int DEFAULT_GENERATION = 300;
+  public static final int DEFAULT_POPULATION_SIZE = 400;
+  public static final int DEFAULT_TARGET_SIZE = 100;
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.cpt.framework;
+
+import static art.cctcc.music.Parameters.*;
+import art.cctcc.music.cpt.framework.CptEvaluation.EvalType;
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpace;
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpaceChromatic;
+
+/**
+ * Settings of a run, carried by composers, threads and evaluations in place
+ * of global state, so that composers with different settings may run side by
+ * side in one JVM.
+ * <p>
+ * Contexts are immutable; the base graph y_cpt is a shared singleton and must
+ * be treated as read-only.
+ *
+ * @param chromatic whether the chromatic style of ICCC is taken.
+ * @param evalType evaluation of the threads.
+ * @param y_cpt base graph of y, or null for the diatonic CptPitchSpace.
+ * @param x_explore_chance explore chance on graph x.
+ * @param y_explore_chance explore chance on graph y.
+ * @param x_pheromone_deposit pheromone deposit on graph x when developing.
+ * @param y_pheromone_deposit pheromone deposit on graph y when developing.
+ * @param x_pheromone_evaporate_rate evaporate rate of graph x when
+ * developing.
+ * @param y_pheromone_evaporate_rate evaporate rate of graph y when
+ * developing.
+ * @param developing_population population of the developing tasks.
+ * @param composing_population population of the composing task.
+ * @param mutation_rate mutation rate of CptEvolution.
+ * @param crossover_rate crossover rate of CptEvolution.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public record CompositionContext(boolean chromatic, EvalType evalType, CptPitchSpace y_cpt,
+        double x_explore_chance, double y_explore_chance,
+        double x_pheromone_deposit, double y_pheromone_deposit,
+        double x_pheromone_evaporate_rate, double y_pheromone_evaporate_rate,
+        int developing_population, int composing_population,
+        double mutation_rate, double crossover_rate) {
+
+  /**
+   * Context of the settings in Parameters, in the traditional style.
+   */
+  public static final CompositionContext DEFAULT = of(false);
+
+  /**
+   * Get the context of the settings in Parameters.
+   *
+   * @param chromatic whether the chromatic style is taken.
+   * @return CompositionContext.
+   */
+  public static CompositionContext of(boolean chromatic) {
+
+    return new CompositionContext(chromatic,
+            chromatic ? EvalType.chromatic : EvalType.traditional,
+            chromatic ? CptPitchSpaceChromatic.getInstance() : null,
+            X_EXPLORE_CHANCE, Y_EXPLORE_CHANCE,
+            X_PHEROMONE_DEPOSIT_AMOUNT, Y_PHEROMONE_DEPOSIT_AMOUNT,
+            X_PHEROMONE_EVAPORATE_RATE, Y_PHEROMONE_EVAPORATE_RATE,
+            CPT_DEVELOPING_POPULATION, CPT_COMPOSING_POPULATION,
+            MUTATION_RATE, CROSSOVER_RATE);
+  }
+
+  /**
+   * Copy of this context in the given style, the other settings kept.
+   *
+   * @param chromatic whether the chromatic style is taken.
+   * @return CompositionContext.
+   */
+  public CompositionContext withChromatic(boolean chromatic) {
+
+    return chromatic == this.chromatic ? this
+            : new CompositionContext(chromatic,
+                    chromatic ? EvalType.chromatic : EvalType.traditional,
+                    chromatic ? CptPitchSpaceChromatic.getInstance() : null,
+                    x_explore_chance, y_explore_chance,
+                    x_pheromone_deposit, y_pheromone_deposit,
+                    x_pheromone_evaporate_rate, y_pheromone_evaporate_rate,
+                    developing_population, composing_population,
+                    mutation_rate, crossover_rate);
+  }
+}
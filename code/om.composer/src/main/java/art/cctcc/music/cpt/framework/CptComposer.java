@@ -15,16 +15,20 @@
  */
 package art.cctcc.music.cpt.framework;
 
-import static art.cctcc.music.Parameters.*;
 import art.cctcc.music.cpt.ex.ImmatureCptCfPitchSpaceException;
 import art.cctcc.music.cpt.graphs.x.CptMusicMove;
 import art.cctcc.music.cpt.graphs.x.CptMusicSpace;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchMove;
-import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpaceChromatic;
 import art.cctcc.music.cpt.graphs.y_cpt_cf.CptCfPitchSpace;
 import art.cctcc.music.cpt.model.CptCantusFirmus;
 import art.cctcc.music.cpt.model.enums.CptTask;
 import static art.cctcc.music.cpt.model.enums.CptTask.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -36,8 +40,8 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import org.dom4j.DocumentException;
-import org.dom4j.DocumentHelper;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraphFile;
+import tech.metacontext.ocnhfa.antsomg.impl.XMLStreamExporter;
 import tech.metacontext.ocnhfa.antsomg.model.AntsOMGSystem;
 import tech.metacontext.ocnhfa.antsomg.model.Graph;
 import tech.metacontext.ocnhfa.composer.cf.ex.UnexpectedMusicNodeException;
@@ -67,17 +71,18 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
   private boolean treble;
 
   private CptTask task;
-  private int population = CPT_DEVELOPING_POPULATION;
-  private double x_pheromone_deposit = X_PHEROMONE_DEPOSIT_AMOUNT;
-  private double y_pheromone_deposit = Y_PHEROMONE_DEPOSIT_AMOUNT;
-  private double x_pheromone_evaporate_rate = X_PHEROMONE_EVAPORATE_RATE;
-  private double y_pheromone_evaporate_rate = Y_PHEROMONE_EVAPORATE_RATE;
+  private int population;
+  private double x_pheromone_deposit;
+  private double y_pheromone_deposit;
+  private double x_pheromone_evaporate_rate;
+  private double y_pheromone_evaporate_rate;
 
   private boolean parallel;
-  private boolean chromatic;
+  private CompositionContext context = CompositionContext.DEFAULT;
 
   private Map<String, Graph> graphs;
   private List<CptThread> threads;
+  private CptPopulation store;
 
   public static CptComposer getInstance(String id, CptCantusFirmus cf, boolean isTreble) {
 
@@ -95,19 +100,19 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
   @Override
   public void init_graphs() {
 
-    var y = new CptCfPitchSpace(this.cf, this.treble);
-    if (chromatic) {
-      y.setYCpt(CptPitchSpaceChromatic.getInstance());
-      CptEvaluation.type = CptEvaluation.EvalType.chromatic;
-    }
-    this.graphs = new HashMap<>(Map.of(
-            "x", new CptMusicSpace(),
-            "y", y));
+    CptCfPitchSpace y;
     try {
-      this.graphs.values().forEach(Graph::init_graph);
+      y = CptCfPitchSpace.getInstance(this.cf, this.treble, context.y_cpt());
     } catch (ImmatureCptCfPitchSpaceException ex) {
       System.out.println(ex);
+      // carry on with the graph as far as it is built
+      y = CptCfPitchSpace.getPartialInstance(this.cf, this.treble, context.y_cpt());
     }
+    var x = new CptMusicSpace();
+    x.init_graph();
+    this.graphs = new HashMap<>(Map.of(
+            "x", x,
+            "y", y));
   }
 
   @Override
@@ -116,6 +121,7 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
     this.threads = Stream.generate(this::generate)
             .limit(population)
             .collect(Collectors.toList());
+    this.store = null;
   }
 
   public CptMusicSpace getX() {
@@ -135,7 +141,7 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
 
   public CptThread generate() {
 
-    return new CptThread(this.cf, this.getY().getStart());
+    return new CptThread(context, this.cf, this.getY().getStart());
   }
 
   int counter, section;
@@ -172,8 +178,56 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
     }
   }
 
+  /**
+   * Develop a thread without writing to the graphs, which are only read, so
+   * that threads may be developed side by side. The pheromone is deposited
+   * later with deposit().
+   *
+   * @param thread thread to develop.
+   * @return traces of the thread, in order.
+   */
+  public List<CptTrace> developDetached(CptThread thread) {
+
+    var traces = new ArrayList<CptTrace>();
+    IntStream.range(1, cf.length())
+            .forEach(i -> {
+              var x_move = select_x(thread);
+              var y_move = select_y(i, thread, x_move);
+              var trace = new CptTrace(x_move, y_move);
+              thread.setCurrentTrace(trace);
+              traces.add(trace);
+            });
+    assert thread.getCpt().length() == cf.length();
+    thread.setCompleted(true);
+    return traces;
+  }
+
+  /**
+   * Deposit the pheromone of the traces of a thread developed with
+   * developDetached(), and evaporate, as developThread() does.
+   *
+   * @param traces traces of the thread.
+   */
+  public void deposit(List<CptTrace> traces) {
+
+    traces.forEach(trace -> {
+      this.getX().move(trace.getX(), x_pheromone_deposit);
+      this.getY().move(trace.getY(), y_pheromone_deposit);
+    });
+    if (this.task != COMPOSE) {
+      this.evaporate();
+    }
+  }
+
   public CptMusicMove nav_x(CptThread thread) {
 
+    var x_move = select_x(thread);
+    this.getX().move(x_move, x_pheromone_deposit);
+    return x_move;
+  }
+
+  private CptMusicMove select_x(CptThread thread) {
+
     var cpt = thread.getCpt();
     CptMusicMove x_move;
     if (cpt.length() >= 2 && cpt.getMelody().getLast().getName().matches("[BF].")) {
@@ -181,8 +235,8 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
     } else if (cpt.length() >= 2 && thread.lastPitchPath().absDiff() > 5) {
       x_move = new CptMusicMove(MusicThought.COMPLEMENTAL, MusicThought.SHORTTERM);
     } else {
-      var move0 = this.getX().getMove(this.getX().getStart(), X_EXPLORE_CHANCE);
-      var move1 = this.getX().getMove(move0.getSelected().getTo(), X_EXPLORE_CHANCE);
+      var move0 = this.getX().getMove(this.getX().getStart(), context.x_explore_chance());
+      var move1 = this.getX().getMove(move0.getSelected().getTo(), context.x_explore_chance());
       x_move = new CptMusicMove(move0, move1);
     }
     if (Objects.isNull(x_move.getMusicThought())) {
@@ -190,23 +244,28 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
               x_move.getMoves()[0].getSelected().getTo(),
               x_move.getMoves()[1].getSelected().getTo());
     }
-    this.getX().move(x_move, x_pheromone_deposit);
     return x_move;
   }
 
   public CptPitchMove nav_y(int locus, CptThread thread, CptMusicMove x_move) {
 
+    var y_move = select_y(locus, thread, x_move);
+    this.getY().move(y_move, y_pheromone_deposit);
+    return y_move;
+  }
+
+  private CptPitchMove select_y(int locus, CptThread thread, CptMusicMove x_move) {
+
     CptPitchMove y_move;
     var current = thread.getCurrentTrace().getY().getSelected().getTo();
     do {
       y_move = this.getY().getMove(
               locus,
               current,
-              Y_EXPLORE_CHANCE);
+              context.y_explore_chance());
     } while (this.getY().queryByVertex(locus, current).stream()
             .filter(x_move.getPredicate(thread)).count() > 0
             && !x_move.getPredicate(thread).test(y_move.getSelected()));
-    this.getY().move(y_move, y_pheromone_deposit);
     return y_move;
   }
 
@@ -229,41 +288,97 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
     return this.threads.stream().allMatch(CptThread::isCompleted);
   }
 
+  /**
+   * Insert threads into the population, keeping the best ones without
+   * duplicates, the best first.
+   *
+   * @param inserted_threads threads with final counterpoints.
+   */
   public void insert(CptThread... inserted_threads) {
 
-    var new_threads = Stream.of(List.of(inserted_threads), this.threads)
-            .flatMap(List::stream)
-            .distinct()
-            .sorted()
-            .limit(population)
-            .collect(Collectors.toList());
-
-    this.threads = new_threads;
+    if (Objects.isNull(this.store)) {
+      this.store = new CptPopulation(population);
+      this.store.insert(this.threads);
+    }
+    this.store.insert(List.of(inserted_threads));
+    this.threads = this.store.getThreads();
   }
 
   public String asXML() {
 
-    var doc = DocumentHelper.createDocument();
-    var root = doc.addElement("CptComposer").addAttribute("id", this.id);
-    root.addElement("thread_number")
-            .addText(String.valueOf(this.threads.size()));
-    root.addElement("mode")
-            .addText(this.cf.getMode().name());
-    root.addElement("cantus_firmus")
-            .addText(this.cf.getId());
-    root.addElement("cantus_firmus_melody")
-            .addText(this.cf.getMelody().toString());
-    root.addElement("counterpoint_place")
-            .addText(this.treble ? "treble" : "bass");
-    try {
-      var x = DocumentHelper.parseText(this.getX().asXML()).getRootElement();
-      var y = DocumentHelper.parseText(this.getY().asXML()).getRootElement();
-      root.add(x);
-      root.add(y);
-    } catch (DocumentException ex) {
+    var stringWriter = new StringWriter();
+    try (var out = XMLStreamExporter.of(stringWriter, false, true)) {
+      writeXML(out);
+    } catch (IOException ex) {
       Logger.getLogger(CptComposer.class.getName()).log(Level.SEVERE, null, ex);
     }
-    return doc.asXML();
+    return stringWriter.toString();
+  }
+
+  /**
+   * Write asXML() to a file in one pass, streaming the graphs instead of
+   * building the document.
+   *
+   * @param file target file.
+   * @throws IOException
+   */
+  public void writeXML(Path file) throws IOException {
+
+    try (var out = XMLStreamExporter.of(file, false, true)) {
+      writeXML(out);
+    }
+  }
+
+  /**
+   * Write asXML() to a writer in one pass.
+   *
+   * @param out target writer, flushed but left open.
+   * @throws IOException
+   */
+  public void writeXML(Writer out) throws IOException {
+
+    try (var exporter = XMLStreamExporter.of(out, false, true)) {
+      writeXML(exporter);
+    }
+  }
+
+  private void writeXML(XMLStreamExporter out) throws IOException {
+
+    out.start("CptComposer").attribute("id", this.id)
+            .element("thread_number", String.valueOf(this.threads.size()))
+            .element("mode", this.cf.getMode().name())
+            .element("cantus_firmus", this.cf.getId())
+            .element("cantus_firmus_melody", this.cf.getMelody().toString())
+            .element("counterpoint_place", this.treble ? "treble" : "bass");
+    this.getX().writeXML(out);
+    this.getY().writeXML(out);
+    out.end();
+  }
+
+  /**
+   * Write graphs x and y in binary to graph_x.bin and graph_y.bin in the
+   * folder.
+   *
+   * @param folder target folder.
+   * @throws IOException
+   */
+  public void writeGraphs(File folder) throws IOException {
+
+    StandardGraphFile.write(this.getX(), new File(folder, "graph_x.bin").toPath());
+    StandardGraphFile.write(this.getY(), new File(folder, "graph_y.bin").toPath());
+  }
+
+  /**
+   * Load pheromone trails and costs of graphs x and y written by
+   * writeGraphs(), into the initialized graphs.
+   *
+   * @param folder source folder.
+   * @throws IOException
+   */
+  public void readGraphs(File folder) throws IOException {
+
+    StandardGraphFile.read(this.getX(), new File(folder, "graph_x.bin").toPath());
+    StandardGraphFile.read(this.getY(), new File(folder, "graph_y.bin").toPath());
   }
 
   @Override
@@ -286,6 +401,7 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
   public void setAnts(List<CptThread> threads) {
 
     this.threads = threads;
+    this.store = null;
   }
 
   public String getId() {
@@ -333,21 +449,21 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
     this.task = task;
     switch (task) {
       case DEVELOP_PRIMARY -> {
-        population = CPT_DEVELOPING_POPULATION;
-        x_pheromone_deposit = X_PHEROMONE_DEPOSIT_AMOUNT;
-        y_pheromone_deposit = Y_PHEROMONE_DEPOSIT_AMOUNT;
-        x_pheromone_evaporate_rate = X_PHEROMONE_EVAPORATE_RATE;
-        y_pheromone_evaporate_rate = Y_PHEROMONE_EVAPORATE_RATE;
+        population = context.developing_population();
+        x_pheromone_deposit = context.x_pheromone_deposit();
+        y_pheromone_deposit = context.y_pheromone_deposit();
+        x_pheromone_evaporate_rate = context.x_pheromone_evaporate_rate();
+        y_pheromone_evaporate_rate = context.y_pheromone_evaporate_rate();
       }
       case DEVELOP_SECONDARY -> {
-        population = CPT_DEVELOPING_POPULATION;
+        population = context.developing_population();
         x_pheromone_deposit = 0.0;
-        y_pheromone_deposit = Y_PHEROMONE_DEPOSIT_AMOUNT;
+        y_pheromone_deposit = context.y_pheromone_deposit();
         x_pheromone_evaporate_rate = 0.0;
-        y_pheromone_evaporate_rate = Y_PHEROMONE_EVAPORATE_RATE;
+        y_pheromone_evaporate_rate = context.y_pheromone_evaporate_rate();
       }
       case COMPOSE -> {
-        population = CPT_COMPOSING_POPULATION;
+        population = context.composing_population();
         x_pheromone_deposit = 0.0;
         y_pheromone_deposit = 0.0;
         x_pheromone_evaporate_rate = 0.0;
@@ -368,15 +484,34 @@ public class CptComposer implements AntsOMGSystem<CptThread> {
 
   public void setChromatic(boolean chromatic) {
 
-    this.chromatic = chromatic;
+    this.context = context.withChromatic(chromatic);
+  }
+
+  public CompositionContext getContext() {
+
+    return context;
+  }
+
+  /**
+   * Set the context of the composer before its graphs are initialized. The
+   * population and pheromone settings of the current task are reset from the
+   * new context.
+   *
+   * @param context CompositionContext.
+   */
+  public void setContext(CompositionContext context) {
+
+    this.context = Objects.requireNonNull(context);
+    this.setTask(this.task);
   }
 
   public double getAverageEval() {
 
-    return this.threads.stream()
-            .map(thread -> CptEvaluation.getInstance(thread))
-            .mapToDouble(CptEvaluation::get)
-            .average().getAsDouble();
+    return Objects.nonNull(this.store)
+            ? this.store.getAverageEval()
+            : this.threads.stream()
+                    .mapToDouble(CptThread::getEval)
+                    .average().getAsDouble();
   }
 
   @Override
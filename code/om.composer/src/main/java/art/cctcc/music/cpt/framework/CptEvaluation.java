@@ -41,8 +41,6 @@ public class CptEvaluation {
     traditional, chromatic
   }
 
-  public static EvalType type = EvalType.traditional;
-
   private final Map<Supplier<CptEval>, Double> eval_fns;
   private final double base;
 
@@ -61,7 +59,7 @@ public class CptEvaluation {
             () -> new CptEvalSuccessiveLeaps(thread.getCpt()), 1.0,
             () -> new CptEvalRange(thread.getCpt()), 1.0));
 
-    switch (type) {
+    switch (thread.getContext().evalType()) {
       case traditional ->
         this.eval_fns.put(() -> new CptEvalRetainingNotes(thread), 1.0);
       case chromatic ->
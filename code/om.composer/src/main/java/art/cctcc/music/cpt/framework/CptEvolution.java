@@ -15,17 +15,23 @@
  */
 package art.cctcc.music.cpt.framework;
 
-import static art.cctcc.music.Parameters.*;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchNode;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchPath;
 import art.cctcc.music.cpt.model.CptMelody;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardParameters;
+import tech.metacontext.ocnhfa.composer.cf.ec.EvolutionTelemetry;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.getRandom;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.LINE;
 
@@ -38,8 +44,8 @@ public class CptEvolution {
   private final CptComposer composer;
   private final double threshold;
   private final int generation;
-  private final List<Double> evals;
-  private String report;
+  private final EvolutionTelemetry telemetry;
+  private final StringBuilder trace;
   private boolean debug;
 
   public CptEvolution(CptComposer composer, double threshold, int generation) {
@@ -47,51 +53,48 @@ public class CptEvolution {
     this.composer = composer;
     this.threshold = threshold;
     this.generation = generation;
-    this.evals = new ArrayList<>();
-    debug(composer.getId() + " CptEvolution Report",
-            composer.getCf().toString());
-//    report = composer.getId() + " CptEvolution Report\n";
+    this.telemetry = new EvolutionTelemetry();
+    this.trace = new StringBuilder();
   }
 
   public final void run() {
 
-    this.evals.add(composer.getAverageEval());
-    report += String.format("Initial Eval = %f\n", this.evals.get(0));
-    System.out.printf(debug ? "Initial Eval = %f\n" : " (%.2f", this.evals.get(0));
+    record(System.nanoTime(), Double.NaN);
+    System.out.printf(debug ? "Initial Eval = %f\n" : " (%.2f", telemetry.getMean(0));
 
-    debug("Initial population:");
-    debug(IntStream.range(0, composer.getPopulation())
-            .mapToObj(i -> String.format("[%2d] %s", i, composer.getAnts().get(i)))
-            .toArray(String[]::new));
+    debug(() -> "Initial population:\n" + listing(composer.getPopulation()));
 
     var generation_count = 0;
     boolean complete;
     do {
-      debug(LINE, "Generation = " + (++generation_count),
-              "Crossover:");
+      var begin = System.nanoTime();
+      var count = ++generation_count;
+      debug(() -> LINE + "\nGeneration = " + count + "\nCrossover:");
       var crossover_children = getCrossoverChildren();
 
-      debug("Mutation:");
-      var mutants = Stream.generate(this::tournamentSelection_k2)
+      debug(() -> "Mutation:");
+      var parents = Stream.generate(this::tournamentSelection_k2)
               .distinct()
-              .limit((int) (composer.getPopulation() * MUTATION_RATE))
-              .map(this::mutation)
-              .toArray(CptThread[]::new);
-
-      var generated = Stream.of(crossover_children, mutants)
-              .flatMap(Stream::of)
+              .limit((int) (composer.getPopulation() * composer.getContext().mutation_rate()))
+              .toList();
+      var mutants = inParallel(parents, this::mutation);
+      IntStream.range(0, parents.size())
+              .forEach(i -> debug(() -> "\t" + parents.get(i) + "\n ->\t" + mutants.get(i)));
+
+      var generated = Stream.of(List.of(crossover_children), mutants)
+              .flatMap(List::stream)
               .toArray(CptThread[]::new);
 
+      // evaluated ahead on the workers, so that insertion only compares
+      Stream.of(generated).parallel().forEach(CptThread::getEval);
+      var duplicate_rate = duplicateRate(generated);
       composer.insert(generated);
 
-      debug("Population after insertion:");
-      debug(IntStream.range(0, composer.getAnts().size())
-              .mapToObj(i -> String.format("[%2d] %s", i, composer.getAnts().get(i)))
-              .toArray(String[]::new));
+      debug(() -> "Population after insertion:\n" + listing(composer.getAnts().size()));
 
-      var eval = composer.getAverageEval();
-      this.evals.add(eval);
-      debug("Eval = " + eval);
+      record(begin, duplicate_rate);
+      var eval = telemetry.getMean(count);
+      debug(() -> "Eval = " + eval);
       if (!debug && generation_count % this.generation / 10 == 0) {
         System.out.print(".");
       }
@@ -102,27 +105,113 @@ public class CptEvolution {
     }
   }
 
+  /**
+   * Record the statistics of the population after a generation.
+   *
+   * @param begin System.nanoTime() at the start of the generation.
+   * @param duplicate_rate rate of the offspring duplicating a member.
+   */
+  private void record(long begin, double duplicate_rate) {
+
+    var ants = composer.getAnts();
+    var evals = ants.stream()
+            .mapToDouble(CptThread::getEval)
+            .summaryStatistics();
+    telemetry.record(composer.getAverageEval(), evals.getMax(), evals.getMin(),
+            EvolutionTelemetry.diversity(ants.stream()
+                    .map(thread -> thread.getCpt().getMelody())
+                    .toList()),
+            duplicate_rate, System.nanoTime() - begin);
+  }
+
+  /**
+   * Rate of the offspring duplicating a melody of the population, or of an
+   * offspring before them.
+   */
+  private double duplicateRate(CptThread[] generated) {
+
+    if (generated.length == 0) {
+      return Double.NaN;
+    }
+    var melodies = composer.getAnts().stream()
+            .map(thread -> thread.getCpt().getMelody())
+            .collect(Collectors.toCollection(HashSet::new));
+    var duplicates = Stream.of(generated)
+            .filter(thread -> !melodies.add(thread.getCpt().getMelody()))
+            .count();
+    return (double) duplicates / generated.length;
+  }
+
+  private String listing(int size) {
+
+    return IntStream.range(0, size)
+            .mapToObj(i -> String.format("[%2d] %s", i, composer.getAnts().get(i)))
+            .collect(Collectors.joining("\n"));
+  }
+
+  /**
+   * Crossover of domestic parents with external parents newly developed on
+   * the graphs. Offspring are bred side by side in rounds, on graphs which
+   * are only read meanwhile; the pheromone of the external parents taken is
+   * deposited in order once all children are bred.
+   *
+   * @return children.
+   */
   public CptThread[] getCrossoverChildren() {
 
     List<CptThread> result = new ArrayList<>();
+    List<List<CptTrace>> developed = new ArrayList<>();
+    var target = composer.getPopulation() * composer.getContext().crossover_rate();
     do {
-      var parent_domestic = this.tournamentSelection_k2();
-      var parent_external = this.composer.generate();
-      this.composer.developThread(parent_external);
-      var children = this.crossover(parent_domestic, parent_external);
-      if (children != null) {
-        debug("\tparent_domestic =", "\t\t" + parent_domestic,
-                "\tparent_external =", "\t\t" + parent_external,
-                "\tchildren =",
-                Arrays.stream(children)
-                        .map(child -> "\t\t" + child)
-                        .collect(Collectors.joining("\n")));
-        result.addAll(List.of(children));
+      var round = (int) Math.ceil((target - result.size()) / 2);
+      for (var offspring : inParallel(Collections.nCopies(round, this), CptEvolution::breed)) {
+        if (result.size() >= target) {
+          break;
+        }
+        developed.add(offspring.traces());
+        if (offspring.children() != null) {
+          debug(() -> "\tparent_domestic =\n\t\t" + offspring.parent_domestic()
+                  + "\n\tparent_external =\n\t\t" + offspring.parent_external()
+                  + "\n\tchildren =\n"
+                  + Arrays.stream(offspring.children())
+                          .map(child -> "\t\t" + child)
+                          .collect(Collectors.joining("\n")));
+          result.addAll(List.of(offspring.children()));
+        }
       }
-    } while (result.size() < composer.getPopulation() * CROSSOVER_RATE);
+    } while (result.size() < target);
+    developed.forEach(composer::deposit);
     return result.toArray(CptThread[]::new);
   }
 
+  private record Offspring(CptThread parent_domestic, CptThread parent_external,
+          List<CptTrace> traces, CptThread[] children) {
+
+  }
+
+  private Offspring breed() {
+
+    var parent_domestic = this.tournamentSelection_k2();
+    var parent_external = this.composer.generate();
+    var traces = this.composer.developDetached(parent_external);
+    return new Offspring(parent_domestic, parent_external, traces,
+            this.crossover(parent_domestic, parent_external));
+  }
+
+  /**
+   * Apply a task to each element on the common pool. Each task draws from a
+   * random generator of its own, seeded in order from the current one, so
+   * that the results do not depend on the workers.
+   */
+  private static <T, R> List<R> inParallel(List<T> elements, Function<T, R> task) {
+
+    var seeds = getRandom().longs(elements.size()).toArray();
+    return IntStream.range(0, elements.size()).parallel()
+            .mapToObj(i -> StandardParameters.withScopedRandom(new Random(seeds[i]),
+                    () -> task.apply(elements.get(i))))
+            .toList();
+  }
+
   public CptThread[] crossover(CptThread... threads) {
 
     var t0 = threads[0].getCpt().getMelody();
@@ -148,8 +237,8 @@ public class CptEvolution {
               }
             });
     return new CptThread[]{
-      new CptThread(composer.getCf(), c0),
-      new CptThread(composer.getCf(), c1)};
+      new CptThread(composer.getContext(), composer.getCf(), c0),
+      new CptThread(composer.getContext(), composer.getCf(), c1)};
   }
 
   public CptThread mutation(CptThread thread) {
@@ -179,9 +268,7 @@ public class CptEvolution {
     var result = Stream.of(mutant, IntStream.range(mutant.length, t0.length()).mapToObj(t0::getNote).toArray(CptPitchNode[]::new))
             .flatMap(Stream::of)
             .toArray(CptPitchNode[]::new);
-    var result_thread = new CptThread(composer.getCf(), List.of(result));
-    debug("\t" + thread, " ->\t" + result_thread);
-    return result_thread;
+    return new CptThread(composer.getContext(), composer.getCf(), List.of(result));
   }
 
   private CptPitchNode[] mutate(CptPitchNode[] mutant0, List<CptPitchPath> list0, CptMelody t0) {
@@ -225,12 +312,16 @@ public class CptEvolution {
     return pool.get(selected);
   }
 
-  private void debug(String... msgs) {
+  /**
+   * Print a message, and keep it for the report, in debug mode only; the
+   * message is only built then.
+   */
+  private void debug(Supplier<String> msg) {
 
-    String msg = List.of(msgs).stream().collect(Collectors.joining("\n"));
-    report += msg + "\n";
     if (debug) {
-      System.out.println(msg);
+      var text = msg.get();
+      trace.append(text).append('\n');
+      System.out.println(text);
     }
   }
 
@@ -244,14 +335,19 @@ public class CptEvolution {
     return generation;
   }
 
-  public List<Double> getEvals() {
+  public EvolutionTelemetry getTelemetry() {
 
-    return evals;
+    return telemetry;
   }
 
+  /**
+   * @return report of the statistics by generation, followed by the trace
+   * printed in debug mode.
+   */
   public String getReport() {
 
-    return report;
+    return composer.getId() + " CptEvolution Report\n" + composer.getCf() + "\n"
+            + telemetry.report() + trace;
   }
 
   public void setDebug(boolean debug) {
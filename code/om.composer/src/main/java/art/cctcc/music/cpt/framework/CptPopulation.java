@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.cpt.framework;
+
+import art.cctcc.music.cpt.graphs.y_cpt.CptPitchNode;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Population of the best CptThreads of a CptComposer, bounded in size.
+ * <p>
+ * Members are kept ordered by their cached evaluation, the worst first, so
+ * that a thread is inserted, or rejected, against the worst member in
+ * O(log K); duplicated melodies are found by a map of the melodies kept; the
+ * sum of the evaluations is kept along, in units of the eight decimal places
+ * of CptEvaluation, so that the average is exact and needs no
+ * re-evaluation.
+ * <p>
+ * The order is the one of a stable sort of the new threads before the
+ * members, as insertion used to be: threads of a later insertion come first
+ * among equals, and a thread duplicating a member takes its place.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class CptPopulation {
+
+  private static final double UNIT = 1e8;
+
+  private record Member(CptThread thread, double eval, long rank) {
+
+  }
+
+  /**
+   * Worst member first; ranks are unique.
+   */
+  private static final Comparator<Member> WORST_FIRST = Comparator
+          .comparingDouble(Member::eval)
+          .thenComparingLong(Member::rank);
+
+  private final int capacity;
+  private final TreeSet<Member> members;
+  private final Map<List<CptPitchNode>, Member> melodies;
+  private long sum;
+  private int insertion;
+  private List<CptThread> sorted;
+
+  public CptPopulation(int capacity) {
+
+    this.capacity = capacity;
+    this.members = new TreeSet<>(WORST_FIRST);
+    this.melodies = new HashMap<>(capacity * 2);
+  }
+
+  /**
+   * Insert threads, each kept if it is better than the worst member, or
+   * there is still room.
+   *
+   * @param threads threads with final counterpoints.
+   */
+  public void insert(List<CptThread> threads) {
+
+    var rank = (long) ++insertion << 32;
+    var firsts = new HashSet<List<CptPitchNode>>();
+    for (int i = 0; i < threads.size(); i++) {
+      var thread = threads.get(i);
+      var melody = thread.getCpt().getMelody();
+      if (!firsts.add(melody)) {
+        continue;
+      }
+      var member = new Member(thread, thread.getEval(), rank + Integer.MAX_VALUE - i);
+      var duplicate = melodies.get(melody);
+      if (Objects.nonNull(duplicate)) {
+        remove(duplicate);
+      } else if (members.size() == capacity) {
+        if (WORST_FIRST.compare(member, members.first()) < 0) {
+          continue;
+        }
+        remove(members.first());
+      }
+      members.add(member);
+      melodies.put(melody, member);
+      sum += Math.round(member.eval() * UNIT);
+      sorted = null;
+    }
+  }
+
+  private void remove(Member member) {
+
+    members.remove(member);
+    melodies.remove(member.thread().getCpt().getMelody());
+    sum -= Math.round(member.eval() * UNIT);
+  }
+
+  public int size() {
+
+    return members.size();
+  }
+
+  /**
+   * @return average evaluation of the members.
+   */
+  public double getAverageEval() {
+
+    return sum / UNIT / members.size();
+  }
+
+  /**
+   * @return members, the best first, as an unmodifiable list built once per
+   * change of the population.
+   */
+  public List<CptThread> getThreads() {
+
+    if (Objects.isNull(sorted)) {
+      sorted = members.descendingSet().stream()
+              .map(Member::thread)
+              .toList();
+    }
+    return sorted;
+  }
+}
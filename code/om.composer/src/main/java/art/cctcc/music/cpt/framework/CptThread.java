@@ -42,6 +42,8 @@ public class CptThread implements Ant<CptTrace>, Comparable {
    */
   private double exploreChance;
   private double pheromoneDeposit;
+  private final CompositionContext context;
+  private volatile Double eval;
 
   /**
    * Constructor for generation from AntsOMG framework.
@@ -51,6 +53,19 @@ public class CptThread implements Ant<CptTrace>, Comparable {
    */
   public CptThread(CptCantusFirmus cf, CptPitchNode entry) {
 
+    this(CompositionContext.DEFAULT, cf, entry);
+  }
+
+  /**
+   * Constructor for generation from AntsOMG framework.
+   *
+   * @param context context of the composer.
+   * @param cf
+   * @param entry
+   */
+  public CptThread(CompositionContext context, CptCantusFirmus cf, CptPitchNode entry) {
+
+    this.context = context;
     this.cpt = new CptCounterpoint(cf);
     this.cpt.addNote(entry);
     this.currentTrace = new CptTrace(null, new CptPitchMove(entry));
@@ -65,11 +80,29 @@ public class CptThread implements Ant<CptTrace>, Comparable {
    */
   public CptThread(CptCantusFirmus cf, List<CptPitchNode> melody) {
 
+    this(CompositionContext.DEFAULT, cf, melody);
+  }
+
+  /**
+   * Constructor for evolutionary computation operation.
+   *
+   * @param context context of the composer.
+   * @param cf
+   * @param melody
+   */
+  public CptThread(CompositionContext context, CptCantusFirmus cf, List<CptPitchNode> melody) {
+
+    this.context = context;
     this.route = null;
     this.cpt = new CptCounterpoint(cf);
     melody.stream().forEach(this.cpt::addNote);
   }
 
+  public CompositionContext getContext() {
+
+    return context;
+  }
+
   @Override
   public void setCurrentTrace(CptTrace trace) {
 
@@ -144,12 +177,30 @@ public class CptThread implements Ant<CptTrace>, Comparable {
             && Objects.deepEquals(this.cpt.getCf().getMelody(), other.cpt.getCf().getMelody());
   }
 
+  /**
+   * Evaluation of the thread, cached once the counterpoint is final, i.e.
+   * the thread is completed or made by evolutionary computation, so that it
+   * may be evaluated ahead on other threads.
+   *
+   * @return evaluation of the thread.
+   */
+  public double getEval() {
+
+    var cached = this.eval;
+    if (Objects.isNull(cached)) {
+      cached = CptEvaluation.getInstance(this).get();
+      if (this.route == null || this.completed) {
+        this.eval = cached;
+      }
+    }
+    return cached;
+  }
+
   @Override
   public int compareTo(Object obj) {
 
     final CptThread other = (CptThread) obj;
-    var compare = Double.compare(CptEvaluation.getInstance(other).get(),
-            CptEvaluation.getInstance(this).get());
+    var compare = Double.compare(other.getEval(), this.getEval());
     return compare;
     /*
        != 0 ? compare : other.toString().compareTo(this.toString());
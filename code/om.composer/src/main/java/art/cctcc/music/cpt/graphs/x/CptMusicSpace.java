@@ -18,7 +18,6 @@ package art.cctcc.music.cpt.graphs.x;
 import static art.cctcc.music.Parameters.ALPHA;
 import static art.cctcc.music.Parameters.BETA;
 import java.util.ArrayList;
-import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardMove;
@@ -43,19 +42,6 @@ public class CptMusicSpace extends MusicSpace {
     this(ALPHA, BETA);
   }
 
-  public CptMusicSpace duplicate() {
-
-    var new_graph = new CptMusicSpace(this.alpha, this.beta);
-    new_graph.init_graph();
-    this.getEdges().forEach(path0 -> {
-      var new_path = new_graph.queryByVertex(path0.getFrom()).stream()
-              .filter(path -> Objects.equals(path.getTo(), path0.getTo()))
-              .findFirst().get();
-      new_path.setPheromoneTrail(path0.getPheromoneTrail());
-    });
-    return new_graph;
-  }
-
   @Override
   @Deprecated
   public StandardMove<MusicPath> move(MusicNode current, double pheromone_deposit, double explore_chance, double... parameters) {
@@ -87,6 +73,10 @@ public class CptMusicSpace extends MusicSpace {
 
   public void move(CptMusicMove move, double pheromone_deposit) {
 
+    // graphs shared by several composers are only read by them.
+    if (pheromone_deposit == 0.0) {
+      return;
+    }
     move.getMoves()[0].getSelected().addPheromoneDeposit(pheromone_deposit);
     move.getMoves()[1].getSelected().addPheromoneDeposit(pheromone_deposit);
   }
@@ -28,15 +28,23 @@ import tech.metacontext.ocnhfa.composer.cf.ex.UnexpectedIntervalException;
  */
 public class CptPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode> {
 
-  private static CptPitchSpace cptps;
+  private static class Shared {
 
-  public static CptPitchSpace getInstance() {
+    private static final CptPitchSpace INSTANCE = new CptPitchSpace();
 
-    if (Objects.isNull(cptps)) {
-      cptps = new CptPitchSpace();
-      cptps.init_graph();
+    static {
+      INSTANCE.init_graph();
     }
-    return cptps;
+  }
+
+  /**
+   * Get the shared, read-only diatonic graph, built once on first use.
+   *
+   * @return shared CptPitchSpace.
+   */
+  public static CptPitchSpace getInstance() {
+
+    return Shared.INSTANCE;
   }
 
   CptPitchSpace() {
@@ -33,17 +33,23 @@ import tech.metacontext.ocnhfa.composer.cf.ex.UnexpectedIntervalException;
  */
 public class CptPitchSpaceChromatic extends CptPitchSpace {
 
-  public static boolean allowEnharmonic;
+  private static class Shared {
 
-  private static CptPitchSpaceChromatic cptps;
+    private static final CptPitchSpaceChromatic INSTANCE = new CptPitchSpaceChromatic();
 
+    static {
+      INSTANCE.init_graph();
+    }
+  }
+
+  /**
+   * Get the shared, read-only chromatic graph, built once on first use.
+   *
+   * @return shared CptPitchSpaceChromatic.
+   */
   public static CptPitchSpaceChromatic getInstance() {
 
-    if (Objects.isNull(cptps)) {
-      cptps = new CptPitchSpaceChromatic();
-      cptps.init_graph();
-    }
-    return cptps;
+    return Shared.INSTANCE;
   }
 
   @Override
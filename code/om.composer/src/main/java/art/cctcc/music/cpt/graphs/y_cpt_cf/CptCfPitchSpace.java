@@ -27,25 +27,27 @@ import art.cctcc.music.cpt.model.enums.CptPitch;
 import static art.cctcc.music.cpt.model.enums.CptPitch.*;
 import static art.cctcc.music.cpt.model.enums.IntervalQuality.*;
 import static art.cctcc.music.utils.CptCalculator.*;
+import art.cctcc.music.utils.GraphCache;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Formatter;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.dom4j.DocumentHelper;
-import org.dom4j.io.OutputFormat;
-import org.dom4j.io.XMLWriter;
+import org.dom4j.Element;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
+import tech.metacontext.ocnhfa.antsomg.impl.XMLStreamExporter;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.getRandom;
 import tech.metacontext.ocnhfa.composer.cf.utils.Pair;
 
@@ -55,6 +57,13 @@ import tech.metacontext.ocnhfa.composer.cf.utils.Pair;
  */
 public class CptCfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode> {
 
+  private record Key(String melody, CptEcclesiasticalMode mode, boolean treble, CptPitchSpace y_cpt) {
+
+  }
+
+  private static final GraphCache<Key, CptCfPitchSpace> cache
+          = new GraphCache<>(GRAPH_CACHE_SIZE);
+
   private CptCantusFirmus cf;
   private boolean treble;
   private List<Set<CptPitchPath>> loci;
@@ -77,6 +86,97 @@ public class CptCfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode> {
             .collect(Collectors.toList());
   }
 
+  /**
+   * Get a fork of the built graph for the given cantus firmus, voice and
+   * y-cpt, with its own copy of the pheromone trails the graph is built with.
+   * Built graphs are cached by melody, mode, voice and y-cpt, and shared
+   * between callers, which never walk them.
+   *
+   * @param cf cantus firmus.
+   * @param treble if the counterpoint is above the cantus firmus.
+   * @param y_cpt base graph y-cpt, or <code>null</code> for
+   * CptPitchSpace.getInstance().
+   * @return built CptCfPitchSpace owned by the caller.
+   * @throws ImmatureCptCfPitchSpaceException if the graph cannot be completed.
+   */
+  public static CptCfPitchSpace getInstance(CptCantusFirmus cf, boolean treble,
+          CptPitchSpace y_cpt) throws ImmatureCptCfPitchSpaceException {
+
+    var cached = cached(cf, treble, y_cpt);
+    if (cached.getLoci().size() < cf.length()) {
+      throw new ImmatureCptCfPitchSpaceException(cf, treble, cached.asGraphviz());
+    }
+    return cached.fork(cf);
+  }
+
+  /**
+   * Get a fork of the graph for the given cantus firmus, voice and y-cpt as
+   * far as it is built, i.e. with the loci before the one the graph cannot be
+   * completed at, if getInstance() fails; like getInstance(), the fork has its
+   * own copy of the pheromone trails the graph is built with.
+   *
+   * @param cf cantus firmus.
+   * @param treble if the counterpoint is above the cantus firmus.
+   * @param y_cpt base graph y-cpt, or <code>null</code> for
+   * CptPitchSpace.getInstance().
+   * @return CptCfPitchSpace owned by the caller, possibly immature.
+   */
+  public static CptCfPitchSpace getPartialInstance(CptCantusFirmus cf, boolean treble,
+          CptPitchSpace y_cpt) {
+
+    return cached(cf, treble, y_cpt).fork(cf);
+  }
+
+  private static CptCfPitchSpace cached(CptCantusFirmus cf, boolean treble,
+          CptPitchSpace y_cpt) {
+
+    var base = Objects.isNull(y_cpt) ? CptPitchSpace.getInstance() : y_cpt;
+    var key = new Key(cf.getMelody().toString(), cf.getMode(), treble, base);
+    return cache.get(key, () -> {
+      var y = new CptCfPitchSpace(cf, treble);
+      y.setYCpt(base);
+      try {
+        y.init_graph();
+      } catch (ImmatureCptCfPitchSpaceException ex) {
+        // cached as well, so that the failure is not rebuilt
+      }
+      return y;
+    });
+  }
+
+  public static void clearCache() {
+
+    cache.clear();
+  }
+
+  /**
+   * Fork this graph for another cantus firmus instance.
+   *
+   * @param cf cantus firmus of the fork, with the same melody and mode.
+   * @return forked CptCfPitchSpace.
+   */
+  public CptCfPitchSpace fork(CptCantusFirmus cf) {
+
+    CptCfPitchSpace fork = this.fork();
+    fork.cf = cf;
+    return fork;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // a fork is of the class of this graph, as clone() makes it
+  public <G extends StandardGraph<CptPitchPath, CptPitchNode>> G fork() {
+
+    CptCfPitchSpace fork = super.fork();
+    if (Objects.nonNull(this.loci)) {
+      fork.loci = this.loci.stream()
+              .map(locus -> locus.stream()
+              .map(path -> (CptPitchPath) path.copy())
+              .collect(Collectors.toCollection(HashSet::new)))
+              .collect(Collectors.toCollection(ArrayList::new));
+    }
+    return (G) fork;
+  }
+
   public void setYCpt(CptPitchSpace y_cpt) {
 
     this.y_cpt = y_cpt;
@@ -121,19 +221,42 @@ public class CptCfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode> {
                 }
               });
     });
+    if (cf.getMode().equals(CptEcclesiasticalMode.Aeolian)) {
+      // rehash the paths altered above
+      this.loci.set(cf.length() - 3, new HashSet<>(this.loci.get(cf.length() - 3)));
+    }
     if (this.loci.size() == cf.length()) {
-      IntStream.iterate(cf.length() - 2, i -> i >= 0, i -> i - 1)
-              .forEach(locus -> {
-                var dead_ends = this.loci.get(locus).stream()
-                        .filter(path -> this.queryByVertex(locus + 1, path.getTo()).isEmpty())
-                        .collect(Collectors.toList());
-                this.loci.get(locus).removeAll(dead_ends);
-              });
+      this.removeDeadEnds();
     } else {
       throw new ImmatureCptCfPitchSpaceException(cf, treble, this.asGraphviz());
     }
   }
 
+  /**
+   * Remove paths which cannot be part of a complete counterpoint, by a
+   * backward sweep for paths whose destination leads nowhere in the next
+   * locus, followed by a forward sweep for paths whose origin is not reached
+   * from the previous locus.
+   */
+  private void removeDeadEnds() {
+
+    for (int locus = this.loci.size() - 2; locus >= 0; locus--) {
+      var continued = pitchMask(this.loci.get(locus + 1), CptPitchPath::getFrom);
+      this.loci.get(locus).removeIf(path -> !continued.get(path.getTo().getPitch().ordinal()));
+    }
+    for (int locus = 1; locus < this.loci.size(); locus++) {
+      var reached = pitchMask(this.loci.get(locus - 1), CptPitchPath::getTo);
+      this.loci.get(locus).removeIf(path -> !reached.get(path.getFrom().getPitch().ordinal()));
+    }
+  }
+
+  private static BitSet pitchMask(Set<CptPitchPath> paths, Function<CptPitchPath, CptPitchNode> end) {
+
+    var mask = new BitSet(CptPitch.values().length);
+    paths.forEach(path -> mask.set(end.apply(path).getPitch().ordinal()));
+    return mask;
+  }
+
   public BigDecimal cpt_count() {
 
     if (this.getLoci().size() < this.cf.length()) {
@@ -226,52 +349,85 @@ public class CptCfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode> {
   }
 
   @Override
-  public String asGraphviz() {
-
-    var incompleted = loci.size() < cf.length();
-
-    var cluster = IntStream.range(0, loci.size()).mapToObj(i -> String.format(
-            """
-            \tsubgraph cluster_%d {
-            \t\tnode [style=filled];
-            %s
-            \t\tlabel = \"locus #%d\";
-            \t\tcolor=blue
-            \t}""",
-            i,
-            loci.get(i).stream()
-                    .map(p -> String.format("\t\t%s_%d[label=\"%s\"];", p.getTo().getPitch().name(), i, p.getTo().getPitch().name()))
-                    .distinct()
-                    .collect(Collectors.joining("\n")),
-            i))
-            .collect(Collectors.joining("\n"));
-    var body = IntStream.range(1, loci.size()).mapToObj(
-            i -> loci.get(i).stream().map(
-                    path -> isBlank()
-                            ? String.format("\t%s -> %s [ label=<c=%.1f>, penwidth=0.5 ];",
-                                    path.getFrom().getName() + "_" + (i - 1),
-                                    path.getTo().getName() + "_" + i,
-                                    path.getCost())
-                            : String.format("\t%s -> %s [ label=<c=%.1f, pher=%.2f>, penwidth=0.5 ];",
-                                    path.getFrom().getName() + "_" + (i - 1),
-                                    path.getTo().getName() + "_" + i,
-                                    path.getCost(),
-                                    path.getPheromoneTrail()))
-                    .collect(Collectors.joining("\n")))
-            .collect(Collectors.joining("\n"));
-    return String.format("digraph %s {\n\t%s\n\trankdir=LR;\n\tnode [shape=circle];\n%s\n%s\n}",
-            this.getClass().getSimpleName(),
-            String.format("// cantus firmus = %s", this.cf.getMelody().toString())
-            + (incompleted ? String.format("\n\t// Incompleted Graph (cf.length = %d).", cf.length()) : ""),
-            cluster, body);
+  public void writeGraphviz(Writer out) throws IOException {
+
+    var dot = new Formatter(out);
+    var blank = isBlank();
+    dot.format("digraph %s {\n\t// cantus firmus = %s", this.getClass().getSimpleName(), this.cf.getMelody().toString());
+    if (loci.size() < cf.length()) {
+      dot.format("\n\t// Incompleted Graph (cf.length = %d).", cf.length());
+    }
+    out.write("\n\trankdir=LR;\n\tnode [shape=circle];\n");
+    for (int i = 0; i < loci.size(); i++) {
+      if (i > 0) {
+        out.write("\n");
+      }
+      dot.format("\tsubgraph cluster_%d {\n\t\tnode [style=filled];\n", i);
+      var pitches = new BitSet();
+      var separator = "";
+      for (var path : loci.get(i)) {
+        var pitch = path.getTo().getPitch();
+        if (!pitches.get(pitch.ordinal())) {
+          pitches.set(pitch.ordinal());
+          out.write(separator);
+          separator = "\n";
+          dot.format("\t\t%s_%d[label=\"%s\"];", pitch.name(), i, pitch.name());
+        }
+      }
+      dot.format("\n\t\tlabel = \"locus #%d\";\n\t\tcolor=blue\n\t}", i);
+    }
+    out.write("\n");
+    for (int i = 1; i < loci.size(); i++) {
+      if (i > 1) {
+        out.write("\n");
+      }
+      var separator = "";
+      for (var path : loci.get(i)) {
+        out.write(separator);
+        separator = "\n";
+        if (blank) {
+          dot.format("\t%s_%d -> %s_%d [ label=<c=%.1f>, penwidth=0.5 ];",
+                  path.getFrom().getName(), i - 1,
+                  path.getTo().getName(), i,
+                  path.getCost());
+        } else {
+          dot.format("\t%s_%d -> %s_%d [ label=<c=%.1f, pher=%.2f>, penwidth=0.5 ];",
+                  path.getFrom().getName(), i - 1,
+                  path.getTo().getName(), i,
+                  path.getCost(),
+                  path.getPheromoneTrail());
+        }
+      }
+    }
+    out.write("\n}");
+    flush(dot);
   }
 
   @Override
-  public String asXML() {
+  protected void writeGraphMLElements(XMLStreamExporter xml) throws IOException {
+
+    for (int i = 0; i < loci.size(); i++) {
+      var pitches = new BitSet();
+      for (var path : loci.get(i)) {
+        var pitch = path.getTo().getPitch();
+        if (!pitches.get(pitch.ordinal())) {
+          pitches.set(pitch.ordinal());
+          writeGraphMLNode(xml, pitch.name() + "_" + i, pitch.name());
+        }
+      }
+    }
+    for (int i = 1; i < loci.size(); i++) {
+      for (var path : loci.get(i)) {
+        writeGraphMLEdge(xml, path.getFrom().getName() + "_" + (i - 1),
+                path.getTo().getName() + "_" + i, path);
+      }
+    }
+  }
 
-    var doc = DocumentHelper.createDocument();
-    doc.setXMLEncoding("UTF-8");
-    var root = doc.addElement(this.getClass().getSimpleName());
+  @Override
+  public Element asElement() {
+
+    var root = DocumentHelper.createElement(this.getClass().getSimpleName());
     IntStream.range(0, this.loci.size()).forEach(i -> {
       var locus = root.addElement("locus").addAttribute("number", "" + i);
       this.loci.get(i).stream().forEach(path -> {
@@ -284,17 +440,28 @@ public class CptCfPitchSpace extends StandardGraph<CptPitchPath, CptPitchNode> {
         edge.addElement("pheromoneTrail").setText(String.valueOf(path.getPheromoneTrail()));
       });
     });
-    var format = OutputFormat.createPrettyPrint();
-    format.setExpandEmptyElements(true);
-    format.setSuppressDeclaration(true);
-    var xmlResult = new StringWriter();
-    var writer = new XMLWriter(xmlResult, format);
-    try {
-      writer.write(doc);
-    } catch (IOException ex) {
-      Logger.getLogger(CptCfPitchSpace.class.getName()).log(Level.SEVERE, null, ex);
+    return root;
+  }
+
+  @Override
+  public void writeXML(XMLStreamExporter out) throws IOException {
+
+    out.start(this.getClass().getSimpleName());
+    for (int i = 0; i < this.loci.size(); i++) {
+      out.start("locus").attribute("number", "" + i);
+      for (var path : this.loci.get(i)) {
+        out.start("CptPitchPath");
+        if (Objects.nonNull(path.getFrom())) {
+          out.element("from", path.getFrom().getName());
+        }
+        out.element("to", path.getTo().getName())
+                .element("cost", String.valueOf(path.getCost()))
+                .element("pheromoneTrail", String.valueOf(path.getPheromoneTrail()))
+                .end();
+      }
+      out.end();
     }
-    return xmlResult.toString();
+    out.end();
   }
 
   private boolean hasStylisticDepartures(CptPitchPath path, int locus) {
@@ -22,7 +22,6 @@ import static art.cctcc.music.cpt.model.enums.IntervalQuality.*;
 import java.util.List;
 import java.util.Objects;
 import static java.util.function.Predicate.not;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -39,6 +38,18 @@ public enum CptPitch {
   C5(31), Cs5(32), D5(33), Ds5(34), E5(35), F5(36),
   Fs5(37), G5(38);
 
+  private static final List<CptPitch> DIATONIC_VALUES = Stream.of(values())
+          .filter(not(p -> p.name().matches(".[sf].")))
+          .toList();
+
+  /**
+   * Index in {@link #diatonicValues()} of the natural of each pitch, by
+   * ordinal.
+   */
+  private static final int[] DIATONIC_INDEX = Stream.of(values())
+          .mapToInt(p -> DIATONIC_VALUES.indexOf(p.getNatural()))
+          .toArray();
+
   private final int chromatic_number;
   private final CptPitchNode node;
 
@@ -60,9 +71,7 @@ public enum CptPitch {
 
   public static List<CptPitch> diatonicValues() {
 
-    return Stream.of(values())
-            .filter(not(p -> p.name().matches(".[sf].")))
-            .collect(Collectors.toList());
+    return DIATONIC_VALUES;
   }
 
   public boolean tritone(CptPitch target) {
@@ -97,8 +106,8 @@ public enum CptPitch {
 
   public static int diatonicDiff(CptPitchNode from, CptPitchNode to) {
 
-    var from_dia = diatonicValues().indexOf(from.getPitch().getNatural());
-    var to_dia = diatonicValues().indexOf(to.getPitch().getNatural());
+    var from_dia = DIATONIC_INDEX[from.getPitch().ordinal()];
+    var to_dia = DIATONIC_INDEX[to.getPitch().ordinal()];
     return to_dia - from_dia;
   }
 
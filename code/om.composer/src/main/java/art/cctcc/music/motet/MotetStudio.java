@@ -28,7 +28,7 @@ import static art.cctcc.music.motet.model.enums.ProgressiveFactor.*;
 import art.cctcc.music.motet.model.enums.SectionType;
 import static art.cctcc.music.motet.model.enums.SectionType.CPT_BASS;
 import art.cctcc.music.utils.Settings;
-import art.cctcc.music.utils.io.CFXMLReader;
+import art.cctcc.music.utils.io.CFCorpus;
 import static art.cctcc.music.utils.io.CFXMLReader.getCptMusicSpaceFromCFComposer;
 import art.cctcc.music.utils.io.CFXMLWriter;
 import art.cctcc.music.utils.musicxml.MotetScore;
@@ -36,6 +36,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
@@ -52,6 +53,8 @@ import static art.cctcc.music.Parameters.SETTINGS_FILENAME;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpace;
 import art.cctcc.music.cpt.graphs.y_cpt.CptPitchSpaceChromatic;
 import art.cctcc.music.utils.Tools;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
 
 /**
  *
@@ -97,12 +100,14 @@ public class MotetStudio {
   private Entry<CptCantusFirmus[], CptMusicSpace> loadCFList(File model) {
 
     System.out.println("Loading cf list from " + model);
-    var fileList = new File(model, "cantus_firmus")
-            .listFiles((dir, name) -> name.endsWith(".xml"));
+    CFCorpus corpus;
+    try {
+      corpus = CFCorpus.getInstance(model.toPath());
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
     return Map.entry(
-            Arrays.stream(fileList)
-                    .sorted(Comparator.comparing(file -> Integer.valueOf(file.getName().split("[_.]")[2])))
-                    .map(CFXMLReader::getCptCantusFirmusFromXML)
+            corpus.getAll().stream()
                     .filter(cf -> !settings.check_cf || Tools.checkCF(cf, cps) == null)
                     .sorted(Comparator.comparing(CF_SCORE))
                     .toArray(CptCantusFirmus[]::new),
@@ -167,8 +172,7 @@ public class MotetStudio {
     for (int i = 0; i < settings.composer_no; i++) {
       var composer = motet_composers.get(i);
       var output_path = project_folder.resolve(composer.getId());
-      Files.writeString(output_path.resolve("planner.graphviz"),
-              composer.getGraph().asGraphviz());
+      writeGraphviz(output_path.resolve("planner.graphviz"), composer.getGraph());
       var motet_list_path = output_path.resolve("motet_list.csv");
       var listOut = "Motet Title, Sections" + System.lineSeparator()
               + composer.getMotets().stream()
@@ -190,88 +194,87 @@ public class MotetStudio {
 
   public void save() {
 
-    this.motet_composers.forEach(this::saveComposer);
+    try (var sink = ArtifactSink.of(project_folder, settings.archive)) {
+      for (var composer : this.motet_composers) {
+        saveComposer(sink, composer);
+      }
+    } catch (IOException ex) {
+      Logger.getLogger(MotetStudio.class
+              .getName()).log(Level.SEVERE, null, ex);
+    }
   }
 
-  private void saveComposer(MotetComposer composer) {
+  private void saveComposer(ArtifactSink sink, MotetComposer composer)
+          throws IOException {
 
     var output_path = project_folder.resolve(composer.getId());
-    output_path.toFile().mkdirs();
     System.out.printf("%s --> %s\n", composer.getId(), output_path);
 
-    try {
-      var graph_x_path = output_path.resolve("graph_x");
-      graph_x_path.toFile().mkdirs();
-      for (var entry : composer.getX().entrySet()) {
-        var graph_x = entry.getValue();
-        Files.writeString(graph_x_path.resolve(entry.getKey() + ".xml"),
-                graph_x.asXML());
-        Files.writeString(graph_x_path.resolve(entry.getKey() + ".graphviz"),
-                graph_x.asGraphviz());
-      }
+    var graph_x_path = output_path.resolve("graph_x");
+    for (var entry : composer.getX().entrySet()) {
+      var graph_x = entry.getValue();
+      sink.writeText(graph_x_path.resolve(entry.getKey() + ".xml"), graph_x::writeXML);
+      sink.writeText(graph_x_path.resolve(entry.getKey() + ".graphviz"), graph_x::writeGraphviz);
+    }
 
-      for (int j = 0; j < settings.motet_no_per_composer; j++) {
-        var motet = composer.getMotets().get(j);
-        var motet_score = new MotetScore(motet.getTitle(),
-                settings.project_name + "\n" + composer.getId(),
-                motet.getComposition());
-        var score_path = output_path.resolve(String.format("motet_%d.musicxml", j + 1));
-        motet_score.writeMusicXML(score_path.toFile());
+    for (int j = 0; j < settings.motet_no_per_composer; j++) {
+      var motet = composer.getMotets().get(j);
+      var motet_score = new MotetScore(motet.getTitle(),
+              settings.project_name + "\n" + composer.getId(),
+              motet.getComposition());
+      var score_path = output_path.resolve(String.format("motet_%d.musicxml", j + 1));
+      sink.writeText(score_path, motet_score::writeMusicXML);
 
-        var motet_data_folder = output_path.resolve(motet.getId());
-        saveMotetData(motet, motet_data_folder);
-      }
-    } catch (IOException ex) {
-      Logger.getLogger(MotetStudio.class
-              .getName()).log(Level.SEVERE, null, ex);
+      var motet_data_folder = output_path.resolve(motet.getId());
+      saveMotetData(sink, motet, motet_data_folder);
     }
   }
 
-  private void saveMotetData(Motet motet, Path motet_data_folder)
+  private void saveMotetData(ArtifactSink sink, Motet motet, Path motet_data_folder)
           throws IOException {
 
-    motet_data_folder.toFile().mkdirs();
-
     for (int i = 0; i < motet.getScheme().size(); i++) {
       var section = motet.getComposition().get(i);
       var folder = motet_data_folder.resolve(i + "_" + section.getKey().name());
-      folder.toFile().mkdirs();
       var sectionType = section.getKey();
       switch (sectionType) {
         case CF ->
-          saveMotetCF(folder, (CptCantusFirmus) section.getValue(),
+          saveMotetCF(sink, folder, (CptCantusFirmus) section.getValue(),
                   (CptComposer[]) motet.getData().get(i));
         case CPT_TREBLE, CPT_BASS ->
-          saveMotetCPT(folder, sectionType, (CptCounterpoint) section.getValue(),
+          saveMotetCPT(sink, folder, sectionType, (CptCounterpoint) section.getValue(),
                   (CptEvolution) motet.getData().get(i));
       }
     }
   }
 
-  private void saveMotetCF(Path folder, CptCantusFirmus cf, CptComposer[] data)
+  private void saveMotetCF(ArtifactSink sink, Path folder, CptCantusFirmus cf, CptComposer[] data)
           throws IOException {
 
-    CFXMLWriter.saveCantusFirmus(cf, folder.toFile(), "cf");
+    CFXMLWriter.saveCantusFirmus(sink, cf, folder.toFile(), "cf");
 
-    Files.writeString(folder.resolve("composer_treble.xml"), data[0].asXML());
-    Files.writeString(folder.resolve("treble.x.graphviz"), data[0].getX().asGraphviz());
-    Files.writeString(folder.resolve("treble.y.graphviz"), data[0].getY().asGraphviz());
+    sink.writeText(folder.resolve("composer_treble.xml"), data[0]::writeXML);
+    sink.writeText(folder.resolve("treble.x.graphviz"), data[0].getX()::writeGraphviz);
+    sink.writeText(folder.resolve("treble.y.graphviz"), data[0].getY()::writeGraphviz);
 
-    Files.writeString(folder.resolve("composer_bass.xml"), data[0].asXML());
-    Files.writeString(folder.resolve("bass.x.graphviz"), data[1].getX().asGraphviz());
-    Files.writeString(folder.resolve("bass.y.graphviz"), data[1].getY().asGraphviz());
+    sink.writeText(folder.resolve("composer_bass.xml"), data[0]::writeXML);
+    sink.writeText(folder.resolve("bass.x.graphviz"), data[1].getX()::writeGraphviz);
+    sink.writeText(folder.resolve("bass.y.graphviz"), data[1].getY()::writeGraphviz);
   }
 
-  private void saveMotetCPT(Path folder, SectionType type, CptCounterpoint cpt, CptEvolution data)
-          throws IOException {
+  private static void writeGraphviz(Path file, StandardGraph<?, ?> graph) throws IOException {
+
+    try (var out = Files.newBufferedWriter(file)) {
+      graph.writeGraphviz(out);
+    }
+  }
+
+  private void saveMotetCPT(ArtifactSink sink, Path folder, SectionType type,
+          CptCounterpoint cpt, CptEvolution data) throws IOException {
 
-    CFXMLWriter.saveCounterpoint(cpt, type, folder.toFile(), "cpt");
-    var evals = data.getEvals();
-    Files.writeString(folder.resolve("ec_data.csv"),
-            IntStream.range(0, evals.size())
-                    .mapToObj(k -> k + ", " + evals.get(k))
-                    .collect(Collectors.joining(System.lineSeparator())));
-    Files.writeString(folder.resolve("report.txt"), data.getReport());
+    CFXMLWriter.saveCounterpoint(sink, cpt, type, folder.toFile(), "cpt");
+    sink.writeText(folder.resolve("ec_data.csv"), data.getTelemetry()::writeCsv);
+    sink.writeString(folder.resolve("report.txt"), data.getReport());
   }
 
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.motet.framework;
+
+import art.cctcc.music.cpt.graphs.x.CptMusicSpace;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Graphs x of the CptComposers of the motets of a MotetComposer, by composer
+ * id, shared by motets composed in parallel.
+ * <p>
+ * Each id is claimed once, before composing, by the motet which develops its
+ * graph first in the sequential order; the other motets wait for the graph to
+ * be published and develop on it as secondary. So every motet gets the same
+ * graphs whatever the order the motets actually run in. Published graphs are
+ * only read afterwards.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class CptMusicSpaceRegistry {
+
+  private final Map<String, CompletableFuture<CptMusicSpace>> graphs = new ConcurrentHashMap<>();
+  private final CptMusicSpace preset;
+
+  public CptMusicSpaceRegistry(CptMusicSpace preset) {
+
+    this.preset = preset;
+  }
+
+  /**
+   * Claim the graph of the given id.
+   *
+   * @param id id of the CptComposer.
+   * @return true if the graph is not claimed yet, i.e. the caller is to
+   * develop and publish it.
+   */
+  public boolean claim(String id) {
+
+    return Objects.isNull(graphs.putIfAbsent(id, new CompletableFuture<>()));
+  }
+
+  public void publish(String id, CptMusicSpace x) {
+
+    graphs.get(id).complete(x);
+  }
+
+  /**
+   * Release a claimed graph which will not be published, so that the motets
+   * waiting for it fail instead of waiting forever. No effect on a published
+   * graph.
+   *
+   * @param id id of the CptComposer.
+   * @param cause cause of the failure.
+   */
+  public void abandon(String id, Throwable cause) {
+
+    graphs.get(id).completeExceptionally(cause);
+  }
+
+  /**
+   * Wait for the graph of the given id to be published.
+   *
+   * @param id id of the CptComposer.
+   * @return published graph.
+   */
+  public CptMusicSpace await(String id) {
+
+    return graphs.get(id).join();
+  }
+
+  /**
+   * @return a fork of the preset graph x, or null if there is none.
+   */
+  public CptMusicSpace forkPreset() {
+
+    return Objects.isNull(preset) ? null : preset.fork();
+  }
+
+  /**
+   * @return graphs published so far, by composer id.
+   */
+  public Map<String, CptMusicSpace> getGraphs() {
+
+    var published = new TreeMap<String, CptMusicSpace>();
+    graphs.forEach((id, graph) -> {
+      if (graph.isDone() && !graph.isCompletedExceptionally()) {
+        published.put(id, graph.join());
+      }
+    });
+    return published;
+  }
+}
@@ -25,17 +25,20 @@ import static art.cctcc.music.motet.model.enums.MotetComposerType.*;
 import static art.cctcc.music.motet.model.enums.SectionType.*;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import static java.util.function.Predicate.not;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.EVAPORATE_RATE;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.EXPLORE_CHANCE;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.PHEROMONE_DEPOSIT;
+import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.getRandom;
+import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.mixSeed;
 import tech.metacontext.ocnhfa.antsomg.model.AntsOMGSystem;
 import tech.metacontext.ocnhfa.antsomg.model.Graph;
 
@@ -53,7 +56,7 @@ public class MotetComposer implements AntsOMGSystem<SectionPlanner> {
   private int population;
   private double pheromone_deposit;
 
-  private final Map<String, CptMusicSpace> x;
+  private final CptMusicSpaceRegistry x;
 
   private List<Motet> motets;
 
@@ -63,15 +66,14 @@ public class MotetComposer implements AntsOMGSystem<SectionPlanner> {
 
   public MotetComposer(String id) {
 
-    this.id = id;
-    this.x = new HashMap<>();
-    this.setType(DEVELOP);
+    this(id, null);
   }
 
   public MotetComposer(String id, CptMusicSpace preset_x) {
 
-    this(id);
-    this.x.put("PRESET", preset_x);
+    this.id = id;
+    this.x = new CptMusicSpaceRegistry(preset_x);
+    this.setType(DEVELOP);
   }
 
   public void plan(int motet_no) {
@@ -91,17 +93,49 @@ public class MotetComposer implements AntsOMGSystem<SectionPlanner> {
             .collect(Collectors.toList());
   }
 
+  /**
+   * Compose the motets planned, in parallel if set so.
+   * <p>
+   * Each motet draws from a random generator of its own, seeded from one
+   * number drawn here and the number of the motet. Cantus firmi are selected
+   * and graphs x claimed in the order of the motets before any of them is
+   * composed, so the motets come out the same, composed in parallel or not.
+   *
+   * @param cf_list cantus firmi to select from.
+   */
   public void compose(List<CptCantusFirmus> cf_list) {
 
-    StreamSupport.stream(this.motets.spliterator(), parallel)
-            .forEach(motet -> {
-              motet.setGraph_x(x);
-              motet.select_cf(cf_list);
-              motet.setTest(this.type == TEST);
-              motet.setParallel(parallel);
-              motet.setChromatic(chromatic);
-              motet.compose();
+    var seed = getRandom().nextLong();
+    this.motets.forEach(motet -> {
+      motet.setSeed(mixSeed(seed, motet.getId().hashCode()));
+      motet.select_cf(cf_list);
+      motet.setGraph_x(x);
+      motet.setTest(this.type == TEST);
+      motet.setParallel(parallel);
+      motet.setChromatic(chromatic);
+    });
+    if (!parallel) {
+      this.motets.forEach(Motet::compose);
+      return;
+    }
+    // motets are started in order, so a motet waiting for a graph x claimed
+    // by a former one is always waiting for a running motet.
+    var count = new AtomicInteger();
+    var pool = Executors.newFixedThreadPool(
+            Math.min(this.motets.size(), Runtime.getRuntime().availableProcessors()),
+            runnable -> {
+              var thread = new Thread(runnable, id + "-motet-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
             });
+    try {
+      this.motets.stream()
+              .map(motet -> CompletableFuture.runAsync(motet::compose, pool))
+              .toList()
+              .forEach(CompletableFuture::join);
+    } finally {
+      pool.shutdownNow();
+    }
   }
 
   private SectionPlanner _getPlan() {
@@ -226,9 +260,12 @@ public class MotetComposer implements AntsOMGSystem<SectionPlanner> {
     return motets;
   }
 
+  /**
+   * @return graphs x developed so far, by CptComposer id.
+   */
   public Map<String, CptMusicSpace> getX() {
 
-    return x;
+    return x.getGraphs();
   }
 
   public void setParallel(boolean parallel) {
@@ -17,6 +17,8 @@ package art.cctcc.music.motet.graphs;
 
 import static art.cctcc.music.Parameters.*;
 import static art.cctcc.music.motet.model.enums.SectionType.*;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.stream.Collectors;
 import tech.metacontext.ocnhfa.antsomg.impl.StandardGraph;
 
@@ -66,13 +68,13 @@ public class SectionGraph extends StandardGraph<SectionPath, SectionNode> {
   }
 
   @Override
-  public String asGraphviz() {
+  public void writeGraphviz(Writer out) throws IOException {
 
     var developed = getEdges().stream()
             .map(SectionPath::getPheromoneTrail)
             .anyMatch(ph -> ph > 0.0);
 
-    return String.format("""
+    out.write(String.format("""
                          digraph %s {
                          \trankdir=LR;
                          \tnodesep=0.6;
@@ -107,6 +109,6 @@ public class SectionGraph extends StandardGraph<SectionPath, SectionNode> {
                             : String.format("\t%s -> %s [%s=<c=%.1f>, fontsize=10];", o)
             ).collect(Collectors.joining("\n")),
             CPT_TREBLE.name(),
-            CPT_BASS.name());
+            CPT_BASS.name()));
   }
 }
@@ -18,23 +18,29 @@ package art.cctcc.music.motet.model;
 import static art.cctcc.music.Parameters.*;
 import art.cctcc.music.cpt.framework.CptComposer;
 import art.cctcc.music.cpt.framework.CptEvolution;
-import art.cctcc.music.cpt.graphs.x.CptMusicSpace;
 import art.cctcc.music.cpt.model.CptCantusFirmus;
 import art.cctcc.music.cpt.model.CptCounterpoint;
 import art.cctcc.music.cpt.model.CptMelody;
 import static art.cctcc.music.cpt.model.enums.CptTask.*;
+import art.cctcc.music.motet.framework.CptMusicSpaceRegistry;
 import art.cctcc.music.motet.graphs.SectionNode;
 import art.cctcc.music.motet.model.enums.SectionType;
 import static art.cctcc.music.motet.model.enums.SectionType.*;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.getRandom;
+import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.withScopedRandom;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.LINE;
 
 /**
@@ -45,7 +51,9 @@ public class Motet {
 
   private final int number;
   private final List<SectionNode> scheme;
-  private Map<String, CptMusicSpace> graph_x;
+  private CptMusicSpaceRegistry graph_x;
+  private final Set<String> claimed;
+  private Random random;
   private List<CptCantusFirmus> cf_list;
   private List<Map.Entry<SectionType, CptMelody>> composition;
   private List data;
@@ -57,26 +65,50 @@ public class Motet {
 
     this.number = number;
     this.scheme = scheme;
+    this.claimed = new HashSet<>();
     this.composition = new ArrayList<>();
     this.data = new ArrayList();
   }
 
-  public void setGraph_x(Map<String, CptMusicSpace> graph_x) {
+  /**
+   * Claim in the registry the graphs x this motet is to develop first. To be
+   * called after select_cf, in the order of the motets.
+   *
+   * @param graph_x registry of graphs x shared by the motets.
+   */
+  public void setGraph_x(CptMusicSpaceRegistry graph_x) {
 
     this.graph_x = graph_x;
+    this.claimed.clear();
+    cf_list.stream()
+            .flatMap(cf -> Stream.of(cf.getId() + "-treble", cf.getId() + "-bass"))
+            .filter(graph_x::claim)
+            .forEach(claimed::add);
+  }
+
+  /**
+   * Set the random generator the motet draws from, whichever thread composes
+   * it.
+   *
+   * @param seed seed of the motet.
+   */
+  public void setSeed(long seed) {
+
+    this.random = new Random(seed);
   }
 
   public void select_cf(List<CptCantusFirmus> cf_list) {
 
-    var cf_num = scheme.stream()
-            .map(node -> node.type)
-            .filter(CF::equals).count();
-    var section = cf_list.size() / (int) cf_num;
-    var cf_selected = IntStream.range(0, (int) cf_num)
-            .map(i -> i * section + (section == 0 ? 0 : getRandom().nextInt(section)))
-            .mapToObj(cf_list::get)
-            .collect(Collectors.toList());
-    this.cf_list = cf_selected;
+    this.cf_list = withScopedRandom(random, () -> {
+      var cf_num = scheme.stream()
+              .map(node -> node.type)
+              .filter(CF::equals).count();
+      var section = cf_list.size() / (int) cf_num;
+      return IntStream.range(0, (int) cf_num)
+              .map(i -> i * section + (section == 0 ? 0 : getRandom().nextInt(section)))
+              .mapToObj(cf_list::get)
+              .collect(Collectors.toList());
+    });
   }
 
   public void setTest(boolean test) {
@@ -84,6 +116,13 @@ public class Motet {
     this.test = test;
   }
 
+  /**
+   * Set whether treble and bass of a section develop concurrently. The
+   * threads of each CptComposer are always navigated sequentially, so that
+   * the output does not depend on the scheduling.
+   *
+   * @param parallel whether treble and bass develop concurrently.
+   */
   public void setParallel(boolean parallel) {
 
     this.parallel = parallel;
@@ -97,47 +136,85 @@ public class Motet {
   public void compose() {
 
     System.out.println(this);
-    var cf_deque = new ArrayDeque<>(cf_list);
-    var selected_cf = new AtomicReference<CptCantusFirmus>();
-    var treble = new AtomicReference<CptComposer>();
-    var bass = new AtomicReference<CptComposer>();
-
-    IntStream.range(0, scheme.size()).forEach(i -> {
-      System.out.print(scheme.get(i).type + ":");
-      switch (scheme.get(i).type) {
-        case CF -> {
-          selected_cf.set(cf_deque.pop());
-          composition.add(Map.entry(CF, selected_cf.get()));
-          var id_cf = selected_cf.get().getId();
-          treble.set(CptComposer.getInstance(id_cf + "-treble", selected_cf.get(), true));
-          bass.set(CptComposer.getInstance(id_cf + "-bass", selected_cf.get(), false));
-          Stream.of(treble, bass)
-                  .map(AtomicReference::get)
-                  .peek(cpt_composer -> cpt_composer.setParallel(this.parallel))
-                  .peek(cpt_composer -> cpt_composer.setChromatic(this.chromatic))
-                  .peek(CptComposer::init_graphs)
-                  .peek(cpt_composer -> {
-                    if (graph_x.containsKey(cpt_composer.getId())) {
-                      cpt_composer.setX(graph_x.get(cpt_composer.getId()));
-                      cpt_composer.setTask(DEVELOP_SECONDARY);
-                    } else if (graph_x.containsKey("PRESET")) {
-                      cpt_composer.setX(graph_x.get("PRESET").duplicate());
-                    }
-                    if (test) {
-                      cpt_composer.setPopulation(CPT_TESTING_POPULATION);
-                    }
-                  })
-                  .peek(CptComposer::init_population)
-                  .peek(CptComposer::navigate)
-                  .forEach(c -> graph_x.putIfAbsent(c.getId(), c.getX()));
-          data.add(new CptComposer[]{treble.get(), bass.get()});
-        }
-        case CPT_TREBLE ->
-          composition.add(Map.entry(CPT_TREBLE, generateCpt(treble.get())));
-        case CPT_BASS ->
-          composition.add(Map.entry(CPT_BASS, generateCpt(bass.get())));
+    try {
+      withScopedRandom(random, () -> {
+        var cf_deque = new ArrayDeque<>(cf_list);
+        var treble = new AtomicReference<CptComposer>();
+        var bass = new AtomicReference<CptComposer>();
+
+        IntStream.range(0, scheme.size()).forEach(i -> {
+          System.out.print(scheme.get(i).type + ":");
+          switch (scheme.get(i).type) {
+            case CF -> {
+              var selected_cf = cf_deque.pop();
+              composition.add(Map.entry(CF, selected_cf));
+              var id_cf = selected_cf.getId();
+              treble.set(CptComposer.getInstance(id_cf + "-treble", selected_cf, true));
+              bass.set(CptComposer.getInstance(id_cf + "-bass", selected_cf, false));
+              // seeds are drawn before either voice runs, so that each voice
+              // draws the same numbers, concurrently or not.
+              var seeds = getRandom().longs(2).toArray();
+              Stream.of(treble, bass)
+                      .map(AtomicReference::get)
+                      .forEach(this::prepare);
+              if (parallel) {
+                var developing_treble = CompletableFuture.runAsync(
+                        () -> develop(treble.get(), seeds[0]));
+                develop(bass.get(), seeds[1]);
+                developing_treble.join();
+              } else {
+                develop(treble.get(), seeds[0]);
+                develop(bass.get(), seeds[1]);
+              }
+              Stream.of(treble, bass)
+                      .map(AtomicReference::get)
+                      .filter(cpt_composer -> claimed.remove(cpt_composer.getId()))
+                      .forEach(cpt_composer -> graph_x.publish(cpt_composer.getId(), cpt_composer.getX()));
+              data.add(new CptComposer[]{treble.get(), bass.get()});
+            }
+            case CPT_TREBLE ->
+              composition.add(Map.entry(CPT_TREBLE, generateCpt(treble.get())));
+            case CPT_BASS ->
+              composition.add(Map.entry(CPT_BASS, generateCpt(bass.get())));
+          }
+          System.out.println();
+        });
+        return null;
+      });
+    } catch (RuntimeException ex) {
+      claimed.forEach(id -> graph_x.abandon(id, ex));
+      throw ex;
+    }
+  }
+
+  /**
+   * Initialize the graphs of a CptComposer, taking graph x from the registry
+   * if another motet or section develops it, waiting for it if necessary.
+   */
+  private void prepare(CptComposer cpt_composer) {
+
+    cpt_composer.setChromatic(this.chromatic);
+    cpt_composer.init_graphs();
+    if (!claimed.contains(cpt_composer.getId())) {
+      cpt_composer.setX(graph_x.await(cpt_composer.getId()));
+      cpt_composer.setTask(DEVELOP_SECONDARY);
+    } else {
+      var preset = graph_x.forkPreset();
+      if (Objects.nonNull(preset)) {
+        cpt_composer.setX(preset);
       }
-      System.out.println();
+    }
+    if (test) {
+      cpt_composer.setPopulation(CPT_TESTING_POPULATION);
+    }
+  }
+
+  private static void develop(CptComposer cpt_composer, long seed) {
+
+    withScopedRandom(new Random(seed), () -> {
+      cpt_composer.init_population();
+      cpt_composer.navigate();
+      return null;
     });
   }
 
@@ -59,18 +59,14 @@ public class CptCalculator {
 
   public static BigDecimal[] countBothSides(CptCantusFirmus cf) {
 
-    var treble = new CptCfPitchSpace(cf, true);
-    var bass = new CptCfPitchSpace(cf, false);
     BigDecimal treble_count, bass_count;
     try {
-      treble.init_graph();
-      treble_count = treble.cpt_count();
+      treble_count = CptCfPitchSpace.getInstance(cf, true, null).cpt_count();
     } catch (ImmatureCptCfPitchSpaceException ex) {
       treble_count = BigDecimal.ZERO;
     }
     try {
-      bass.init_graph();
-      bass_count = bass.cpt_count();
+      bass_count = CptCfPitchSpace.getInstance(cf, false, null).cpt_count();
     } catch (ImmatureCptCfPitchSpaceException ex) {
       bass_count = BigDecimal.ZERO;
     }
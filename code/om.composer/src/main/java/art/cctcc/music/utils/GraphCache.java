@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, thread-safe LRU cache of built graphs.
+ * <p>
+ * Cached graphs are shared and must be treated as read-only; consumers are
+ * expected to take a fork of them before depositing pheromones. Builders run
+ * outside the lock, so two threads missing the same key may both build it, in
+ * which case the first one stored wins.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ * @param <K> key type.
+ * @param <G> graph type.
+ */
+public class GraphCache<K, G> {
+
+  private final Map<K, G> graphs;
+
+  public GraphCache(int capacity) {
+
+    this.graphs = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, G> eldest) {
+
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Get the cached graph of the key, building it if absent.
+   *
+   * @param key cache key.
+   * @param builder builds the graph on a miss.
+   * @return shared cached graph.
+   */
+  public G get(K key, Supplier<G> builder) {
+
+    G graph;
+    synchronized (graphs) {
+      graph = graphs.get(key);
+    }
+    if (Objects.nonNull(graph))
+      return graph;
+    var built = builder.get();
+    synchronized (graphs) {
+      return graphs.merge(key, built, (cached, b) -> cached);
+    }
+  }
+
+  public void clear() {
+
+    synchronized (graphs) {
+      graphs.clear();
+    }
+  }
+
+  public int size() {
+
+    synchronized (graphs) {
+      return graphs.size();
+    }
+  }
+}
@@ -32,6 +32,7 @@ import static tech.metacontext.ocnhfa.antsomg.impl.StandardParameters.initializa
 import tech.metacontext.ocnhfa.composer.cf.model.Parameters;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.createTimeBasedId;
 import static tech.metacontext.ocnhfa.composer.cf.model.Parameters.getParam;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink.Format;
 
 /**
  *
@@ -50,13 +51,15 @@ public class Settings {
   public final boolean parallel;
   public final boolean check_cf;
   public final boolean chromatic; // ICCC
+  public final Format archive;
 
   /**
    * Advanced parameters:<br>
    * SEED=(Long) RANDOM*<br>
    * FRACTION_MODE=Power | Coefficient* | Power_Multiply<br>
    * PARALLEL<br>
-   * CHECK_CF
+   * CHECK_CF<br>
+   * ARCHIVE=zip | tar
    */
   public static final String HELP = """
           Parameters:
@@ -70,6 +73,7 @@ public class Settings {
           CHECK_CF
           CHROMATIC (for ICCC)
           PARALLEL
+          ARCHIVE=zip | tar (pack composer outputs into one archive)
           *: default
           """;
 
@@ -96,6 +100,8 @@ public class Settings {
 
     this.parallel = getParam(params, "PARALLEL", false, v -> true);
 
+    this.archive = getParam(params, "ARCHIVE", Format.FILES, Format::of);
+
     this.fraction_mode
             = getParam(params, "FRACTION_MODE", Parameters.DEFAULT_FRACTION_MODE,
                     FractionMode::valueOf);
@@ -135,6 +141,7 @@ public class Settings {
     parallel = Boolean.valueOf(props.getProperty("PARALLEL"));
     check_cf = Boolean.valueOf(props.getProperty("CHECK_CF"));
     chromatic = Boolean.valueOf(props.getProperty("CHROMATIC")); //ICCC
+    archive = Format.valueOf(props.getProperty("ARCHIVE", Format.FILES.name()));
   }
 
   public Path saveSetting() {
@@ -158,6 +165,7 @@ public class Settings {
       props.put("PARALLEL", "" + parallel);
       props.put("CHECK_CF", "" + check_cf);
       props.put("CHROMATIC", "" + chromatic); //ICCC
+      props.put("ARCHIVE", archive.name());
       try (var os = new FileOutputStream(project_folder.resolve(SETTINGS_FILENAME).toFile())) {
         props.storeToXML(os, toString());
       }
@@ -101,20 +101,14 @@ public class Tools {
    */
   public static Pair<Boolean> checkCF(CptCantusFirmus cf, CptPitchSpace cps) {
 
-    var cpt_treble = new CptCfPitchSpace(cf, true);
-    var cpt_bass = new CptCfPitchSpace(cf, false);
-    if (cps != null) {
-      cpt_treble.setYCpt(cps);
-      cpt_bass.setYCpt(cps);
-    }
     boolean treble_bad = false, bass_bad = false;
     try {
-      cpt_treble.init_graph();
+      CptCfPitchSpace.getInstance(cf, true, cps);
     } catch (ImmatureCptCfPitchSpaceException ex) {
       treble_bad = true;
     }
     try {
-      cpt_bass.init_graph();
+      CptCfPitchSpace.getInstance(cf, false, cps);
     } catch (ImmatureCptCfPitchSpaceException ex) {
       bass_bad = true;
     }
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2021 Jonathan Chang, Chun-yien <ccy@musicapoetica.org>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package art.cctcc.music.utils.io;
+
+import art.cctcc.music.cpt.model.CptCantusFirmus;
+import art.cctcc.music.cpt.model.enums.CptEcclesiasticalMode;
+import art.cctcc.music.cpt.model.enums.CptPitch;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Compact, random-access index of the cantus firmi of a CF model folder,
+ * i.e. the folder holding composer.xml and cantus_firmus/*.xml.
+ * <pre>
+ * int     magic "CFCI"
+ * short   version
+ * long    fingerprint of the XML files, from their names and contents
+ * int     record count, then per record: int offset from the start of file
+ * records per cantus firmus: short length, UTF-8 id, byte mode ordinal,
+ *         byte note count, byte CptPitch ordinal per note
+ * </pre> Records are kept in the order of the numbers of the XML files. The
+ * index is built once, in parallel, from the XML files and stored as
+ * {@value #INDEX} next to the cantus_firmus folder, and rebuilt when the
+ * fingerprint of the XML files no longer matches; it is kept in memory only
+ * if the folder cannot be written, or is not on the default file system, e.g.
+ * inside a jar.
+ *
+ * @author Jonathan Chang, Chun-yien <ccy@musicapoetica.org>
+ */
+public class CFCorpus {
+
+  public static final int MAGIC = 0x43464349;
+  public static final short VERSION = 3;
+  public static final String INDEX = "cantus_firmus.idx";
+
+  private static final int HEADER_BYTES = Integer.BYTES + Short.BYTES + Long.BYTES + Integer.BYTES;
+  private static final CptPitch[] PITCHES = CptPitch.values();
+  private static final CptEcclesiasticalMode[] MODES = CptEcclesiasticalMode.values();
+  private static final Map<Path, CFCorpus> corpora = new ConcurrentHashMap<>();
+
+  private final ByteBuffer buffer;
+  private final long fingerprint;
+  private final int size;
+
+  /**
+   * Get the shared corpus of a CF model folder, building its index if absent
+   * or out of date.
+   *
+   * @param model_folder folder holding the cantus_firmus folder.
+   * @return shared CFCorpus.
+   * @throws IOException
+   */
+  public static CFCorpus getInstance(Path model_folder) throws IOException {
+
+    var key = model_folder.toAbsolutePath().normalize();
+    var corpus = corpora.get(key);
+    if (corpus == null) {
+      corpus = load(key);
+      var cached = corpora.putIfAbsent(key, corpus);
+      if (cached != null) {
+        corpus = cached;
+      }
+    }
+    return corpus;
+  }
+
+  private static CFCorpus load(Path model_folder) throws IOException {
+
+    var xml_files = listXMLFiles(model_folder.resolve("cantus_firmus"));
+    var fingerprint = fingerprint(xml_files);
+    var index = model_folder.resolve(INDEX);
+    if (Files.isRegularFile(index)) {
+      try {
+        var corpus = new CFCorpus(read(index));
+        if (corpus.fingerprint == fingerprint && corpus.size() == xml_files.size()) {
+          return corpus;
+        }
+      } catch (IOException ex) {
+        Logger.getLogger(CFCorpus.class.getName()).log(Level.WARNING, null, ex);
+      }
+    }
+    System.out.printf("Indexing %d cantus firmi of %s ...\n", xml_files.size(), model_folder);
+    ByteBuffer buffer;
+    try {
+      buffer = encode(fingerprint, xml_files.parallelStream()
+              .map(CFXMLReader::getCptCantusFirmusFromXML)
+              .toList());
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+    if (index.getFileSystem() != FileSystems.getDefault()) {
+      Logger.getLogger(CFCorpus.class.getName()).log(Level.INFO,
+              "Index of {0} is kept in memory: not on the default file system", model_folder);
+      return new CFCorpus(buffer);
+    }
+    try {
+      write(buffer, index);
+    } catch (IOException ex) {
+      Logger.getLogger(CFCorpus.class.getName()).log(Level.INFO,
+              "Index of {0} is kept in memory: {1}", new Object[]{model_folder, ex});
+    }
+    return new CFCorpus(buffer);
+  }
+
+  private static List<Path> listXMLFiles(Path cantus_firmus_folder) throws IOException {
+
+    try (var files = Files.list(cantus_firmus_folder)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(".xml"))
+              .sorted(Comparator.comparing(CFCorpus::getNumber))
+              .toList();
+    }
+  }
+
+  /**
+   * Number of a cantus firmus XML file, e.g. 10 of cantus_firmus_10.xml.
+   */
+  private static int getNumber(Path xml_file) {
+
+    return Integer.parseInt(xml_file.getFileName().toString().split("[_.]")[2]);
+  }
+
+  /**
+   * Fingerprint of the XML files from their names and the CRC32 of their
+   * contents, which unlike modification times survive checkouts and jars.
+   */
+  private static long fingerprint(List<Path> xml_files) throws IOException {
+
+    var fingerprint = 1L;
+    var crc = new CRC32();
+    var bytes = new byte[8192];
+    for (var xml_file : xml_files) {
+      crc.reset();
+      try (var in = Files.newInputStream(xml_file)) {
+        int n;
+        while ((n = in.read(bytes)) > 0) {
+          crc.update(bytes, 0, n);
+        }
+      }
+      fingerprint = 31 * fingerprint + xml_file.getFileName().toString().hashCode();
+      fingerprint = 31 * fingerprint + crc.getValue();
+    }
+    return fingerprint;
+  }
+
+  private static ByteBuffer read(Path index) throws IOException {
+
+    if (index.getFileSystem() != FileSystems.getDefault()) {
+      return ByteBuffer.wrap(Files.readAllBytes(index));
+    }
+    try (var channel = FileChannel.open(index, READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private static void write(ByteBuffer buffer, Path index) throws IOException {
+
+    try (var channel = FileChannel.open(index, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      var source = buffer.duplicate().rewind();
+      while (source.hasRemaining()) {
+        channel.write(source);
+      }
+    }
+  }
+
+  private static ByteBuffer encode(long fingerprint, List<CptCantusFirmus> cfs) {
+
+    var ids = cfs.stream()
+            .map(cf -> cf.getId().getBytes(StandardCharsets.UTF_8))
+            .toList();
+    var size = HEADER_BYTES + cfs.size() * Integer.BYTES;
+    for (int i = 0; i < cfs.size(); i++) {
+      size += Short.BYTES + ids.get(i).length + 2 + cfs.get(i).length();
+    }
+    var buffer = ByteBuffer.allocate(size);
+    buffer.putInt(MAGIC).putShort(VERSION).putLong(fingerprint).putInt(cfs.size());
+    var offset = HEADER_BYTES + cfs.size() * Integer.BYTES;
+    for (int i = 0; i < cfs.size(); i++) {
+      buffer.putInt(offset);
+      offset += Short.BYTES + ids.get(i).length + 2 + cfs.get(i).length();
+    }
+    for (int i = 0; i < cfs.size(); i++) {
+      var cf = cfs.get(i);
+      buffer.putShort((short) ids.get(i).length).put(ids.get(i));
+      buffer.put((byte) cf.getMode().ordinal());
+      buffer.put((byte) cf.length());
+      cf.getMelody().forEach(note -> buffer.put((byte) note.getPitch().ordinal()));
+    }
+    return buffer.flip();
+  }
+
+  private CFCorpus(ByteBuffer buffer) throws IOException {
+
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a cantus firmus index.");
+    }
+    var version = buffer.getShort(Integer.BYTES);
+    if (version != VERSION) {
+      throw new IOException("Unsupported cantus firmus index version " + version + ".");
+    }
+    this.buffer = buffer;
+    this.fingerprint = buffer.getLong(Integer.BYTES + Short.BYTES);
+    this.size = buffer.getInt(Integer.BYTES + Short.BYTES + Long.BYTES);
+  }
+
+  public int size() {
+
+    return size;
+  }
+
+  /**
+   * Decode a cantus firmus by its position in the corpus.
+   *
+   * @param index 0-based position, in the order of the XML file numbers.
+   * @return a new CptCantusFirmus.
+   */
+  public CptCantusFirmus get(int index) {
+
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    var position = buffer.getInt(HEADER_BYTES + index * Integer.BYTES);
+    var id = new byte[buffer.getShort(position)];
+    position += Short.BYTES;
+    buffer.get(position, id);
+    position += id.length;
+    var cf = new CptCantusFirmus(new String(id, StandardCharsets.UTF_8));
+    var mode = MODES[buffer.get(position++)];
+    var length = buffer.get(position++);
+    for (int i = 0; i < length; i++) {
+      cf.addNote(PITCHES[buffer.get(position + i)].getNode());
+    }
+    cf.setMode(mode);
+    return cf;
+  }
+
+  /**
+   * @return ordered stream of all cantus firmi, which may be made parallel.
+   */
+  public Stream<CptCantusFirmus> stream() {
+
+    return IntStream.range(0, size).mapToObj(this::get);
+  }
+
+  /**
+   * @return all cantus firmi, decoded in parallel.
+   */
+  public List<CptCantusFirmus> getAll() {
+
+    return stream().parallel().toList();
+  }
+}
@@ -22,22 +22,29 @@ import art.cctcc.music.cpt.graphs.y_cpt.CptPitchNode;
 import art.cctcc.music.cpt.model.CptCantusFirmus;
 import art.cctcc.music.cpt.model.enums.CptEcclesiasticalMode;
 import art.cctcc.music.cpt.model.enums.CptPitch;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
-import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+import tech.metacontext.ocnhfa.antsomg.impl.StandardGraphFile;
 import tech.metacontext.ocnhfa.composer.cf.model.enums.*;
 
 /**
@@ -46,31 +53,86 @@ import tech.metacontext.ocnhfa.composer.cf.model.enums.*;
  */
 public class CFXMLReader {
 
+  private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
   public static CptCantusFirmus getCptCantusFirmusFromXML(File xml_source) {
 
-    var doc = XMLReader(xml_source);
-    var cf = new CptCantusFirmus(xml_source.getName().replace(".xml", ""));
-    parseMelodyText(doc.getRootElement().element("CantusFirmus").getText())
-            .forEach(cf::addNote);
-    cf.setMode(CptEcclesiasticalMode.valueOf(doc.getRootElement().elementText("mode")));
+    return getCptCantusFirmusFromXML(xml_source.toPath());
+  }
+
+  /**
+   * Get CptCantusFirmus from a MusicThread XML file, streaming only as far as
+   * its mode and melody instead of parsing the whole history.
+   *
+   * @param xml_source MusicThread XML file.
+   * @return CptCantusFirmus named after the file.
+   * @throws UncheckedIOException if the file cannot be read or parsed.
+   */
+  public static CptCantusFirmus getCptCantusFirmusFromXML(Path xml_source) {
+
+    var cf = new CptCantusFirmus(xml_source.getFileName().toString().replace(".xml", ""));
+    String mode = null, melody = null;
+    try (var in = Files.newInputStream(xml_source)) {
+      XMLStreamReader reader;
+      synchronized (INPUT_FACTORY) {
+        reader = INPUT_FACTORY.createXMLStreamReader(in);
+      }
+      try {
+        while ((mode == null || melody == null) && reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+              case "mode" ->
+                mode = reader.getElementText();
+              case "CantusFirmus" ->
+                melody = reader.getElementText();
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } catch (XMLStreamException ex) {
+      throw new UncheckedIOException(new IOException(xml_source.toString(), ex));
+    }
+    parseMelodyText(melody).forEach(cf::addNote);
+    cf.setMode(CptEcclesiasticalMode.valueOf(mode));
     return cf;
   }
 
+  /**
+   * Get CptMusicSpace from the graph x of a CFComposer, loaded from
+   * graph_x.bin next to the xml source if present.
+   *
+   * @param xml_source composer.xml of a CFComposer.
+   * @param dupeCost whether the costs are loaded as well.
+   * @return CptMusicSpace.
+   */
   public static CptMusicSpace getCptMusicSpaceFromCFComposer(File xml_source, boolean dupeCost) {
 
-    var root = XMLReader(xml_source).getRootElement();
-    assert "CFComposer".equals(root.getName());
     System.out.println("Setting CptMusicSpace...");
     var cptMusicSpace = new CptMusicSpace();
     cptMusicSpace.init_graph();
+    var bin = new File(xml_source.getParentFile(), "graph_x.bin");
+    if (bin.exists()) {
+      try {
+        StandardGraphFile.read(cptMusicSpace, bin.toPath(), dupeCost);
+        return cptMusicSpace;
+      } catch (IOException ex) {
+        Logger.getLogger(CFXMLReader.class.getName()).log(Level.WARNING, null, ex);
+      }
+    }
+    var root = XMLReader(xml_source).getRootElement();
+    assert "CFComposer".equals(root.getName());
+    var paths = cptMusicSpace.getEdges().stream()
+            .collect(Collectors.toMap(p -> Map.entry(p.getFrom(), p.getTo()), p -> p, (p1, p2) -> p1));
     root.element("MusicSpace").elements("MusicPath").stream()
             .forEach(xml_path -> {
               var from = MusicThought.getNode(xml_path.element("from").getText());
               var to = MusicThought.getNode(xml_path.element("to").getText());
               var pheromone = Double.valueOf(xml_path.element("pheromoneTrail").getText());
-              var path = cptMusicSpace.queryByVertex(from).stream()
-                      .filter(p -> Objects.equals(p.getTo(), to))
-                      .findFirst().get();
+              var path = Optional.ofNullable(paths.get(Map.entry(from, to))).get();
               path.setPheromoneTrail(pheromone);
               if (dupeCost) {
                 var cost = Double.valueOf(xml_path.element("cost").getText());
@@ -80,36 +142,48 @@ public class CFXMLReader {
     return cptMusicSpace;
   }
 
+  /**
+   * Get CptComposer from its composer.xml, with the graphs loaded from
+   * graph_x.bin and graph_y.bin next to it if present.
+   *
+   * @param xml_source composer.xml of a CptComposer.
+   * @return CptComposer.
+   */
   public static CptComposer getCptComposerFromXML(File xml_source) {
 
     var root = XMLReader(xml_source).getRootElement();
+    var folder = xml_source.getParentFile();
+    if (new File(folder, "graph_x.bin").exists() && new File(folder, "graph_y.bin").exists()) {
+      var composer = createCptComposer(root);
+      try {
+        composer.readGraphs(folder);
+        return composer;
+      } catch (IOException ex) {
+        Logger.getLogger(CFXMLReader.class.getName()).log(Level.WARNING, null, ex);
+      }
+    }
     return getCptComposerFromXML(root);
   }
 
   public static CptComposer getCptComposerFromXML(Element root) {
-    
-    assert "CptComposer".equals(root.getName())
-            || "Composer".equals(root.getName()) && root.element("cantus_firmus") != null;  //for backward compatibility
-    var cf = new CptCantusFirmus(root.element("cantus_firmus").getText());
-    cf.setMode(CptEcclesiasticalMode.valueOf(root.element("mode").getText()));
-    parseMelodyText(root.element("cantus_firmus_melody").getText())
-            .forEach(cf::addNote);
-    var treble = "treble".equals(root.element("counterpoint_place").getText())
-            || "above".equals(root.element("counterpoint_place").getText()); // for backward compatibility
-    var composer = CptComposer.getInstance(root.attributeValue("id"), cf, treble);
-    composer.init_graphs();
+
+    var composer = createCptComposer(root);
     System.out.println("Setting MusicSpace...");
+    var x_paths = composer.getX().getEdges().stream()
+            .collect(Collectors.toMap(p -> Map.entry(p.getFrom(), p.getTo()), p -> p, (p1, p2) -> p1));
     root.element("CptMusicSpace").elements("MusicPath").stream()
             .forEach(xml_path -> {
               var from = MusicThought.getNode(xml_path.element("from").getText());
               var to = MusicThought.getNode(xml_path.element("to").getText());
               var pheromone = Double.valueOf(xml_path.element("pheromoneTrail").getText());
-              composer.getX().queryByVertex(from).stream()
-                      .filter(p -> Objects.equals(p.getTo(), to))
-                      .findFirst().get()
+              Optional.ofNullable(x_paths.get(Map.entry(from, to))).get()
                       .setPheromoneTrail(pheromone);
             });
     System.out.println("Setting CptCfPitchSpace...");
+    var y_paths = composer.getY().getLoci().stream()
+            .map(locus -> locus.stream().collect(Collectors.toMap(
+            p -> Arrays.asList(p.getFrom(), p.getTo()), p -> p, (p1, p2) -> p1)))
+            .toList();
     root.element("CptCfPitchSpace").elements("locus").stream()
             .collect(Collectors.toMap(
                     l -> Integer.valueOf(l.attributeValue("number")),
@@ -119,17 +193,32 @@ public class CFXMLReader {
             .forEach(entry -> {
               var locus = entry.getKey();
               entry.getValue().stream().forEach(xml_path -> {
+                var from = locus == 0 ? null : CptPitch.valueOf(xml_path.element("from").getText()).getNode();
                 var to = CptPitch.valueOf(xml_path.element("to").getText()).getNode();
                 var pheromoneTrail = Double.valueOf(xml_path.element("pheromoneTrail").getText());
-                composer.getY().queryByDestination(locus, to).stream()
-                        .filter(p -> locus == 0 || Objects.equals(p.getFrom(), CptPitch.valueOf(xml_path.element("from").getText()).getNode()))
-                        .findAny().orElseThrow(() -> new CptPitchPathNotFoundException("at locus=" + locus + ", to=" + to))
+                Optional.ofNullable(y_paths.get(locus).get(Arrays.asList(from, to)))
+                        .orElseThrow(() -> new CptPitchPathNotFoundException("at locus=" + locus + ", to=" + to))
                         .setPheromoneTrail(pheromoneTrail);
               });
             });
     return composer;
   }
 
+  private static CptComposer createCptComposer(Element root) {
+
+    assert "CptComposer".equals(root.getName())
+            || "Composer".equals(root.getName()) && root.element("cantus_firmus") != null;  //for backward compatibility
+    var cf = new CptCantusFirmus(root.element("cantus_firmus").getText());
+    cf.setMode(CptEcclesiasticalMode.valueOf(root.element("mode").getText()));
+    parseMelodyText(root.element("cantus_firmus_melody").getText())
+            .forEach(cf::addNote);
+    var treble = "treble".equals(root.element("counterpoint_place").getText())
+            || "above".equals(root.element("counterpoint_place").getText()); // for backward compatibility
+    var composer = CptComposer.getInstance(root.attributeValue("id"), cf, treble);
+    composer.init_graphs();
+    return composer;
+  }
+
   public static List<CptPitchNode> parseMelodyText(String melody_string) {
 
     var pitches = melody_string
@@ -143,13 +232,9 @@ public class CFXMLReader {
 
   public static Document XMLReader(File xml_source) {
 
-    try (var fr = new FileReader(xml_source);
-            var br = new BufferedReader(fr);) {
-      var doc = br.lines().collect(Collectors.joining(" "));
-      return DocumentHelper.parseText(doc);
-    } catch (FileNotFoundException ex) {
-      Logger.getLogger(CFXMLReader.class.getName()).log(Level.SEVERE, null, ex);
-    } catch (IOException | DocumentException ex) {
+    try {
+      return new SAXReader().read(xml_source);
+    } catch (DocumentException ex) {
       Logger.getLogger(CFXMLReader.class.getName()).log(Level.SEVERE, null, ex);
     }
     return null;
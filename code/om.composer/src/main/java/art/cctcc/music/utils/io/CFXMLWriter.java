@@ -32,6 +32,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.IntStream;
 import org.dom4j.DocumentHelper;
+import tech.metacontext.ocnhfa.composer.cf.utils.io.ArtifactSink;
 
 /**
  *
@@ -44,16 +45,15 @@ public class CFXMLWriter {
     var path = (Objects.isNull(parent)) ? new File(folder) : new File(parent, folder);
     path.mkdirs();
 
-    try (var fw_composer = new FileWriter(new File(path, "composer.xml"));
-            var bw_composer = new BufferedWriter(fw_composer);) {
-      bw_composer.write(composer.asXML());
+    try {
+      composer.writeXML(new File(path, "composer.xml").toPath());
     } catch (IOException ex) {
       Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
     }
 
     try (var fw_graph_x = new FileWriter(new File(path, "graph_x.graphviz"));
             var bw_graph_x = new BufferedWriter(fw_graph_x);) {
-      bw_graph_x.write(composer.getX().asGraphviz());
+      composer.getX().writeGraphviz(bw_graph_x);
     } catch (IOException ex) {
       Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
     }
@@ -61,11 +61,17 @@ public class CFXMLWriter {
     synchronized (CFXMLWriter.class) {
       try (var fw_graph_y = new FileWriter(new File(path, "graph_y.graphviz"));
               var bw_graph_y = new BufferedWriter(fw_graph_y);) {
-        bw_graph_y.write(composer.getY().asGraphviz());
+        composer.getY().writeGraphviz(bw_graph_y);
       } catch (IOException ex) {
         Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
       }
     }
+
+    try {
+      composer.writeGraphs(path);
+    } catch (IOException ex) {
+      Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
+    }
     return path;
   }
 
@@ -124,6 +130,16 @@ public class CFXMLWriter {
 
   public static void saveCantusFirmus(CptCantusFirmus cf, File folder, String filename) {
 
+    try (var sink = ArtifactSink.synchronous()) {
+      saveCantusFirmus(sink, cf, folder, filename);
+    } catch (IOException ex) {
+      Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
+    }
+  }
+
+  public static void saveCantusFirmus(ArtifactSink sink, CptCantusFirmus cf,
+          File folder, String filename) throws IOException {
+
     var doc = DocumentHelper.createDocument();
     var root = doc.addElement("CptCantusFirmus")
             .addAttribute("id", cf.getId());
@@ -131,23 +147,25 @@ public class CFXMLWriter {
     root.addElement("CantusFirmus").addText(cf.getMelody().toString());
     root.addElement("mode").addText(cf.getMode().name());
 
-    synchronized (CFXMLWriter.class) {
-      folder.mkdirs();
-      var file = (filename == null)
-              ? new File(folder, "CptCantusFirmus_" + cf.getId() + ".xml")
-              : new File(folder, filename + ".xml");
-      try (var fw = new FileWriter(file);
-              var bw = new BufferedWriter(fw);) {
-        bw.write(doc.asXML());
-      } catch (IOException ex) {
-        Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
-      }
-    }
+    var file = (filename == null)
+            ? new File(folder, "CptCantusFirmus_" + cf.getId() + ".xml")
+            : new File(folder, filename + ".xml");
+    sink.writeString(file.toPath(), doc.asXML());
   }
 
   public static void saveCounterpoint(CptCounterpoint cpt, SectionType type,
           File folder, String filename) {
 
+    try (var sink = ArtifactSink.synchronous()) {
+      saveCounterpoint(sink, cpt, type, folder, filename);
+    } catch (IOException ex) {
+      Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
+    }
+  }
+
+  public static void saveCounterpoint(ArtifactSink sink, CptCounterpoint cpt,
+          SectionType type, File folder, String filename) throws IOException {
+
     var doc = DocumentHelper.createDocument();
     var root = doc.addElement("CptCounterpoint")
             .addAttribute("id", cpt.getId());
@@ -157,15 +175,6 @@ public class CFXMLWriter {
     root.addElement("CantusFirmus").addText(cpt.getCf().getMelody().toString());
     root.addElement("mode").addText(cpt.getMode().name());
 
-    synchronized (CFXMLWriter.class) {
-      folder.mkdirs();
-      var file = new File(folder, filename + ".xml");
-      try (var fw = new FileWriter(file);
-              var bw = new BufferedWriter(fw);) {
-        bw.write(doc.asXML());
-      } catch (IOException ex) {
-        Logger.getLogger(CFXMLWriter.class.getName()).log(Level.SEVERE, null, ex);
-      }
-    }
+    sink.writeString(new File(folder, filename + ".xml").toPath(), doc.asXML());
   }
 }